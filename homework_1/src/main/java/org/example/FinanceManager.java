@@ -1,41 +1,121 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 
 import lombok.extern.log4j.Log4j2;
+import org.example.model.AdminReport;
+import org.example.model.BudgetForecast;
+import org.example.model.BudgetPeriodType;
+import org.example.model.BudgetStatus;
+import org.example.model.Goal;
+import org.example.model.GoalForecast;
+import org.example.model.MonthCloseResult;
 import org.example.model.Transaction;
 import org.example.model.TransactionType;
 import org.example.model.User;
+import org.example.model.UserFilter;
+import org.example.model.UserPage;
 import org.example.repository.BudgetRepository;
 import org.example.repository.GoalRepository;
+import org.example.repository.MonthCloseCheckpointRepository;
+import org.example.repository.MonthlySummaryRepository;
 import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSegmentStore;
 import org.example.repository.UserRepository;
 import org.example.service.AdminService;
+import org.example.service.BudgetForecastService;
 import org.example.service.BudgetService;
+import org.example.service.CategoryBudgetService;
+import org.example.service.GoalDeadlineScheduler;
+import org.example.service.GoalForecastService;
+import org.example.service.GoalFundingService;
 import org.example.service.GoalService;
 import org.example.service.TransactionService;
 import org.example.service.UserService;
+import org.example.service.LoginRateLimiter;
+import org.example.service.MonthCloseService;
 import org.example.service.NotificationService;
+import org.example.service.PeriodBudgetService;
+import org.example.service.PasswordHasher;
+import org.example.service.ReportService;
+import org.example.service.ReportTask;
+import org.example.service.SessionService;
+import org.example.service.UserCommandExecutor;
 
 @Log4j2
 public class FinanceManager {
-    private static User currentUser = null;
+    private static final int USERS_PAGE_SIZE = 20;
+    private static final int REPORT_TOP_SPENDERS = 10;
+    private static String sessionToken = null;
     private static Scanner scanner = new Scanner(System.in);
 
     private static UserRepository userRepository = new UserRepository();
-    private static TransactionRepository transactionRepository = new TransactionRepository();
-    private static UserService userService = new UserService(userRepository);
+    // Транзакции не более HOT_USERS недавно активных пользователей в памяти, остальные - в сегментах на диске.
+    // Сегменты нужны только этому процессу, поэтому лежат во временном каталоге
+    private static final int HOT_USERS = 1_000;
+    private static final Duration ARCHIVE_AFTER = Duration.ofDays(90);
+    private static TransactionRepository transactionRepository = new TransactionRepository(
+            new TransactionSegmentStore(temporaryDirectory("finance-segments"), ARCHIVE_AFTER, Clock.systemDefaultZone()),
+            HOT_USERS);
+    private static PasswordHasher passwordHasher = new PasswordHasher();
+    private static SessionService sessionService = new SessionService();
+    private static UserService userService = new UserService(userRepository, passwordHasher, new LoginRateLimiter(),
+            sessionService);
+    private static UserCommandExecutor userExecutor = new UserCommandExecutor();
     private static TransactionService transactionService = new TransactionService(transactionRepository);
     private static BudgetService budgetService = new BudgetService(new BudgetRepository(), transactionService);
-    private static GoalService goalService = new GoalService(new GoalRepository());
+    private static GoalRepository goalRepository = new GoalRepository();
+    private static GoalService goalService = new GoalService(goalRepository);
     private static NotificationService notificationService = new NotificationService();
-    private static AdminService adminService = new AdminService(userRepository, transactionRepository);
+    private static AdminService adminService = new AdminService(userRepository, transactionRepository, sessionService);
+    private static ReportService reportService = new ReportService(transactionRepository);
+    private static GoalFundingService goalFundingService = new GoalFundingService(goalService, transactionRepository);
+    private static GoalDeadlineScheduler goalDeadlineScheduler = new GoalDeadlineScheduler(goalService, notificationService);
+    private static GoalForecastService goalForecastService = new GoalForecastService(goalService, transactionRepository);
+    private static BudgetForecastService budgetForecastService = new BudgetForecastService(budgetService, transactionRepository);
+    private static CategoryBudgetService categoryBudgetService = new CategoryBudgetService(budgetService, transactionRepository);
+    private static PeriodBudgetService periodBudgetService = new PeriodBudgetService(budgetService, transactionRepository);
+    // Итоги закрытых месяцев и контрольные точки живут там же, где пользователи и транзакции, - в памяти:
+    // отметки в файле пережили бы перезапуск, а описанные ими данные - нет
+    private static MonthlySummaryRepository monthlySummaryRepository = new MonthlySummaryRepository();
+    private static MonthCloseService monthCloseService = new MonthCloseService(userRepository, transactionRepository,
+            budgetService, notificationService, monthlySummaryRepository, new MonthCloseCheckpointRepository());
+
+    static {
+        transactionService.addListener(goalFundingService);
+        transactionService.addListener(goalForecastService);
+        transactionService.addListener(budgetForecastService);
+        transactionService.addListener(categoryBudgetService);
+        transactionService.addListener(periodBudgetService);
+        periodBudgetService.rebuild();
+        transactionService.setSummaryArchive(monthlySummaryRepository);
+        transactionService.setUserExecutor(userExecutor);
+        budgetService.setUserExecutor(userExecutor);
+        goalService.setUserExecutor(userExecutor);
+        goalService.setDeadlineScheduler(goalDeadlineScheduler);
+        goalDeadlineScheduler.start();
+    }
+
+    private static Path temporaryDirectory(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
     public static void main(String[] args) {
         System.out.println("Starting application...");
@@ -66,7 +146,17 @@ public class FinanceManager {
     }
 
     private static boolean isUserLoggedIn() {
-        return currentUser != null;
+        if (sessionToken != null && currentUser() == null) {
+            sessionToken = null;
+            System.out.println("Сессия истекла, войдите снова.");
+        }
+        return sessionToken != null;
+    }
+
+    // Пользователь текущей сессии; null, если сессия истекла или отозвана
+    private static User currentUser() {
+        Long userId = sessionService.validate(sessionToken);
+        return userId == null ? null : userService.getUserById(userId);
     }
 
     private static void showGuestMenu() {
@@ -155,9 +245,16 @@ public class FinanceManager {
         String email = scanner.nextLine();
         System.out.print("Введите пароль: ");
         String password = scanner.nextLine();
-        User user = userService.loginUser(email, password);
-        if (user != null) {
-            currentUser = user;
+        User user = userService.loginUser(email, password, "console");
+        if (user != null && user.isBlocked()) {
+            System.out.println("Аккаунт заблокирован.");
+        } else if (user != null) {
+            sessionToken = sessionService.createSession(user.getId());
+            if (sessionToken == null) {
+                System.out.println("Не удалось создать сессию, попробуйте позже.");
+                return;
+            }
+            transactionRepository.prefetch(user.getId());
             System.out.println("Вход выполнен успешно, " + user.getName() + "!");
         } else {
             System.out.println("Неверный email или пароль.");
@@ -193,7 +290,7 @@ public class FinanceManager {
         }
 
         Transaction transaction = transactionService.createTransaction(
-                currentUser.getId(),
+                currentUser().getId(),
                 amount,
                 category,
                 description,
@@ -216,7 +313,7 @@ public class FinanceManager {
         System.out.print("Введите новый пароль (оставьте пустым для сохранения текущего): ");
         String newPassword = scanner.nextLine();
 
-        boolean updated = userService.updateUser(currentUser.getId(), newName, newEmail, newPassword);
+        boolean updated = userService.updateUser(currentUser().getId(), newName, newEmail, newPassword);
         if (updated) {
             System.out.println("Профиль обновлен успешно.");
         } else {
@@ -225,8 +322,9 @@ public class FinanceManager {
     }
 
     private static void deleteAccount() {
-        if (userService.deleteUser(currentUser.getId())) {
-            currentUser = null;
+        if (userService.deleteUser(currentUser().getId())) {
+            sessionService.invalidate(sessionToken);
+            sessionToken = null;
             System.out.println("Аккаунт успешно удален.");
         } else {
             System.out.println("Не удалось удалить аккаунт.");
@@ -244,7 +342,56 @@ public class FinanceManager {
             return;
         }
         scanner.nextLine(); // consume newline
-        budgetService.createBudget(currentUser.getId(), budget, YearMonth.now());
+        System.out.print("Период: 1 - месяц, 2 - неделя, 3 - две недели, 4 - последние N дней (Enter - месяц): ");
+        String periodChoice = scanner.nextLine().trim();
+        if (!periodChoice.isEmpty() && !periodChoice.equals("1")) {
+            setPeriodBudget(budget, periodChoice);
+            return;
+        }
+        System.out.print("Категория (Enter - на все расходы): ");
+        String category = scanner.nextLine().trim();
+        if (category.isEmpty()) {
+            budgetService.createBudget(currentUser().getId(), budget, YearMonth.now());
+        } else {
+            System.out.print("Родительская категория (Enter - нет): ");
+            String parent = scanner.nextLine().trim();
+            if (!parent.isEmpty() && !categoryBudgetService.setParentCategory(currentUser().getId(), category, parent)) {
+                System.out.println("Нельзя вложить категорию саму в себя.");
+                return;
+            }
+            budgetService.createBudget(currentUser().getId(), budget, YearMonth.now(), category);
+        }
+        System.out.println("Бюджет установлен успешно.");
+    }
+
+    private static void setPeriodBudget(double amount, String periodChoice) {
+        BudgetPeriodType type;
+        int windowDays = 0;
+        switch (periodChoice) {
+            case "2":
+                type = BudgetPeriodType.WEEKLY;
+                break;
+            case "3":
+                type = BudgetPeriodType.BIWEEKLY;
+                break;
+            case "4":
+                type = BudgetPeriodType.ROLLING;
+                System.out.print("Число дней (до " + BudgetService.MAX_WINDOW_DAYS + "): ");
+                try {
+                    windowDays = Integer.parseInt(scanner.nextLine().trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("Неверный формат числа.");
+                    return;
+                }
+                break;
+            default:
+                System.out.println("Неверный выбор.");
+                return;
+        }
+        if (budgetService.createPeriodBudget(currentUser().getId(), amount, type, LocalDate.now(), windowDays) == null) {
+            System.out.println("Не удалось установить бюджет.");
+            return;
+        }
         System.out.println("Бюджет установлен успешно.");
     }
 
@@ -267,12 +414,30 @@ public class FinanceManager {
             System.out.println("Неверный формат даты.");
             return;
         }
-        goalService.createGoal(currentUser.getId(), "Цель накопления", targetAmount, deadline);
+        Goal goal = goalService.createGoal(currentUser().getId(), "Цель накопления", targetAmount, deadline);
+        if (goal == null) {
+            System.out.println("Не удалось установить цель.");
+            return;
+        }
         System.out.println("Цель установлена успешно.");
+        System.out.print("Какой процент доходов откладывать в цель (Enter - не откладывать): ");
+        String percent = scanner.nextLine().trim();
+        if (percent.isEmpty()) {
+            return;
+        }
+        try {
+            if (goalFundingService.addRule(currentUser().getId(), goal.getId(), Double.parseDouble(percent)) != null) {
+                System.out.println("Правило пополнения добавлено.");
+            } else {
+                System.out.println("Не удалось добавить правило: сумма процентов не должна превышать 100.");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Неверный формат процента.");
+        }
     }
 
     private static void showTransactions() {
-        List<Transaction> transactions = transactionService.getAllTransactionsByUserId(currentUser.getId());
+        List<Transaction> transactions = transactionService.getAllTransactionsByUserId(currentUser().getId());
         for (Transaction transaction : transactions) {
             System.out.println(transaction);
         }
@@ -288,20 +453,39 @@ public class FinanceManager {
                 .withSecond(59);
 
         // Рассчитываем общий доход и общие расходы за текущий месяц
-        double totalIncome = transactionService.calculateTotalIncome(currentUser.getId(), startOfMonth, endOfMonth);
-        double totalExpenses = transactionService.calculateTotalExpenses(currentUser.getId(), startOfMonth, endOfMonth);
+        Long userId = currentUser().getId();
+        double totalIncome = transactionService.calculateTotalIncome(userId, startOfMonth, endOfMonth);
+        double totalExpenses = transactionService.calculateTotalExpenses(userId, startOfMonth, endOfMonth);
 
         // Вычисляем текущий баланс
-        double balance = transactionService.calculateBalance(currentUser.getId());
+        double balance = transactionService.calculateBalance(userId);
 
         // Выводим результаты
         System.out.println("Суммарный доход за месяц: " + totalIncome);
         System.out.println("Суммарные расходы за месяц: " + totalExpenses);
         System.out.println("Текущий баланс: " + balance);
+        List<BudgetStatus> statuses = new ArrayList<>(categoryBudgetService.evaluate(userId, YearMonth.now()));
+        statuses.addAll(periodBudgetService.evaluate(userId));
+        for (BudgetStatus status : statuses) {
+            System.out.println("Бюджет " + (status.getCategory() != null ? status.getCategory() : "на все расходы")
+                    + " с " + status.getPeriodStart() + " по " + status.getPeriodEnd() + ": "
+                    + status.getSpent() + " из " + status.getAmount() + (status.isExceeded() ? " - превышен" : ""));
+        }
+        BudgetForecast budgetForecast = budgetForecastService.getForecast(userId);
+        System.out.println("Прогноз расходов на конец месяца: " + Math.round(budgetForecast.getProjected()));
+        if (budgetForecast.getOverrun() > 0) {
+            System.out.println("При текущем темпе бюджет будет превышен на " + Math.round(budgetForecast.getOverrun()));
+        }
+        for (GoalForecast forecast : goalForecastService.getForecasts(userId)) {
+            System.out.println("Цель " + forecast.getGoalId() + ": осталось " + forecast.getRemainingAmount()
+                    + ", ожидаемая дата " + (forecast.getExpectedDate() != null ? forecast.getExpectedDate() : "не определена")
+                    + ", вероятность успеть к сроку " + Math.round(forecast.getProbabilityByDeadline() * 100) + "%");
+        }
     }
 
     private static void logout() {
-        currentUser = null;
+        sessionService.invalidate(sessionToken);
+        sessionToken = null;
         System.out.println("Вы вышли из аккаунта.");
     }
 
@@ -313,7 +497,11 @@ public class FinanceManager {
             System.out.println("2. Просмотреть транзакции пользователя");
             System.out.println("3. Заблокировать пользователя");
             System.out.println("4. Удалить пользователя");
-            System.out.println("5. Вернуться в основное меню");
+            System.out.println("5. Найти пользователя");
+            System.out.println("6. Сводный отчёт по всем пользователям");
+            System.out.println("7. Пересчитать прогнозы целей");
+            System.out.println("8. Закрыть прошлый месяц");
+            System.out.println("9. Вернуться в основное меню");
             System.out.print("Выберите действие: ");
             String choice = scanner.nextLine();
 
@@ -331,6 +519,18 @@ public class FinanceManager {
                     deleteUser();
                     break;
                 case "5":
+                    searchUsers();
+                    break;
+                case "6":
+                    showAdminReport();
+                    break;
+                case "7":
+                    System.out.println("Пересчитано прогнозов: " + goalForecastService.refreshAll());
+                    break;
+                case "8":
+                    closeMonth();
+                    break;
+                case "9":
                     return; // Выход в главное меню
                 default:
                     System.out.println("Неверный выбор.");
@@ -339,12 +539,62 @@ public class FinanceManager {
     }
 
     private static void viewAllUsers() {
-        List<User> users = adminService.getUsers();
+        System.out.print("Фильтр по началу email (оставьте пустым для всех): ");
+        String emailPrefix = scanner.nextLine().trim();
+        UserFilter filter = new UserFilter(null, null, null, emailPrefix.isEmpty() ? null : emailPrefix);
+        String cursor = null;
+        do {
+            UserPage page = adminService.getUsersPage(filter, cursor, USERS_PAGE_SIZE);
+            for (User user : page.getUsers()) {
+                System.out.println("ID: " + user.getId() + ", Имя: " + user.getName() + ", Email: " + user.getEmail() + ", Заблокирован: " + user.isBlocked());
+            }
+            cursor = page.getNextCursor();
+            if (cursor != null) {
+                System.out.print("Enter - следующая страница, q - выход: ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    return;
+                }
+            }
+        } while (cursor != null);
+    }
+
+    private static void searchUsers() {
+        System.out.print("Введите часть имени или email: ");
+        String query = scanner.nextLine();
+        List<User> users = adminService.searchUsers(query, USERS_PAGE_SIZE);
+        if (users.isEmpty()) {
+            System.out.println("Пользователи не найдены.");
+        }
         for (User user : users) {
             System.out.println("ID: " + user.getId() + ", Имя: " + user.getName() + ", Email: " + user.getEmail() + ", Заблокирован: " + user.isBlocked());
         }
     }
 
+    private static void showAdminReport() {
+        YearMonth to = YearMonth.now();
+        YearMonth from = to.minusMonths(11);
+        ReportTask task = reportService.startAdminReport(from, to, REPORT_TOP_SPENDERS);
+        System.out.println("Отчёт за " + from + " - " + to + " считается...");
+        AdminReport report = task.join();
+        System.out.println("Доходы по месяцам: " + report.getIncomeByMonth());
+        System.out.println("Расходы по месяцам: " + report.getExpensesByMonth());
+        System.out.println("Расходы по категориям: " + report.getExpensesByCategory());
+        for (AdminReport.SpenderTotal spender : report.getTopSpenders()) {
+            System.out.println("ID: " + spender.getUserId() + ", Расходы: " + spender.getTotal());
+        }
+    }
+
+    private static void closeMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        MonthCloseResult result = monthCloseService.closeMonth(month);
+        if (result.getClosedPartitions() == 0) {
+            System.out.println("Месяц " + month + " уже закрыт.");
+            return;
+        }
+        System.out.println("Месяц " + month + " закрыт. Пользователей: " + result.getUsers()
+                + ", превышено бюджетов: " + result.getExceededBudgets());
+    }
+
     private static void viewUserTransactions() {
         System.out.print("Введите ID пользователя: ");
         long userId = Long.parseLong(scanner.nextLine()); // Преобразуем строку в long
@@ -372,7 +622,7 @@ public class FinanceManager {
         }
 
         // Проверка, является ли текущий пользователь администратором
-        if (!currentUser.isAdmin()) {
+        if (!currentUser().isAdmin()) {
             System.out.println("У вас недостаточно прав для удаления пользователя.");
             return;
         }
@@ -0,0 +1,24 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class AdminReport {
+    private Map<String, Double> expensesByCategory;
+    private Map<YearMonth, Double> incomeByMonth;
+    private Map<YearMonth, Double> expensesByMonth;
+    private List<SpenderTotal> topSpenders;   // по убыванию расходов
+
+    @Data
+    @AllArgsConstructor
+    public static class SpenderTotal {
+        private Long userId;
+        private double total;
+    }
+}
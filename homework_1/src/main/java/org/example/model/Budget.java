@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
 
 @Data
@@ -15,5 +16,10 @@ public class Budget {
     private Long userId;
     private double amount;
     private YearMonth period;
+    private String category;   // null - бюджет на все расходы месяца
+    private BudgetPeriodType periodType;   // null - MONTHLY
+    private LocalDate startDate;           // начало первого периода для WEEKLY и BIWEEKLY
+    private int windowDays;                // длина периода в днях, кроме MONTHLY
+    private long version;   // номер сохранённой версии, репозиторий сверяет его при save
 
 }
@@ -0,0 +1,20 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetForecast {
+    private Long userId;
+    private String category;     // null - все расходы пользователя
+    private YearMonth period;
+    private double spent;        // потрачено с начала месяца
+    private double projected;    // ожидаемые расходы на конец месяца
+    private double budget;       // 0 - бюджет не установлен
+    private double overrun;      // на сколько прогноз превышает бюджет, 0 - укладываемся
+}
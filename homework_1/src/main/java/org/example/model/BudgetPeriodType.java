@@ -0,0 +1,8 @@
+package org.example.model;
+
+public enum BudgetPeriodType {
+    MONTHLY,    // календарный месяц, см. Budget.period
+    WEEKLY,     // 7 дней от startDate и далее подряд
+    BIWEEKLY,   // 14 дней от startDate и далее подряд
+    ROLLING     // последние windowDays дней, включая сегодня
+}
@@ -0,0 +1,23 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetStatus {
+    private Long budgetId;
+    private Long userId;
+    private String category;   // null - все расходы
+    private YearMonth period;       // null - бюджет не по календарному месяцу
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private double amount;
+    private double spent;      // расходы категории вместе с подкатегориями
+    private boolean exceeded;
+}
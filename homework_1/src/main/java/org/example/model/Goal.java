@@ -18,5 +18,6 @@ public class Goal {
     private double targetAmount;
     private double currentAmount;
     private LocalDate deadline;
+    private long version;   // номер сохранённой версии, репозиторий сверяет его при save
 
 }
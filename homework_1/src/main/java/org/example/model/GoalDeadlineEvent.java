@@ -0,0 +1,23 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoalDeadlineEvent {
+    private Long goalId;
+    private Long userId;
+    private String goalName;
+    private LocalDate deadline;
+    private Type type;
+
+    public enum Type {
+        APPROACHING, // срок скоро наступит
+        MISSED       // срок прошёл, цель не достигнута
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoalForecast {
+    private Long goalId;
+    private double remainingAmount;
+    private double monthlySavingsMean;
+    private double monthlySavingsStdDev;
+    private LocalDate expectedDate;      // медиана по сценариям, null - цель не достигается за горизонт прогноза
+    private LocalDate pessimisticDate;   // 90-й перцентиль
+    private double probabilityByDeadline;
+}
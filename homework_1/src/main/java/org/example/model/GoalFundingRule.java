@@ -0,0 +1,15 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoalFundingRule {
+    private Long id;
+    private Long userId;
+    private Long goalId;
+    private double percent;   // доля каждого дохода пользователя, которая идёт в цель, 0..100
+}
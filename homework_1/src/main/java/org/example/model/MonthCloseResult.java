@@ -0,0 +1,18 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthCloseResult {
+    private YearMonth month;
+    private int closedPartitions;    // закрыты этим запуском
+    private int skippedPartitions;   // закрыты раньше, по контрольной точке
+    private long users;
+    private long exceededBudgets;   // столько же уведомлений отправлено
+}
@@ -0,0 +1,37 @@
+package org.example.model;
+
+import lombok.Value;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Итоги закрытого месяца пользователя. После закрытия не меняются.
+ */
+@Value
+public class MonthlySummary {
+    Long userId;
+    YearMonth month;
+    double income;
+    double expenses;
+    long transactionCount;
+    double budget;              // 0 - бюджет не установлен
+    boolean budgetExceeded;
+    Map<String, Double> expensesByCategory;
+
+    public MonthlySummary(Long userId, YearMonth month, double income, double expenses, long transactionCount,
+                          double budget, boolean budgetExceeded, Map<String, Double> expensesByCategory) {
+        this.userId = userId;
+        this.month = month;
+        this.income = income;
+        this.expenses = expenses;
+        this.transactionCount = transactionCount;
+        this.budget = budget;
+        this.budgetExceeded = budgetExceeded;
+        this.expensesByCategory = Map.copyOf(expensesByCategory);
+    }
+
+    public double getBalance() {
+        return income - expenses;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Session {
+    private final String token;
+    private final Long userId;
+    private final long createdAt;
+    private volatile long lastAccessAt;
+}
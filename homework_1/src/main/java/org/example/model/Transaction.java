@@ -17,4 +17,5 @@ public class Transaction {
     private String description;
     private LocalDateTime date;
     private TransactionType type; // Добавляем поле типа TransactionType
+    private long version;   // номер сохранённой версии, репозиторий сверяет его при save
 }
\ No newline at end of file
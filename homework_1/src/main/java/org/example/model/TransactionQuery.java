@@ -0,0 +1,35 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Условия выборки транзакций. Незаданные поля не ограничивают выборку.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionQuery {
+    private Long userId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private TransactionType type;
+    private Set<String> categories;
+    private Double minAmount;
+    private Double maxAmount;
+    private String text;
+    private SortField sortBy;
+    private boolean descending;
+    private Integer limit;
+
+    public enum SortField {
+        DATE,
+        AMOUNT
+    }
+}
@@ -14,4 +14,9 @@ public class User {
     private String password;
     private boolean isAdmin;
     private boolean isBlocked;
+    private long version;   // номер сохранённой версии, репозиторий сверяет его при save
+
+    public User(Long id, String name, String email, String password, boolean isAdmin, boolean isBlocked) {
+        this(id, name, email, password, isAdmin, isBlocked, 0);
+    }
 }
\ No newline at end of file
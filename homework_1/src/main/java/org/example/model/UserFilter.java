@@ -0,0 +1,15 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFilter {
+    private Boolean blocked;     // null - не фильтровать
+    private Boolean admin;       // null - не фильтровать
+    private String namePrefix;
+    private String emailPrefix;
+}
@@ -0,0 +1,13 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserPage {
+    private List<User> users;
+    private String nextCursor;   // email последнего пользователя страницы, null - страниц больше нет
+}
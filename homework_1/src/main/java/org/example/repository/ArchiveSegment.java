@@ -0,0 +1,293 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Архивный формат старых транзакций пользователя. Строки упорядочены по дате и разбиты на блоки по BLOCK_ROWS:
+ * дата хранится разностью с предыдущей строкой, сумма - varint в копейках, категория - номером в словаре архива,
+ * описания блока сжаты вместе. Для каждого блока в индексе лежат min/max даты и суммы, поэтому чтение
+ * по диапазону пропускает блоки целиком и распаковывает описания только нужных.
+ * Формат читается по абсолютным позициям прямо из буфера сегмента, без разбора целиком.
+ *
+ * Заголовок: MAGIC, число блоков, число строк, смещение словаря, смещение индекса.
+ */
+public final class ArchiveSegment {
+    static final int BLOCK_ROWS = 1024;
+    private static final int MAGIC = 0x54415231;   // "TAR1"
+    private static final int HEADER_BYTES = 20;
+    // Запись индекса: смещение строк, число строк, смещение, длина и исходная длина описаний,
+    // min/max даты, min/max суммы
+    private static final int INDEX_ENTRY_BYTES = 5 * 4 + 4 * 8;
+    private static final long UNITS_PER_AMOUNT = 100;
+    private static final long MAX_UNITS = 1L << 60;
+    private static final Comparator<Transaction> ORDER = Comparator
+            .comparingLong((Transaction transaction) -> transaction.getDate().toEpochSecond(ZoneOffset.UTC))
+            .thenComparing(Transaction::getId);
+
+    private final ByteBuffer buffer;
+    private final int blockCount;
+    private final int rowCount;
+    private final int indexOffset;
+    private final String[] categories;
+
+    public ArchiveSegment(ByteBuffer buffer) {
+        this.buffer = buffer;
+        SegmentReader header = new SegmentReader(buffer, 0);
+        if (header.readInt() != MAGIC) {
+            throw new IllegalStateException("Not an archive segment");
+        }
+        blockCount = header.readInt();
+        rowCount = header.readInt();
+        int dictionaryOffset = header.readInt();
+        indexOffset = header.readInt();
+        SegmentReader dictionary = new SegmentReader(buffer, dictionaryOffset);
+        categories = new String[(int) dictionary.readVarint()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = dictionary.readString();
+        }
+    }
+
+    /**
+     * Кодирует транзакции в архив. У всех транзакций должна быть дата.
+     */
+    public static byte[] encode(List<Transaction> transactions) {
+        List<Transaction> rows = new ArrayList<>(transactions);
+        for (Transaction row : rows) {
+            if (row.getId() == null || row.getDate() == null) {
+                throw new IllegalArgumentException("Archived transactions need an ID and a date");
+            }
+        }
+        rows.sort(ORDER);
+        int blocks = (rows.size() + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        SegmentWriter out = new SegmentWriter();
+        out.writeInt(MAGIC);
+        out.writeInt(blocks);
+        out.writeInt(rows.size());
+        out.writeInt(0);
+        out.writeInt(0);
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        SegmentWriter index = new SegmentWriter();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            for (int from = 0; from < rows.size(); from += BLOCK_ROWS) {
+                List<Transaction> block = rows.subList(from, Math.min(rows.size(), from + BLOCK_ROWS));
+                writeBlock(block, out, index, dictionary, names, deflater);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        int dictionaryOffset = out.size();
+        out.writeVarint(names.size());
+        for (String name : names) {
+            out.writeString(name);
+        }
+        int indexOffset = out.size();
+        byte[] entries = index.toByteArray();
+        out.writeBytes(entries, 0, entries.length);
+        out.putInt(12, dictionaryOffset);
+        out.putInt(16, indexOffset);
+        return out.toByteArray();
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Сколько блоков пересекается с диапазоном, то есть сколько придётся читать.
+     */
+    public int countBlocks(long fromEpochSecond, long toEpochSecond, double minAmount, double maxAmount) {
+        int count = 0;
+        for (int block = 0; block < blockCount; block++) {
+            if (overlaps(block, fromEpochSecond, toEpochSecond, minAmount, maxAmount)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Транзакции с датой в [fromEpochSecond, toEpochSecond] и суммой в [minAmount, maxAmount] по порядку дат.
+     */
+    public List<Transaction> read(long userId, long fromEpochSecond, long toEpochSecond, double minAmount, double maxAmount) {
+        List<Transaction> found = new ArrayList<>();
+        for (int block = 0; block < blockCount; block++) {
+            if (overlaps(block, fromEpochSecond, toEpochSecond, minAmount, maxAmount)) {
+                readBlock(userId, block, fromEpochSecond, toEpochSecond, minAmount, maxAmount, found);
+            }
+        }
+        return found;
+    }
+
+    public List<Transaction> readAll(long userId) {
+        return read(userId, Long.MIN_VALUE, Long.MAX_VALUE, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    private static void writeBlock(List<Transaction> block, SegmentWriter out, SegmentWriter index,
+                                   Map<String, Integer> dictionary, List<String> names, Deflater deflater) {
+        long minEpochSecond = block.get(0).getDate().toEpochSecond(ZoneOffset.UTC);
+        long maxEpochSecond = block.get(block.size() - 1).getDate().toEpochSecond(ZoneOffset.UTC);
+        double minAmount = Double.POSITIVE_INFINITY;
+        double maxAmount = Double.NEGATIVE_INFINITY;
+        int rowsOffset = out.size();
+        long previousEpochSecond = minEpochSecond;
+        long previousId = 0;
+        SegmentWriter descriptions = new SegmentWriter();
+        for (Transaction row : block) {
+            long epochSecond = row.getDate().toEpochSecond(ZoneOffset.UTC);
+            out.writeVarint(epochSecond - previousEpochSecond);
+            out.writeVarint(row.getDate().getNano());
+            out.writeZigzag(row.getId() - previousId);
+            out.writeVarint(row.getVersion());
+            writeAmount(out, row.getAmount());
+            out.writeVarint(row.getCategory() == null ? 0 : dictionary.computeIfAbsent(row.getCategory(), name -> {
+                names.add(name);
+                return names.size() - 1;
+            }) + 1L);
+            out.writeByte(row.getType() == null ? 0 : row.getType().ordinal() + 1);
+            descriptions.writeString(row.getDescription());
+            previousEpochSecond = epochSecond;
+            previousId = row.getId();
+            minAmount = Math.min(minAmount, row.getAmount());
+            maxAmount = Math.max(maxAmount, row.getAmount());
+        }
+
+        byte[] raw = descriptions.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int descriptionsOffset = out.size();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.writeBytes(chunk, 0, length);
+        }
+
+        index.writeInt(rowsOffset);
+        index.writeInt(block.size());
+        index.writeInt(descriptionsOffset);
+        index.writeInt(out.size() - descriptionsOffset);
+        index.writeInt(raw.length);
+        index.writeLong(minEpochSecond);
+        index.writeLong(maxEpochSecond);
+        index.writeDouble(minAmount);
+        index.writeDouble(maxAmount);
+    }
+
+    // Сумма с точностью до копейки - zigzag(копейки) << 1, иначе признак 1 и double целиком
+    private static void writeAmount(SegmentWriter out, double amount) {
+        long units = Math.round(amount * UNITS_PER_AMOUNT);
+        if ((double) units / UNITS_PER_AMOUNT == amount && Math.abs(units) < MAX_UNITS) {
+            out.writeVarint(((units << 1) ^ (units >> 63)) << 1);
+        } else {
+            out.writeVarint(1);
+            out.writeDouble(amount);
+        }
+    }
+
+    private static double readAmount(SegmentReader in) {
+        long encoded = in.readVarint();
+        if ((encoded & 1) != 0) {
+            return in.readDouble();
+        }
+        long zigzag = encoded >>> 1;
+        return (double) ((zigzag >>> 1) ^ -(zigzag & 1)) / UNITS_PER_AMOUNT;
+    }
+
+    private boolean overlaps(int block, long fromEpochSecond, long toEpochSecond, double minAmount, double maxAmount) {
+        int entry = indexOffset + block * INDEX_ENTRY_BYTES + 5 * 4;
+        return buffer.getLong(entry) <= toEpochSecond && buffer.getLong(entry + 8) >= fromEpochSecond
+                && buffer.getDouble(entry + 16) <= maxAmount && buffer.getDouble(entry + 24) >= minAmount;
+    }
+
+    private void readBlock(long userId, int block, long fromEpochSecond, long toEpochSecond, double minAmount,
+                           double maxAmount, List<Transaction> found) {
+        SegmentReader entry = new SegmentReader(buffer, indexOffset + block * INDEX_ENTRY_BYTES);
+        SegmentReader in = new SegmentReader(buffer, entry.readInt());
+        int rows = entry.readInt();
+        int descriptionsOffset = entry.readInt();
+        int descriptionsLength = entry.readInt();
+        int descriptionsRawLength = entry.readInt();
+        long epochSecond = entry.readLong();
+
+        // Сначала колонки без описаний: блок без подходящих строк не распаковывается
+        Transaction[] matched = new Transaction[rows];
+        int matches = 0;
+        long id = 0;
+        for (int row = 0; row < rows; row++) {
+            epochSecond += in.readVarint();
+            int nano = (int) in.readVarint();
+            id += in.readZigzag();
+            long version = in.readVarint();
+            double amount = readAmount(in);
+            int category = (int) in.readVarint() - 1;
+            int type = in.readByte() - 1;
+            if (epochSecond < fromEpochSecond || epochSecond > toEpochSecond || amount < minAmount || amount > maxAmount) {
+                continue;
+            }
+            matched[row] = new Transaction(id, userId, amount, category < 0 ? null : categories[category], null,
+                    LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC),
+                    type < 0 ? null : TransactionType.values()[type], version);
+            matches++;
+        }
+        if (matches == 0) {
+            return;
+        }
+        SegmentReader descriptions = new SegmentReader(ByteBuffer.wrap(inflate(descriptionsOffset, descriptionsLength,
+                descriptionsRawLength)), 0);
+        for (int row = 0; row < rows; row++) {
+            String description = descriptions.readString();
+            if (matched[row] != null) {
+                matched[row].setDescription(description);
+                found.add(matched[row]);
+            }
+        }
+    }
+
+    private byte[] inflate(int offset, int length, int rawLength) {
+        // Лишний нулевой байт в конце входа нужен Inflater в режиме nowrap
+        byte[] compressed = new byte[length + 1];
+        buffer.get(offset, compressed, 0, length);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < rawLength) {
+                int inflated = inflater.inflate(raw, read, rawLength - read);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != rawLength) {
+                throw new IllegalStateException("Truncated description block");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted description block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -5,49 +5,110 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import lombok.Data;
 import org.example.model.Budget;
+import org.example.util.IdGenerator;
+import org.example.util.LongObjectMap;
 
-@Data
 public class BudgetRepository {
-    private Map<Long, Budget> budgets = new HashMap<>();
-    private Long budgetId = 0L;
+    private final LongObjectMap<Budget> budgets = new LongObjectMap<>();
+    // Родительские категории по пользователям: по ним бюджет категории учитывает подкатегории
+    private final LongObjectMap<Map<String, String>> parentsByUser = new LongObjectMap<>();
+    private final IdGenerator idGenerator;
 
-    public Budget save(Budget budget) {
+    public BudgetRepository() {
+        this(IdGenerator.shared());
+    }
+
+    public BudgetRepository(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Сохраняет копию сущности. Для уже сохранённой сущности версия должна совпадать с текущей,
+     * иначе OptimisticLockException; после записи версия увеличивается.
+     */
+    public synchronized Budget save(Budget budget) {
         if (budget == null) {
             throw new IllegalArgumentException("Budget cannot be null");
         }
         if (budget.getId() == null) {
-            budget.setId(++budgetId);
+            budget.setId(idGenerator.nextId());
+        }
+        Budget stored = budgets.get(budget.getId());
+        if (stored != null && stored.getVersion() != budget.getVersion()) {
+            throw new OptimisticLockException("Budget", budget.getId(), budget.getVersion(), stored.getVersion());
         }
-        budgets.put(budget.getId(), budget);
+        budget.setVersion(budget.getVersion() + 1);
+        budgets.put(budget.getId(), copy(budget));
         return budget;
     }
 
-    public Budget findById(Long id) {
+    public synchronized Budget findById(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        return budgets.get(id);
+        Budget stored = budgets.get(id);
+        return stored == null ? null : copy(stored);
     }
 
-    public List<Budget> findByUserId(Long userId) {
+    public synchronized List<Budget> findByUserId(Long userId) {
         if (userId == null) {
             throw new IllegalArgumentException("User ID cannot be null");
         }
         return budgets.values().stream()
                 .filter(b -> b.getUserId().equals(userId))
+                .map(BudgetRepository::copy)
                 .collect(Collectors.toList());
     }
 
-    public List<Budget> findAll() {
-        return new ArrayList<>(budgets.values());
+    public synchronized List<Budget> findAll() {
+        List<Budget> found = new ArrayList<>(budgets.size());
+        for (Budget stored : budgets.values()) {
+            found.add(copy(stored));
+        }
+        return found;
     }
 
-    public void delete(Long id) {
+    public synchronized void delete(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
         budgets.remove(id);
     }
+
+    /**
+     * Запоминает родителя категории пользователя, parent = null - категория верхнего уровня.
+     */
+    public synchronized void saveCategoryParent(Long userId, String category, String parent) {
+        if (userId == null || category == null) {
+            throw new IllegalArgumentException("User ID and category cannot be null");
+        }
+        Map<String, String> parents = parentsByUser.computeIfAbsent(userId, id -> new HashMap<>());
+        if (parent == null) {
+            parents.remove(category);
+        } else {
+            parents.put(category, parent);
+        }
+    }
+
+    public synchronized Map<String, String> findCategoryParents(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        Map<String, String> parents = parentsByUser.get(userId);
+        return parents == null ? new HashMap<>() : new HashMap<>(parents);
+    }
+
+    public synchronized Map<Long, Map<String, String>> findAllCategoryParents() {
+        Map<Long, Map<String, String>> found = new HashMap<>();
+        for (long userId : parentsByUser.keys()) {
+            found.put(userId, new HashMap<>(parentsByUser.get(userId)));
+        }
+        return found;
+    }
+
+    private static Budget copy(Budget budget) {
+        return new Budget(budget.getId(), budget.getUserId(), budget.getAmount(), budget.getPeriod(), budget.getCategory(),
+                budget.getPeriodType(), budget.getStartDate(), budget.getWindowDays(), budget.getVersion());
+    }
 }
@@ -0,0 +1,47 @@
+package org.example.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Словарь категорий: каждой строке присваивается плотный номер, номера не переиспользуются.
+ * Номера выдаёт писатель, читать имена можно из любого потока: категорий немного, список копируется при записи.
+ */
+public class CategoryDictionary {
+    private final Map<String, Integer> idByName = new ConcurrentHashMap<>();
+    private final List<String> names = new CopyOnWriteArrayList<>();
+
+    public int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = idByName.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            idByName.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Номер категории или -1, если такая категория не встречалась.
+     */
+    public int find(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = idByName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
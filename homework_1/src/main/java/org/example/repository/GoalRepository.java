@@ -1,53 +1,79 @@
 package org.example.repository;
 
 import org.example.model.Goal;
-import lombok.Data;
+import org.example.util.IdGenerator;
+import org.example.util.LongObjectMap;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
-@Data
 public class GoalRepository {
-    private Map<Long, Goal> goals = new HashMap<>();
-    private Long goalId = 0L;
+    private final LongObjectMap<Goal> goals = new LongObjectMap<>();
+    private final IdGenerator idGenerator;
 
-    public Goal save(Goal goal) {
+    public GoalRepository() {
+        this(IdGenerator.shared());
+    }
+
+    public GoalRepository(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Сохраняет копию сущности. Для уже сохранённой сущности версия должна совпадать с текущей,
+     * иначе OptimisticLockException; после записи версия увеличивается.
+     */
+    public synchronized Goal save(Goal goal) {
         if (goal == null) {
-            throw new IllegalArgumentException("Budget cannot be null");
+            throw new IllegalArgumentException("Goal cannot be null");
         }
         if (goal.getId() == null) {
-            goal.setId(++goalId);
+            goal.setId(idGenerator.nextId());
         }
-        goals.put(goal.getId(), goal);
+        Goal stored = goals.get(goal.getId());
+        if (stored != null && stored.getVersion() != goal.getVersion()) {
+            throw new OptimisticLockException("Goal", goal.getId(), goal.getVersion(), stored.getVersion());
+        }
+        goal.setVersion(goal.getVersion() + 1);
+        goals.put(goal.getId(), copy(goal));
         return goal;
     }
 
-    public Goal findById(Long id) {
+    public synchronized Goal findById(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        return goals.get(id);
+        Goal stored = goals.get(id);
+        return stored == null ? null : copy(stored);
     }
 
-    public List<Goal> findAll() {
-        return new ArrayList<>(goals.values());
+    public synchronized List<Goal> findAll() {
+        List<Goal> found = new ArrayList<>(goals.size());
+        for (Goal stored : goals.values()) {
+            found.add(copy(stored));
+        }
+        return found;
     }
 
-    public List<Goal> findByUserId(Long userId) {
+    public synchronized List<Goal> findByUserId(Long userId) {
         if (userId == null) {
             throw new IllegalArgumentException("User ID cannot be null");
         }
         return goals.values().stream()
                 .filter(b -> b.getUserId().equals(userId))
+                .map(GoalRepository::copy)
                 .collect(Collectors.toList());
     }
 
-    public void delete(Long id) {
+    public synchronized void delete(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
         goals.remove(id);
     }
-}
\ No newline at end of file
+
+    private static Goal copy(Goal goal) {
+        return new Goal(goal.getId(), goal.getUserId(), goal.getName(), goal.getTargetAmount(), goal.getCurrentAmount(),
+                goal.getDeadline(), goal.getVersion());
+    }
+}
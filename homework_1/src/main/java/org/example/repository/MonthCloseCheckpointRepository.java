@@ -0,0 +1,88 @@
+package org.example.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контрольные точки закрытия месяца: какие части пользователей уже закрыты.
+ * С файлом каждая отметка дописывается строкой "2025-06 17" и сбрасывается на диск до возврата,
+ * поэтому после падения процесса закрытие продолжается с незакрытых частей.
+ */
+public class MonthCloseCheckpointRepository {
+    private final Path file;
+    private final Map<YearMonth, BitSet> done = new HashMap<>();
+
+    /**
+     * Отметки только в памяти.
+     */
+    public MonthCloseCheckpointRepository() {
+        this.file = null;
+    }
+
+    public MonthCloseCheckpointRepository(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Checkpoint file cannot be null");
+        }
+        this.file = file;
+        if (Files.exists(file)) {
+            load();
+        }
+    }
+
+    /**
+     * Пишутся ли отметки в файл.
+     */
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    public synchronized void markDone(YearMonth month, int partition) {
+        if (month == null || partition < 0) {
+            throw new IllegalArgumentException("Invalid checkpoint");
+        }
+        if (done.computeIfAbsent(month, m -> new BitSet()).get(partition)) {
+            return;
+        }
+        if (file != null) {
+            try {
+                Files.writeString(file, month + " " + partition + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        done.get(month).set(partition);
+    }
+
+    /**
+     * Закрытые части месяца (копия).
+     */
+    public synchronized BitSet completed(YearMonth month) {
+        BitSet partitions = done.get(month);
+        return partitions == null ? new BitSet() : (BitSet) partitions.clone();
+    }
+
+    private void load() {
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            // Строка без перевода строки в конце недописана при падении, её часть не считается закрытой
+            String[] lines = content.split("\n", -1);
+            for (int i = 0; i < lines.length - 1; i++) {
+                String[] parts = lines[i].trim().split(" ");
+                if (parts.length == 2) {
+                    done.computeIfAbsent(YearMonth.parse(parts[0]), m -> new BitSet()).set(Integer.parseInt(parts[1]));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
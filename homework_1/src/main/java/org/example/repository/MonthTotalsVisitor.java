@@ -0,0 +1,11 @@
+package org.example.repository;
+
+/**
+ * Получает итоги закрытого месяца без создания объектов. monthIndex - номер месяца из
+ * {@link org.example.util.EpochMonths}, categoryIds - номера категорий архива итогов.
+ * Массивы принадлежат архиву: их можно только читать и только внутри вызова.
+ */
+@FunctionalInterface
+public interface MonthTotalsVisitor {
+    void visit(int monthIndex, double income, double expenses, long count, int[] categoryIds, double[] categoryAmounts);
+}
@@ -0,0 +1,401 @@
+package org.example.repository;
+
+import org.example.model.MonthlySummary;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.util.EpochMonths;
+import org.example.util.LongObjectMap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Архив итогов закрытых месяцев. Итог пишется один раз: повторная запись того же пользователя и месяца пропускается,
+ * поэтому перезапуск закрытия месяца не меняет уже сохранённые итоги.
+ * Итоги пользователя лежат в примитивных массивах по месяцам подряд, расходы по категориям - парами массивов
+ * номеров и сумм, поэтому статистика за годы стоит O(месяцев) и не читает транзакции.
+ * С файлом новые итоги дописываются в конец двоичными записями до возврата из saveAll и читаются при создании.
+ * Транзакции закрытого месяца, добавленные или исправленные позже, не теряются: они записываются
+ * поправками к итогу месяца (adjust), в файле - такими же записями с флагом ADJUSTMENT.
+ */
+public class MonthlySummaryRepository {
+    private static final byte PRESENT = 1;
+    private static final byte EXCEEDED = 2;
+    // Флаги записи в файле; младший бит совпадает с прежним полем boolean «бюджет превышен»
+    private static final byte RECORD_EXCEEDED = 1;
+    private static final byte RECORD_ADJUSTMENT = 2;
+
+    private final Path file;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final LongObjectMap<UserMonths> byUser = new LongObjectMap<>();
+    private final Map<YearMonth, Integer> countByMonth = new HashMap<>();
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Архив только в памяти.
+     */
+    public MonthlySummaryRepository() {
+        this.file = null;
+    }
+
+    public MonthlySummaryRepository(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Archive file cannot be null");
+        }
+        this.file = file;
+        if (Files.exists(file)) {
+            load();
+        }
+    }
+
+    /**
+     * Пишутся ли итоги в файл.
+     */
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    /**
+     * Сохраняет итоги пачкой под одной блокировкой. Возвращает число новых.
+     */
+    public synchronized int saveAll(List<MonthlySummary> summaries) {
+        if (summaries == null) {
+            throw new IllegalArgumentException("Summaries cannot be null");
+        }
+        List<MonthlySummary> fresh = new ArrayList<>(summaries.size());
+        for (MonthlySummary summary : summaries) {
+            if (summary.getUserId() == null || summary.getMonth() == null) {
+                throw new IllegalArgumentException("Summary must have user ID and month");
+            }
+            if (find(summary.getUserId(), summary.getMonth()) == null) {
+                fresh.add(summary);
+            }
+        }
+        if (file != null && !fresh.isEmpty()) {
+            append(fresh, (byte) 0);
+        }
+        int saved = 0;
+        for (MonthlySummary summary : fresh) {
+            if (put(summary)) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Блокировка закрытия месяцев: закрытие держит её на запись от чтения транзакций до сохранения итогов,
+     * изменения транзакций - на чтение от проверки месяца до поправки. Так изменение попадает
+     * либо в транзакции, которые прочитает закрытие, либо поправкой в готовый итог.
+     */
+    public ReadWriteLock getCloseLock() {
+        return closeLock;
+    }
+
+    /**
+     * Учитывает в итоге закрытого месяца добавление (sign = 1) или удаление (sign = -1) транзакции.
+     * Возвращает false, если месяц транзакции для её пользователя не закрыт и поправка не нужна.
+     */
+    public synchronized boolean adjust(Transaction transaction, int sign) {
+        if (transaction == null || transaction.getUserId() == null || transaction.getDate() == null) {
+            throw new IllegalArgumentException("Transaction must have user ID and date");
+        }
+        YearMonth month = YearMonth.from(transaction.getDate());
+        if (!contains(transaction.getUserId(), month)) {
+            return false;
+        }
+        double amount = sign * transaction.getAmount();
+        boolean expense = transaction.getType() == TransactionType.EXPENSE;
+        Map<String, Double> byCategory = expense && transaction.getCategory() != null
+                ? Map.of(transaction.getCategory(), amount) : Map.of();
+        MonthlySummary delta = new MonthlySummary(transaction.getUserId(), month,
+                transaction.getType() == TransactionType.INCOME ? amount : 0, expense ? amount : 0, sign, 0, false, byCategory);
+        if (file != null) {
+            append(List.of(delta), RECORD_ADJUSTMENT);
+        }
+        apply(delta);
+        return true;
+    }
+
+    public synchronized MonthlySummary find(Long userId, YearMonth month) {
+        if (userId == null || month == null) {
+            throw new IllegalArgumentException("User ID and month cannot be null");
+        }
+        UserMonths months = byUser.get(userId);
+        int offset = months == null ? -1 : months.offsetOf(EpochMonths.monthIndex(month));
+        return offset < 0 ? null : toSummary(userId, months, offset);
+    }
+
+    /**
+     * Есть ли в архиве итог пользователя за месяц, то есть закрыт ли для него месяц.
+     */
+    public synchronized boolean contains(Long userId, YearMonth month) {
+        if (userId == null || month == null) {
+            throw new IllegalArgumentException("User ID and month cannot be null");
+        }
+        UserMonths months = byUser.get(userId);
+        return months != null && months.offsetOf(EpochMonths.monthIndex(month)) >= 0;
+    }
+
+    /**
+     * Итоги пользователя за месяцы [from, to] по порядку.
+     */
+    public synchronized List<MonthlySummary> findByUserId(Long userId, YearMonth from, YearMonth to) {
+        if (userId == null || from == null || to == null) {
+            throw new IllegalArgumentException("User ID and months cannot be null");
+        }
+        List<MonthlySummary> result = new ArrayList<>();
+        UserMonths months = byUser.get(userId);
+        if (months == null) {
+            return result;
+        }
+        for (int month = EpochMonths.monthIndex(from); month <= EpochMonths.monthIndex(to); month++) {
+            int offset = months.offsetOf(month);
+            if (offset >= 0) {
+                result.add(toSummary(userId, months, offset));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Передаёт посетителю итоги закрытых месяцев пользователя из [from, to] по порядку (null - без ограничения).
+     */
+    public synchronized void forEachMonth(Long userId, YearMonth from, YearMonth to, MonthTotalsVisitor visitor) {
+        if (userId == null || visitor == null) {
+            throw new IllegalArgumentException("User ID and visitor cannot be null");
+        }
+        UserMonths months = byUser.get(userId);
+        if (months == null) {
+            return;
+        }
+        int first = Math.max(0, from == null ? 0 : EpochMonths.monthIndex(from) - months.firstMonth);
+        int last = Math.min(months.length() - 1, to == null ? Integer.MAX_VALUE : EpochMonths.monthIndex(to) - months.firstMonth);
+        for (int offset = first; offset <= last; offset++) {
+            if ((months.flags[offset] & PRESENT) != 0) {
+                visitor.visit(months.firstMonth + offset, months.income[offset], months.expenses[offset],
+                        months.count[offset], months.categoryIds[offset], months.categoryAmounts[offset]);
+            }
+        }
+    }
+
+    public String getCategoryName(int categoryId) {
+        return categories.nameOf(categoryId);
+    }
+
+    public synchronized int countByMonth(YearMonth month) {
+        return countByMonth.getOrDefault(month, 0);
+    }
+
+    private boolean put(MonthlySummary summary) {
+        int month = EpochMonths.monthIndex(summary.getMonth());
+        UserMonths months = byUser.computeIfAbsent(summary.getUserId(), id -> new UserMonths(month));
+        int offset = months.ensure(month);
+        if ((months.flags[offset] & PRESENT) != 0) {
+            return false;
+        }
+        Map<String, Double> byCategory = summary.getExpensesByCategory();
+        int[] ids = new int[byCategory.size()];
+        double[] amounts = new double[ids.length];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : byCategory.entrySet()) {
+            ids[i] = categories.idOf(entry.getKey());
+            amounts[i++] = entry.getValue();
+        }
+        months.income[offset] = summary.getIncome();
+        months.expenses[offset] = summary.getExpenses();
+        months.budget[offset] = summary.getBudget();
+        months.count[offset] = summary.getTransactionCount();
+        months.categoryIds[offset] = ids;
+        months.categoryAmounts[offset] = amounts;
+        months.flags[offset] = (byte) (PRESENT | (summary.isBudgetExceeded() ? EXCEEDED : 0));
+        countByMonth.merge(summary.getMonth(), 1, Integer::sum);
+        return true;
+    }
+
+    private void apply(MonthlySummary delta) {
+        UserMonths months = byUser.get(delta.getUserId());
+        int offset = months == null ? -1 : months.offsetOf(EpochMonths.monthIndex(delta.getMonth()));
+        if (offset < 0) {
+            return;
+        }
+        months.income[offset] += delta.getIncome();
+        months.expenses[offset] += delta.getExpenses();
+        months.count[offset] += delta.getTransactionCount();
+        for (Map.Entry<String, Double> entry : delta.getExpensesByCategory().entrySet()) {
+            int id = categories.idOf(entry.getKey());
+            int[] ids = months.categoryIds[offset];
+            int i = 0;
+            while (i < ids.length && ids[i] != id) {
+                i++;
+            }
+            if (i == ids.length) {
+                months.categoryIds[offset] = Arrays.copyOf(ids, i + 1);
+                months.categoryIds[offset][i] = id;
+                months.categoryAmounts[offset] = Arrays.copyOf(months.categoryAmounts[offset], i + 1);
+            }
+            months.categoryAmounts[offset][i] += entry.getValue();
+        }
+        double budget = months.budget[offset];
+        boolean exceeded = budget > 0 && months.expenses[offset] > budget;
+        months.flags[offset] = (byte) (PRESENT | (exceeded ? EXCEEDED : 0));
+    }
+
+    private MonthlySummary toSummary(Long userId, UserMonths months, int offset) {
+        Map<String, Double> byCategory = new HashMap<>();
+        for (int i = 0; i < months.categoryIds[offset].length; i++) {
+            byCategory.put(categories.nameOf(months.categoryIds[offset][i]), months.categoryAmounts[offset][i]);
+        }
+        return new MonthlySummary(userId, EpochMonths.toYearMonth(months.firstMonth + offset), months.income[offset],
+                months.expenses[offset], months.count[offset], months.budget[offset],
+                (months.flags[offset] & EXCEEDED) != 0, byCategory);
+    }
+
+    private void append(List<MonthlySummary> summaries, byte kind) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)))) {
+            for (MonthlySummary summary : summaries) {
+                out.writeLong(summary.getUserId());
+                out.writeInt(EpochMonths.monthIndex(summary.getMonth()));
+                out.writeDouble(summary.getIncome());
+                out.writeDouble(summary.getExpenses());
+                out.writeLong(summary.getTransactionCount());
+                out.writeDouble(summary.getBudget());
+                out.writeByte(kind | (summary.isBudgetExceeded() ? RECORD_EXCEEDED : 0));
+                out.writeInt(summary.getExpensesByCategory().size());
+                for (Map.Entry<String, Double> entry : summary.getExpensesByCategory().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeDouble(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void load() {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+            DataInputStream in = new DataInputStream(buffer);
+            int complete = 0;
+            try {
+                while (buffer.available() > 0) {
+                    long userId = in.readLong();
+                    YearMonth month = EpochMonths.toYearMonth(in.readInt());
+                    double income = in.readDouble();
+                    double expenses = in.readDouble();
+                    long count = in.readLong();
+                    double budget = in.readDouble();
+                    byte flags = in.readByte();
+                    Map<String, Double> byCategory = new HashMap<>();
+                    for (int i = in.readInt(); i > 0; i--) {
+                        byCategory.put(in.readUTF(), in.readDouble());
+                    }
+                    MonthlySummary summary = new MonthlySummary(userId, month, income, expenses, count, budget,
+                            (flags & RECORD_EXCEEDED) != 0, byCategory);
+                    if ((flags & RECORD_ADJUSTMENT) != 0) {
+                        apply(summary);
+                    } else {
+                        put(summary);
+                    }
+                    complete = bytes.length - buffer.available();
+                }
+            } catch (EOFException e) {
+                // Запись недописана при падении: отрезаем её, чтобы следующие записи легли за целой
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(complete);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Месяцы пользователя подряд, с firstMonth. Пропущенные месяцы без флага PRESENT.
+     */
+    private static final class UserMonths {
+        private int firstMonth;
+        private double[] income;
+        private double[] expenses;
+        private double[] budget;
+        private long[] count;
+        private byte[] flags;
+        private int[][] categoryIds;
+        private double[][] categoryAmounts;
+
+        private UserMonths(int firstMonth) {
+            this.firstMonth = firstMonth;
+            allocate(12, 0);
+        }
+
+        private int length() {
+            return flags.length;
+        }
+
+        private int offsetOf(int month) {
+            int offset = month - firstMonth;
+            return offset >= 0 && offset < length() && (flags[offset] & PRESENT) != 0 ? offset : -1;
+        }
+
+        /**
+         * Расширяет массивы до месяца month и возвращает его смещение.
+         */
+        private int ensure(int month) {
+            if (month < firstMonth) {
+                int shift = firstMonth - month;
+                allocate(length() + shift, shift);
+                firstMonth = month;
+            } else if (month - firstMonth >= length()) {
+                allocate(Math.max(length() * 2, month - firstMonth + 1), 0);
+            }
+            return month - firstMonth;
+        }
+
+        // Новые массивы длины size, старые значения сдвигаются на shift
+        private void allocate(int size, int shift) {
+            int old = flags == null ? 0 : flags.length;
+            double[] newIncome = new double[size];
+            double[] newExpenses = new double[size];
+            double[] newBudget = new double[size];
+            long[] newCount = new long[size];
+            byte[] newFlags = new byte[size];
+            int[][] newCategoryIds = new int[size][];
+            double[][] newCategoryAmounts = new double[size][];
+            if (old > 0) {
+                System.arraycopy(income, 0, newIncome, shift, old);
+                System.arraycopy(expenses, 0, newExpenses, shift, old);
+                System.arraycopy(budget, 0, newBudget, shift, old);
+                System.arraycopy(count, 0, newCount, shift, old);
+                System.arraycopy(flags, 0, newFlags, shift, old);
+                System.arraycopy(categoryIds, 0, newCategoryIds, shift, old);
+                System.arraycopy(categoryAmounts, 0, newCategoryAmounts, shift, old);
+            }
+            income = newIncome;
+            expenses = newExpenses;
+            budget = newBudget;
+            count = newCount;
+            flags = newFlags;
+            categoryIds = newCategoryIds;
+            categoryAmounts = newCategoryAmounts;
+        }
+    }
+}
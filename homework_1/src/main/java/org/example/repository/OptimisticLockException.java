@@ -0,0 +1,10 @@
+package org.example.repository;
+
+/**
+ * Сущность изменили после того, как её прочитали: версия в save не совпала с сохранённой.
+ */
+public class OptimisticLockException extends RuntimeException {
+    public OptimisticLockException(String entity, Long id, long expectedVersion, long actualVersion) {
+        super(entity + " " + id + " was modified concurrently: expected version " + expectedVersion + ", found " + actualVersion);
+    }
+}
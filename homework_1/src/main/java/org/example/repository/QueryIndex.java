@@ -0,0 +1,13 @@
+package org.example.repository;
+
+/**
+ * Источник кандидатов, выбранный планировщиком запроса транзакций.
+ */
+public enum QueryIndex {
+    USER,
+    TEXT,
+    DATE,
+    CATEGORY,
+    AMOUNT,
+    FULL_SCAN
+}
@@ -0,0 +1,77 @@
+package org.example.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение формата {@link SegmentWriter} из буфера, в том числе отображённого в память файла.
+ * Читает по абсолютным позициям: буфер можно делить между читателями.
+ */
+final class SegmentReader {
+    private final ByteBuffer buffer;
+    private int position;
+
+    SegmentReader(ByteBuffer buffer, int position) {
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    byte readByte() {
+        return buffer.get(position++);
+    }
+
+    int readInt() {
+        int value = buffer.getInt(position);
+        position += 4;
+        return value;
+    }
+
+    long readLong() {
+        long value = buffer.getLong(position);
+        position += 8;
+        return value;
+    }
+
+    double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = buffer.get(position++);
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+    }
+
+    long readZigzag() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+        int length = (int) readVarint() - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        readBytes(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    void readBytes(byte[] into) {
+        buffer.get(position, into);
+        position += into.length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void seek(int position) {
+        this.position = position;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Растущий буфер для записи сегментов: числа big-endian, varint (LEB128) и строки UTF-8 с длиной.
+ */
+final class SegmentWriter {
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    void writeByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Беззнаковый varint: по 7 бит в байте, старший бит - продолжение.
+     */
+    void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Знаковое число через zigzag: малые по модулю значения занимают мало байт.
+     */
+    void writeZigzag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Строка как varint(длина + 1) и байты UTF-8; 0 - null.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(utf8.length + 1L);
+        writeBytes(utf8, 0, utf8.length);
+    }
+
+    void writeBytes(byte[] data, int offset, int length) {
+        ensure(length);
+        System.arraycopy(data, offset, bytes, size, length);
+        size += length;
+    }
+
+    /**
+     * Переписывает int по уже записанной позиции, например смещение, известное только в конце.
+     */
+    void putInt(int position, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[position + i] = (byte) (value >>> (24 - i * 8));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
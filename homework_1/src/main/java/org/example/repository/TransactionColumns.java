@@ -0,0 +1,109 @@
+package org.example.repository;
+
+import org.example.util.LongObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * Колоночная копия транзакций по пользователям: примитивные массивы, упорядоченные по дате, затем по id.
+ * Нужна агрегатам, которым не нужны сами объекты Transaction: обход периода - двоичный поиск начала
+ * и проход только по строкам периода. Строка находится по дате и id, поэтому при изменении и удалении
+ * передаётся дата, под которой строка была записана.
+ */
+public class TransactionColumns {
+    private final LongObjectMap<UserColumns> columnsByUser = new LongObjectMap<>();
+
+    public void put(long userId, long id, long epochSecond, double amount, int categoryId, byte type) {
+        columnsByUser.computeIfAbsent(userId, key -> new UserColumns()).put(id, epochSecond, amount, categoryId, type);
+    }
+
+    public void remove(long userId, long id, long epochSecond) {
+        UserColumns columns = columnsByUser.get(userId);
+        if (columns != null && columns.remove(id, epochSecond) && columns.size == 0) {
+            columnsByUser.remove(userId);
+        }
+    }
+
+    public void forEach(long userId, long fromEpochSecond, long toEpochSecond, TransactionVisitor visitor) {
+        UserColumns columns = columnsByUser.get(userId);
+        if (columns != null) {
+            columns.forEach(fromEpochSecond, toEpochSecond, visitor);
+        }
+    }
+
+    private static final class UserColumns {
+        private long[] ids = new long[8];
+        private long[] epochSeconds = new long[8];
+        private double[] amounts = new double[8];
+        private int[] categoryIds = new int[8];
+        private byte[] types = new byte[8];
+        private int size;
+
+        private void put(long id, long epochSecond, double amount, int categoryId, byte type) {
+            int index = lowerBound(epochSecond, id);
+            if (index == size || ids[index] != id || epochSeconds[index] != epochSecond) {
+                grow();
+                int tail = size - index;
+                System.arraycopy(ids, index, ids, index + 1, tail);
+                System.arraycopy(epochSeconds, index, epochSeconds, index + 1, tail);
+                System.arraycopy(amounts, index, amounts, index + 1, tail);
+                System.arraycopy(categoryIds, index, categoryIds, index + 1, tail);
+                System.arraycopy(types, index, types, index + 1, tail);
+                size++;
+            }
+            ids[index] = id;
+            epochSeconds[index] = epochSecond;
+            amounts[index] = amount;
+            categoryIds[index] = categoryId;
+            types[index] = type;
+        }
+
+        private boolean remove(long id, long epochSecond) {
+            int index = lowerBound(epochSecond, id);
+            if (index == size || ids[index] != id || epochSeconds[index] != epochSecond) {
+                return false;
+            }
+            int tail = size - index - 1;
+            System.arraycopy(ids, index + 1, ids, index, tail);
+            System.arraycopy(epochSeconds, index + 1, epochSeconds, index, tail);
+            System.arraycopy(amounts, index + 1, amounts, index, tail);
+            System.arraycopy(categoryIds, index + 1, categoryIds, index, tail);
+            System.arraycopy(types, index + 1, types, index, tail);
+            size--;
+            return true;
+        }
+
+        private void forEach(long fromEpochSecond, long toEpochSecond, TransactionVisitor visitor) {
+            for (int i = lowerBound(fromEpochSecond, Long.MIN_VALUE); i < size && epochSeconds[i] <= toEpochSecond; i++) {
+                visitor.visit(epochSeconds[i], amounts[i], categoryIds[i], types[i]);
+            }
+        }
+
+        // Первая строка не меньше (epochSecond, id)
+        private int lowerBound(long epochSecond, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochSeconds[middle] < epochSecond || epochSeconds[middle] == epochSecond && ids[middle] < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void grow() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+    }
+}
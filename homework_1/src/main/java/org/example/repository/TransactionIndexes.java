@@ -0,0 +1,141 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+import org.example.util.LongObjectMap;
+import org.example.util.SortedLongSet;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Вторичные индексы транзакций: по пользователю, дате, категории и сумме.
+ * Своих копий строк индекс не держит: при изменении и удалении хранилище передаёт сохранённую строку,
+ * под значениями которой транзакция проиндексирована.
+ */
+public class TransactionIndexes {
+    private final LongObjectMap<SortedLongSet> idsByUser = new LongObjectMap<>();
+    private final TreeMap<LocalDateTime, SortedLongSet> idsByDate = new TreeMap<>();
+    private final Map<String, SortedLongSet> idsByCategory = new HashMap<>();
+    private final TreeMap<Double, SortedLongSet> idsByAmount = new TreeMap<>();
+
+    /**
+     * Индексирует строку; previous - прежняя сохранённая версия или null.
+     */
+    public void put(Transaction row, Transaction previous) {
+        if (previous != null) {
+            remove(previous);
+        }
+        long id = row.getId();
+        if (row.getUserId() != null) {
+            idsByUser.computeIfAbsent(row.getUserId(), key -> new SortedLongSet()).add(id);
+        }
+        add(idsByDate, row.getDate(), id);
+        add(idsByCategory, row.getCategory(), id);
+        add(idsByAmount, row.getAmount(), id);
+    }
+
+    public void remove(Transaction row) {
+        long id = row.getId();
+        SortedLongSet userIds = row.getUserId() == null ? null : idsByUser.get(row.getUserId());
+        if (userIds != null && userIds.remove(id) && userIds.isEmpty()) {
+            idsByUser.remove(row.getUserId());
+        }
+        remove(idsByDate, row.getDate(), id);
+        remove(idsByCategory, row.getCategory(), id);
+        remove(idsByAmount, row.getAmount(), id);
+    }
+
+    public SortedLongSet idsOfUser(Long userId) {
+        return idsByUser.get(userId);
+    }
+
+    public int countByUser(Long userId) {
+        SortedLongSet ids = idsByUser.get(userId);
+        return ids == null ? 0 : ids.size();
+    }
+
+    public int countByCategories(Collection<String> categories) {
+        int count = 0;
+        for (String category : categories) {
+            SortedLongSet ids = idsByCategory.get(category);
+            count += ids == null ? 0 : ids.size();
+        }
+        return count;
+    }
+
+    /**
+     * Число транзакций в диапазоне дат, но не больше cap: точное значение дороже лучшего кандидата не нужно.
+     */
+    public int countByDate(LocalDateTime from, LocalDateTime to, int cap) {
+        return countUpTo(range(idsByDate, from, to).values(), cap);
+    }
+
+    public int countByAmount(Double min, Double max, int cap) {
+        return countUpTo(range(idsByAmount, min, max).values(), cap);
+    }
+
+    public long[] idsByDate(LocalDateTime from, LocalDateTime to) {
+        return SortedLongSet.union(range(idsByDate, from, to).values());
+    }
+
+    public long[] idsByCategories(Collection<String> categories) {
+        List<SortedLongSet> sets = new ArrayList<>();
+        for (String category : categories) {
+            SortedLongSet ids = idsByCategory.get(category);
+            if (ids != null) {
+                sets.add(ids);
+            }
+        }
+        return sets.isEmpty() ? new long[0] : SortedLongSet.union(sets);
+    }
+
+    public long[] idsByAmount(Double min, Double max) {
+        return SortedLongSet.union(range(idsByAmount, min, max).values());
+    }
+
+    private static <K extends Comparable<? super K>> NavigableMap<K, SortedLongSet> range(TreeMap<K, SortedLongSet> index, K from, K to) {
+        if (from != null && to != null) {
+            return from.compareTo(to) > 0 ? new TreeMap<>() : index.subMap(from, true, to, true);
+        }
+        if (from != null) {
+            return index.tailMap(from, true);
+        }
+        if (to != null) {
+            return index.headMap(to, true);
+        }
+        return index;
+    }
+
+    private static int countUpTo(Collection<SortedLongSet> sets, int cap) {
+        int count = 0;
+        for (SortedLongSet ids : sets) {
+            count += ids.size();
+            if (count >= cap) {
+                return cap;
+            }
+        }
+        return count;
+    }
+
+    private static <K> void add(Map<K, SortedLongSet> index, K key, long id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new SortedLongSet()).add(id);
+        }
+    }
+
+    private static <K> void remove(Map<K, SortedLongSet> index, K key, long id) {
+        if (key == null) {
+            return;
+        }
+        SortedLongSet ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
@@ -1,53 +1,683 @@
 package org.example.repository;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import lombok.Data;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import org.example.model.Transaction;
+import org.example.model.TransactionQuery;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionVersions.ColdSegment;
+import org.example.util.IdGenerator;
+import org.example.util.LongLongMap;
+import org.example.util.LongObjectMap;
+import org.example.util.SortedLongSet;
 
-@Data
 public class TransactionRepository {
-    private Map <Long,Transaction> transactions = new HashMap<>();
-    private Long transactionId=0L;
+    private final LongObjectMap<Transaction> transactions = new LongObjectMap<>();
+    private final TransactionTextIndex textIndex = new TransactionTextIndex();
+    private final TransactionIndexes indexes = new TransactionIndexes();
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final TransactionColumns columns = new TransactionColumns();
+    private final TransactionVersions versions = new TransactionVersions(categories);
+    private final IdGenerator idGenerator;
 
+    // Хранение по уровням: транзакции давно не активных пользователей выгружаются в сегменты на диске.
+    // coldStore = null - все пользователи в памяти. Файлы читаются и пишутся вне монитора хранилища
+    private final TransactionSegmentStore coldStore;
+    private final int maxHotUsers;
+    private final Executor prefetchExecutor;
+    private final LinkedHashMap<Long, Boolean> hotUsers = new LinkedHashMap<>(16, 0.75f, true);
+    // Подгруженные и не менявшиеся с тех пор: их сегмент можно не переписывать
+    private final LongObjectMap<ColdSegment> loadedSegments = new LongObjectMap<>();
+    // Пользователи, чей сегмент сейчас пишется, -> номер выгрузки; повторный выбор того же пользователя отменяет первую
+    private final LongLongMap evicting = new LongLongMap();
+    // Поколения, которые больше не нужны хранилищу; файл удаляется, когда его не держит ни один снимок
+    private final List<ColdSegment> obsoleteSegments = new ArrayList<>();
+    // Меняется при каждой выгрузке и подгрузке: прочитанное вне монитора ставится, только если он не изменился
+    private long coldChanges;
+    private long generations;
+    private long evictions;
+
+    public TransactionRepository() {
+        this(IdGenerator.shared());
+    }
+
+    public TransactionRepository(IdGenerator idGenerator) {
+        this(idGenerator, null, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Хранилище, которое держит в памяти транзакции не более maxHotUsers недавно активных пользователей.
+     * Остальные выгружаются в сегменты coldStore и подгружаются при первом обращении к их транзакциям.
+     */
+    public TransactionRepository(TransactionSegmentStore coldStore, int maxHotUsers) {
+        this(IdGenerator.shared(), coldStore, maxHotUsers, ForkJoinPool.commonPool());
+    }
+
+    public TransactionRepository(IdGenerator idGenerator, TransactionSegmentStore coldStore, int maxHotUsers,
+                                 Executor prefetchExecutor) {
+        if (coldStore != null && (maxHotUsers <= 0 || prefetchExecutor == null)) {
+            throw new IllegalArgumentException("Tiered storage needs a positive hot user limit and an executor");
+        }
+        this.idGenerator = idGenerator;
+        this.coldStore = coldStore;
+        this.maxHotUsers = maxHotUsers;
+        this.prefetchExecutor = prefetchExecutor;
+        if (coldStore != null) {
+            versions.setColdReader(coldStore::read);
+        }
+    }
+
+    /**
+     * Сохраняет копию транзакции. Версия должна совпадать с сохранённой, иначе OptimisticLockException.
+     */
     public Transaction save(Transaction transaction) {
         if (transaction == null) {
             throw new IllegalArgumentException("Transaction cannot be null");
         }
-        if(transaction.getId()==null){
-            transaction.setId(++transactionId);
+        // У новой транзакции владельца среди выгруженных искать не нужно
+        Long existingId = transaction.getId();
+        if (existingId == null) {
+            transaction.setId(idGenerator.nextId());
         }
-        transactions.put(transaction.getId(),transaction);
-        return transaction;
+        return withResident(transaction.getUserId(), existingId, () -> saveResident(transaction));
     }
 
     public Transaction findById(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        return transactions.get(id);
+        return withResident(null, id, () -> {
+            Transaction stored = transactions.get(id);
+            return stored == null ? null : copy(stored);
+        });
     }
 
     public List<Transaction> findByUserId(Long userId) {
         if (userId == null) {
             throw new IllegalArgumentException("User ID cannot be null");
         }
-        return transactions.values().stream()
-                .filter(t -> t.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        return withResident(userId, null, () -> {
+            SortedLongSet ids = indexes.idsOfUser(userId);
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            List<Transaction> found = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                found.add(copy(transactions.get(ids.get(i))));
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Транзакции пользователя, созданные в промежутке [from, to]. Id упорядочены по времени создания,
+     * поэтому промежуток времени - это диапазон id. Дата, указанная пользователем, здесь не участвует.
+     */
+    public List<Transaction> findCreatedBetween(Long userId, Instant from, Instant to) {
+        if (userId == null || from == null || to == null) {
+            throw new IllegalArgumentException("User ID and period cannot be null");
+        }
+        return withResident(userId, null, () -> {
+            SortedLongSet ids = indexes.idsOfUser(userId);
+            List<Transaction> found = new ArrayList<>();
+            if (ids == null) {
+                return found;
+            }
+            long maxId = IdGenerator.maxIdAt(to);
+            for (int i = ids.ceilingIndex(IdGenerator.minIdAt(from)); i < ids.size() && ids.get(i) <= maxId; i++) {
+                found.add(copy(transactions.get(ids.get(i))));
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Передаёт посетителю примитивные значения транзакций пользователя за период (границы включительно,
+     * null - без ограничения). Объекты на строку не создаются.
+     */
+    public void forEachByUser(Long userId, LocalDateTime from, LocalDateTime to, TransactionVisitor visitor) {
+        if (userId == null || visitor == null) {
+            throw new IllegalArgumentException("User ID and visitor cannot be null");
+        }
+        withResident(userId, null, () -> {
+            columns.forEach(userId, from == null ? Long.MIN_VALUE : toEpochSecond(from), to == null ? Long.MAX_VALUE : toEpochSecond(to), visitor);
+            return null;
+        });
+    }
+
+    /**
+     * Снимок всех транзакций для долгих отчётов и выгрузок: читается без блокировок,
+     * пока пользователи продолжают писать. Снимок нужно закрыть.
+     */
+    public TransactionSnapshot openSnapshot() {
+        return versions.openSnapshot();
     }
 
+    /**
+     * Подгружает выгруженного пользователя в фоне, например при входе. Сегмент читается без блокировки хранилища.
+     */
+    public CompletableFuture<Void> prefetch(Long userId) {
+        if (coldStore == null || userId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> withResident(userId, null, () -> null), prefetchExecutor);
+    }
+
+    /**
+     * Лежат ли транзакции пользователя в памяти.
+     */
+    public boolean isResident(Long userId) {
+        return userId != null && versions.coldSegmentOf(userId) == null;
+    }
+
+    public String getCategoryName(int categoryId) {
+        return categories.nameOf(categoryId);
+    }
+
+    public int getCategoryCount() {
+        return categories.size();
+    }
+
+    /**
+     * Версии строк для снимков; нужны для наблюдения за удержанием старых версий.
+     */
+    public TransactionVersions getVersions() {
+        return versions;
+    }
+
+    /**
+     * Полнотекстовый поиск по описанию и категории с необязательными фильтрами по дате и типу.
+     */
+    public List<Transaction> search(Long userId, String text, LocalDateTime from, LocalDateTime to, TransactionType type) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        return query(TransactionQuery.builder().userId(userId).text(text).from(from).to(to).type(type).build());
+    }
+
+    /**
+     * Выполняет запрос: берёт кандидатов из самого избирательного индекса,
+     * остальные условия проверяет за один проход.
+     */
+    public List<Transaction> query(TransactionQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        String[] textTokens = query.getText() == null ? null : TransactionTextIndex.tokenize(query.getText());
+        Comparator<Transaction> order = comparator(query);
+        Integer limit = query.getLimit();
+        if (limit != null && limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // При сортировке с лимитом держим только лучшие строки в куче
+        PriorityQueue<Transaction> top = order != null && limit != null ? new PriorityQueue<>(limit + 1, order.reversed()) : null;
+        List<Transaction> found = new ArrayList<>();
+        TransactionSnapshot coldView = withResident(query.getUserId(), null, () -> {
+            boolean complete = collectResident(query, textTokens, top, found, order == null ? limit : null);
+            // Индексы знают только пользователей в памяти. Выгруженных проверяем по сегментам уже вне монитора,
+            // снимок держит их поколения на момент, когда собраны строки из памяти
+            return !complete && query.getUserId() == null && coldStore != null ? versions.openSnapshot() : null;
+        });
+        if (coldView != null) {
+            try (TransactionSnapshot snapshot = coldView) {
+                collectCold(snapshot, query, textTokens, top, found, order == null ? limit : null);
+            }
+        }
+        if (top != null) {
+            found.addAll(top);
+        }
+        if (order != null) {
+            found.sort(order);
+        }
+        found.replaceAll(TransactionRepository::copy);
+        return found;
+    }
+
+    /**
+     * Индекс, который планировщик выберет для запроса.
+     */
+    public synchronized QueryIndex explain(TransactionQuery query) {
+        return plan(query).index;
+    }
+
+    /**
+     * Все транзакции, включая выгруженных пользователей. Читается по снимку, монитор не занимается.
+     */
     public List<Transaction> findAll() {
-        return new ArrayList<>(transactions.values());
+        try (TransactionSnapshot snapshot = versions.openSnapshot()) {
+            return snapshot.findAll();
+        }
     }
 
     public void delete(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        transactions.remove(id);
+        withResident(null, id, () -> {
+            Transaction stored = transactions.remove(id);
+            if (stored != null) {
+                if (stored.getUserId() != null) {
+                    columns.remove(stored.getUserId(), id, toEpochSecond(stored.getDate()));
+                    markChanged(stored.getUserId());
+                }
+                textIndex.remove(stored);
+                indexes.remove(stored);
+            }
+            versions.remove(id);
+            return null;
+        });
+    }
+
+    public static Transaction copy(Transaction transaction) {
+        return new Transaction(transaction.getId(), transaction.getUserId(), transaction.getAmount(), transaction.getCategory(),
+                transaction.getDescription(), transaction.getDate(), transaction.getType(), transaction.getVersion());
+    }
+
+    private Transaction saveResident(Transaction transaction) {
+        Transaction stored = transactions.get(transaction.getId());
+        if (stored != null && stored.getVersion() != transaction.getVersion()) {
+            throw new OptimisticLockException("Transaction", transaction.getId(), transaction.getVersion(), stored.getVersion());
+        }
+        transaction.setVersion(transaction.getVersion() + 1);
+        // Единственная копия строки: её же держат версии, индексы по ней находят старые значения
+        Transaction row = copy(transaction);
+        transactions.put(row.getId(), row);
+        Long previousUserId = stored == null ? null : stored.getUserId();
+        if (previousUserId != null) {
+            columns.remove(previousUserId, row.getId(), toEpochSecond(stored.getDate()));
+        }
+        textIndex.put(row, stored);
+        indexes.put(row, stored);
+        columns.put(row.getUserId(), row.getId(), toEpochSecond(row.getDate()), row.getAmount(),
+                categories.idOf(row.getCategory()), typeOf(row));
+        versions.put(row);
+        markChanged(transaction.getUserId());
+        markChanged(previousUserId);
+        return transaction;
+    }
+
+    // Выполняет операцию под монитором, когда в памяти пользователь userId и владелец транзакции id
+    // (любой из них может быть null). Сегменты выгруженных читаются до входа в монитор; если за это время
+    // кого-то выгрузили или подгрузили, прочитанное выбрасывается и чтение повторяется.
+    // Лишние пользователи выгружаются уже после выхода из монитора, в потоке вызывающего
+    private <T> T withResident(Long userId, Long id, Supplier<T> operation) {
+        if (coldStore == null) {
+            synchronized (this) {
+                return operation.get();
+            }
+        }
+        List<ColdSegment> pending = null;
+        List<List<Transaction>> read = null;
+        long seenChanges = 0;
+        T result;
+        while (true) {
+            synchronized (this) {
+                if (pending == null || seenChanges != coldChanges) {
+                    pending = coldSegmentsFor(userId, id);
+                    seenChanges = coldChanges;
+                    read = null;
+                }
+                if (pending.isEmpty() || read != null) {
+                    if (read != null) {
+                        installNeeded(pending, read, userId, id);
+                    }
+                    touch(userId);
+                    Transaction owned = id == null ? null : transactions.get(id);
+                    touch(owned == null ? null : owned.getUserId());
+                    result = operation.get();
+                    break;
+                }
+            }
+            read = new ArrayList<>(pending.size());
+            for (ColdSegment segment : pending) {
+                read.add(coldStore.read(segment.userId, segment.generation));
+            }
+        }
+        evictColdUsers();
+        deleteObsoleteSegments();
+        return result;
+    }
+
+    // Сегменты, которые нужно прочитать для операции. Владельца холодной транзакции ищем по диапазонам id
+    private List<ColdSegment> coldSegmentsFor(Long userId, Long id) {
+        List<ColdSegment> segments = new ArrayList<>();
+        ColdSegment own = userId == null ? null : versions.coldSegmentOf(userId);
+        if (own != null) {
+            segments.add(own);
+        }
+        if (id != null && !transactions.containsKey(id)) {
+            for (ColdSegment candidate : versions.coldSegmentsContaining(id)) {
+                if (candidate != own) {
+                    segments.add(candidate);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private void installNeeded(List<ColdSegment> segments, List<List<Transaction>> read, Long userId, Long id) {
+        for (int i = 0; i < segments.size(); i++) {
+            ColdSegment segment = segments.get(i);
+            List<Transaction> rows = read.get(i);
+            if ((userId != null && segment.userId == userId) || id != null && containsId(rows, id)) {
+                install(segment, rows);
+            }
+        }
+    }
+
+    private void install(ColdSegment segment, List<Transaction> rows) {
+        for (Transaction row : rows) {
+            transactions.put(row.getId(), row);
+            textIndex.put(row, null);
+            indexes.put(row, null);
+            columns.put(segment.userId, row.getId(), toEpochSecond(row.getDate()), row.getAmount(),
+                    categories.idOf(row.getCategory()), typeOf(row));
+        }
+        versions.load(segment.userId, rows);
+        loadedSegments.put(segment.userId, segment);
+        coldChanges++;
+    }
+
+    private void touch(Long userId) {
+        if (userId != null) {
+            hotUsers.put(userId, Boolean.TRUE);
+        }
+    }
+
+    // Подгруженный пользователь изменился: его сегмент устарел, при выгрузке будет записано новое поколение
+    private void markChanged(Long userId) {
+        ColdSegment loaded = userId == null ? null : loadedSegments.remove(userId);
+        if (loaded != null) {
+            obsoleteSegments.add(loaded);
+        }
+    }
+
+    // Выгружает самых давно активных пользователей сверх maxHotUsers. Сегмент пишется вне монитора;
+    // если пока писали, к пользователю обратились или его выбрал другой поток, выгрузка отменяется
+    private void evictColdUsers() {
+        while (true) {
+            long userId;
+            long eviction;
+            long generation;
+            List<Transaction> rows;
+            synchronized (this) {
+                if (hotUsers.size() <= maxHotUsers) {
+                    return;
+                }
+                Iterator<Long> eldest = hotUsers.keySet().iterator();
+                userId = eldest.next();
+                eldest.remove();
+                SortedLongSet ids = indexes.idsOfUser(userId);
+                ColdSegment loaded = loadedSegments.get(userId);
+                if (ids == null || loaded != null) {
+                    // Транзакций нет или сегмент не устарел: писать нечего
+                    detach(userId, loaded == null ? 0 : loaded.generation);
+                    continue;
+                }
+                eviction = ++evictions;
+                evicting.put(userId, eviction);
+                generation = ++generations;
+                rows = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    rows.add(transactions.get(ids.get(i)));
+                }
+            }
+            coldStore.write(userId, generation, rows);
+            synchronized (this) {
+                boolean current = evicting.get(userId, -1) == eviction;
+                if (current) {
+                    evicting.remove(userId);
+                }
+                if (current && !hotUsers.containsKey(userId)) {
+                    detach(userId, generation);
+                } else {
+                    obsoleteSegments.add(new ColdSegment(userId, generation, 0, -1));
+                }
+            }
+        }
+    }
+
+    // Убирает транзакции пользователя из памяти; в сегменте generation лежат ровно они
+    private void detach(long userId, long generation) {
+        ColdSegment loaded = loadedSegments.remove(userId);
+        SortedLongSet userIds = indexes.idsOfUser(userId);
+        if (userIds == null) {
+            if (loaded != null) {
+                obsoleteSegments.add(loaded);
+            }
+            return;
+        }
+        long[] ids = userIds.toArray();
+        for (long id : ids) {
+            Transaction row = transactions.remove(id);
+            textIndex.remove(row);
+            indexes.remove(row);
+            columns.remove(userId, id, toEpochSecond(row.getDate()));
+        }
+        versions.evict(new ColdSegment(userId, generation, ids[0], ids[ids.length - 1]), ids);
+        coldChanges++;
+    }
+
+    // Удаляет ненужные поколения сегментов вне монитора. Занятые файлы остаются в очереди до следующего раза
+    private void deleteObsoleteSegments() {
+        List<ColdSegment> deletable = new ArrayList<>();
+        synchronized (this) {
+            Iterator<ColdSegment> obsolete = obsoleteSegments.iterator();
+            while (obsolete.hasNext()) {
+                ColdSegment segment = obsolete.next();
+                if (!versions.isPinned(segment.userId, segment.generation)) {
+                    deletable.add(segment);
+                    obsolete.remove();
+                }
+            }
+        }
+        List<ColdSegment> busy = new ArrayList<>();
+        for (ColdSegment segment : deletable) {
+            if (!coldStore.delete(segment.userId, segment.generation)) {
+                busy.add(segment);
+            }
+        }
+        if (!busy.isEmpty()) {
+            synchronized (this) {
+                obsoleteSegments.addAll(busy);
+            }
+        }
+    }
+
+    // Возвращает true, когда набран лимит и дальше можно не смотреть
+    private boolean collectResident(TransactionQuery query, String[] textTokens, PriorityQueue<Transaction> top,
+                                    List<Transaction> found, Integer limit) {
+        QueryPlan plan = plan(query);
+        if (plan.index == QueryIndex.FULL_SCAN) {
+            for (Transaction transaction : transactions.values()) {
+                if (collect(transaction, query, textTokens, top, found, limit)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (long id : candidates(plan, query)) {
+            Transaction transaction = transactions.get(id);
+            if (transaction != null && collect(transaction, query, textTokens, top, found, limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectCold(TransactionSnapshot snapshot, TransactionQuery query, String[] textTokens,
+                                    PriorityQueue<Transaction> top, List<Transaction> found, Integer limit) {
+        // Диапазоны дат и сумм отсекают блоки архивной части сегмента, остальное проверяет collect
+        long from = query.getFrom() == null ? Long.MIN_VALUE : toEpochSecond(query.getFrom());
+        long to = query.getTo() == null ? Long.MAX_VALUE : toEpochSecond(query.getTo());
+        double minAmount = query.getMinAmount() == null ? Double.NEGATIVE_INFINITY : query.getMinAmount();
+        double maxAmount = query.getMaxAmount() == null ? Double.POSITIVE_INFINITY : query.getMaxAmount();
+        snapshot.forEachCold(from, to, minAmount, maxAmount,
+                transaction -> collect(transaction, query, textTokens, top, found, limit));
+    }
+
+    private static boolean containsId(List<Transaction> rows, long id) {
+        for (Transaction row : rows) {
+            if (row.getId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static byte typeOf(Transaction transaction) {
+        return transaction.getType() == null ? -1 : (byte) transaction.getType().ordinal();
+    }
+
+    // Дата транзакции переводится в секунды так, будто она задана в UTC: важен только порядок
+    static long toEpochSecond(LocalDateTime date) {
+        return date == null ? Long.MIN_VALUE : date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private QueryPlan plan(TransactionQuery query) {
+        QueryPlan plan = new QueryPlan(QueryIndex.FULL_SCAN, transactions.size());
+        if (query.getUserId() != null) {
+            plan.consider(QueryIndex.USER, indexes.countByUser(query.getUserId()));
+            if (query.getText() != null) {
+                // Текстовый индекс сразу даёт точный набор id, его и сохраняем в плане
+                long[] ids = textIndex.search(query.getUserId(), query.getText());
+                if (plan.consider(QueryIndex.TEXT, ids.length)) {
+                    plan.ids = ids;
+                }
+            }
+        }
+        if (query.getCategories() != null) {
+            plan.consider(QueryIndex.CATEGORY, indexes.countByCategories(query.getCategories()));
+        }
+        if (query.getFrom() != null || query.getTo() != null) {
+            plan.consider(QueryIndex.DATE, indexes.countByDate(query.getFrom(), query.getTo(), plan.cost));
+        }
+        if (query.getMinAmount() != null || query.getMaxAmount() != null) {
+            plan.consider(QueryIndex.AMOUNT, indexes.countByAmount(query.getMinAmount(), query.getMaxAmount(), plan.cost));
+        }
+        return plan;
+    }
+
+    private long[] candidates(QueryPlan plan, TransactionQuery query) {
+        switch (plan.index) {
+            case TEXT:
+                return plan.ids;
+            case USER:
+                SortedLongSet ids = indexes.idsOfUser(query.getUserId());
+                return ids == null ? new long[0] : ids.toArray();
+            case CATEGORY:
+                return indexes.idsByCategories(query.getCategories());
+            case DATE:
+                return indexes.idsByDate(query.getFrom(), query.getTo());
+            case AMOUNT:
+                return indexes.idsByAmount(query.getMinAmount(), query.getMaxAmount());
+            default:
+                throw new IllegalStateException("Unexpected index " + plan.index);
+        }
+    }
+
+    // Возвращает true, когда набран лимит и дальше можно не смотреть
+    private static boolean collect(Transaction transaction, TransactionQuery query, String[] textTokens,
+                                   PriorityQueue<Transaction> top, List<Transaction> found, Integer limit) {
+        if (!matches(transaction, query, textTokens)) {
+            return false;
+        }
+        if (top != null) {
+            top.add(transaction);
+            if (top.size() > query.getLimit()) {
+                top.poll();
+            }
+            return false;
+        }
+        found.add(transaction);
+        return limit != null && found.size() >= limit;
+    }
+
+    private static boolean matches(Transaction transaction, TransactionQuery query, String[] textTokens) {
+        if (query.getUserId() != null && !query.getUserId().equals(transaction.getUserId())) {
+            return false;
+        }
+        if (query.getType() != null && transaction.getType() != query.getType()) {
+            return false;
+        }
+        if (query.getFrom() != null && transaction.getDate().isBefore(query.getFrom())) {
+            return false;
+        }
+        if (query.getTo() != null && transaction.getDate().isAfter(query.getTo())) {
+            return false;
+        }
+        if (query.getMinAmount() != null && transaction.getAmount() < query.getMinAmount()) {
+            return false;
+        }
+        if (query.getMaxAmount() != null && transaction.getAmount() > query.getMaxAmount()) {
+            return false;
+        }
+        if (query.getCategories() != null && !query.getCategories().contains(transaction.getCategory())) {
+            return false;
+        }
+        return textTokens == null || matchesText(transaction, textTokens);
+    }
+
+    private static boolean matchesText(Transaction transaction, String[] queryTokens) {
+        if (queryTokens.length == 0) {
+            return false;
+        }
+        String[] tokens = TransactionTextIndex.tokenize(transaction.getDescription(), transaction.getCategory());
+        for (String prefix : queryTokens) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Comparator<Transaction> comparator(TransactionQuery query) {
+        if (query.getSortBy() == null) {
+            return null;
+        }
+        Comparator<Transaction> order = query.getSortBy() == TransactionQuery.SortField.AMOUNT
+                ? Comparator.comparingDouble(Transaction::getAmount)
+                : Comparator.comparing(Transaction::getDate);
+        order = order.thenComparing(Transaction::getId);
+        return query.isDescending() ? order.reversed() : order;
+    }
+
+    private static final class QueryPlan {
+        private QueryIndex index;
+        private int cost;
+        private long[] ids;
+
+        private QueryPlan(QueryIndex index, int cost) {
+            this.index = index;
+            this.cost = cost;
+        }
+
+        private boolean consider(QueryIndex candidate, int candidateCost) {
+            if (candidateCost < cost) {
+                index = candidate;
+                cost = candidateCost;
+                return true;
+            }
+            return false;
+        }
     }
 }
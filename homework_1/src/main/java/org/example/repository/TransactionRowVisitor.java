@@ -0,0 +1,9 @@
+package org.example.repository;
+
+/**
+ * Посетитель строк снимка: как {@link TransactionVisitor}, но с владельцем транзакции.
+ */
+@FunctionalInterface
+public interface TransactionRowVisitor {
+    void visit(long userId, long epochSecond, double amount, int categoryId, byte type);
+}
@@ -0,0 +1,195 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сегменты выгруженных пользователей на диске: по файлу на пользователя и поколение со всеми его транзакциями.
+ * Каждая выгрузка пишет новое поколение во временный файл и переименовывает его в ещё не занятое имя:
+ * файл, который кто-то читает, никогда не подменяется, а старое поколение удаляет владелец, когда оно
+ * больше никому не нужно. Небольшой файл читается в кучу целиком, большой - через отображение в память.
+ *
+ * Транзакции старше archiveAfter лежат в архивной части ({@link ArchiveSegment}): сжато и блоками
+ * с min/max даты и суммы, остальные - построчно. Формат: MAGIC, длина архивной части, архивная часть,
+ * число свежих строк, свежие строки.
+ */
+public class TransactionSegmentStore {
+    private static final int MAGIC = 0x54534732;   // "TSG2"
+    // Отображение держит файл до сборки мусора, и на Windows такой файл нельзя удалить. Сегменты до этого
+    // размера копируются в кучу; отображаются только большие, где архив позволяет не читать лишние блоки
+    private static final long HEAP_READ_LIMIT = 1 << 20;
+
+    private final Path directory;
+    private final Duration archiveAfter;   // null - архивной части нет
+    private final Clock clock;
+
+    public TransactionSegmentStore(Path directory) {
+        this(directory, null, Clock.systemDefaultZone());
+    }
+
+    public TransactionSegmentStore(Path directory, Duration archiveAfter, Clock clock) {
+        if (directory == null || archiveAfter != null && archiveAfter.isNegative()) {
+            throw new IllegalArgumentException("Invalid segment store settings");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.directory = directory;
+        this.archiveAfter = archiveAfter;
+        this.clock = clock;
+    }
+
+    public void write(long userId, long generation, List<Transaction> transactions) {
+        LocalDateTime archiveBefore = archiveAfter == null ? null : LocalDateTime.now(clock).minus(archiveAfter);
+        List<Transaction> archived = new ArrayList<>();
+        List<Transaction> recent = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            boolean old = archiveBefore != null && transaction.getDate() != null && transaction.getDate().isBefore(archiveBefore);
+            (old ? archived : recent).add(transaction);
+        }
+
+        SegmentWriter out = new SegmentWriter();
+        out.writeInt(MAGIC);
+        byte[] archive = archived.isEmpty() ? new byte[0] : ArchiveSegment.encode(archived);
+        out.writeInt(archive.length);
+        out.writeBytes(archive, 0, archive.length);
+        out.writeVarint(recent.size());
+        for (Transaction transaction : recent) {
+            out.writeLong(transaction.getId());
+            out.writeVarint(transaction.getVersion());
+            out.writeDouble(transaction.getAmount());
+            out.writeString(transaction.getCategory());
+            out.writeString(transaction.getDescription());
+            LocalDateTime date = transaction.getDate();
+            out.writeByte(date == null ? 0 : 1);
+            if (date != null) {
+                out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+                out.writeVarint(date.getNano());
+            }
+            out.writeByte(transaction.getType() == null ? 0 : transaction.getType().ordinal() + 1);
+        }
+
+        Path segment = segment(userId, generation);
+        Path temporary = directory.resolve(segment.getFileName() + ".tmp");
+        try {
+            Files.write(temporary, out.toByteArray());
+            Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Транзакции пользователя из сегмента; пустой список, если сегмента нет.
+     */
+    public List<Transaction> read(long userId, long generation) {
+        return read(userId, generation, Long.MIN_VALUE, Long.MAX_VALUE, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Транзакции пользователя, среди которых все с датой и суммой в диапазонах. Блоки архива вне диапазонов
+     * не читаются; свежие строки отдаются все, точную проверку делает вызывающий.
+     */
+    public List<Transaction> read(long userId, long generation, long fromEpochSecond, long toEpochSecond, double minAmount,
+                                  double maxAmount) {
+        ByteBuffer buffer = open(userId, generation);
+        if (buffer == null) {
+            return new ArrayList<>();
+        }
+        SegmentReader in = new SegmentReader(buffer, 0);
+        if (in.readInt() != MAGIC) {
+            throw new IllegalStateException("Corrupted segment of user " + userId);
+        }
+        int archiveLength = in.readInt();
+        List<Transaction> transactions = archiveLength == 0 ? new ArrayList<>()
+                : new ArchiveSegment(buffer.slice(in.position(), archiveLength))
+                .read(userId, fromEpochSecond, toEpochSecond, minAmount, maxAmount);
+        in.seek(in.position() + archiveLength);
+        for (long count = in.readVarint(); count > 0; count--) {
+            Transaction transaction = new Transaction();
+            transaction.setId(in.readLong());
+            transaction.setVersion(in.readVarint());
+            transaction.setUserId(userId);
+            transaction.setAmount(in.readDouble());
+            transaction.setCategory(in.readString());
+            transaction.setDescription(in.readString());
+            if (in.readByte() != 0) {
+                transaction.setDate(LocalDateTime.ofEpochSecond(in.readLong(), (int) in.readVarint(), ZoneOffset.UTC));
+            }
+            int type = in.readByte() - 1;
+            transaction.setType(type < 0 ? null : TransactionType.values()[type]);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Удаляет поколение сегмента. Возвращает false, если файл сейчас занят (например, ещё отображён
+     * в память на Windows) и удаление нужно повторить позже.
+     */
+    public boolean delete(long userId, long generation) {
+        try {
+            Files.deleteIfExists(segment(userId, generation));
+            return true;
+        } catch (FileSystemException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Размер сегмента в байтах, 0 - сегмента нет.
+     */
+    public long sizeOf(long userId, long generation) {
+        try {
+            return Files.size(segment(userId, generation));
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Отображение остаётся действительным после закрытия канала
+    private ByteBuffer open(long userId, long generation) {
+        try (FileChannel channel = FileChannel.open(segment(userId, generation), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > HEAP_READ_LIMIT) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // дочитываем до конца файла
+            }
+            return buffer.flip();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segment(long userId, long generation) {
+        return directory.resolve(userId + "-" + generation + ".seg");
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Согласованный вид транзакций на момент открытия. Чтение не блокирует писателей,
+ * снимок можно обходить из нескольких потоков. После работы снимок нужно закрыть.
+ * Выгруженные пользователи занимают в снимке по слоту после слотов транзакций в памяти:
+ * их транзакции читаются из сегментов тех поколений, что были при открытии.
+ */
+public class TransactionSnapshot implements AutoCloseable {
+    private final TransactionVersions versions;
+    private final long version;
+    private final int hotSlotCount;
+    private final long[] coldUserIds;
+    private final long[] coldGenerations;
+
+    TransactionSnapshot(TransactionVersions versions, long version, int hotSlotCount, long[] coldUserIds,
+                        long[] coldGenerations) {
+        this.versions = versions;
+        this.version = version;
+        this.hotSlotCount = hotSlotCount;
+        this.coldUserIds = coldUserIds;
+        this.coldGenerations = coldGenerations;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Число слотов для деления обхода на части.
+     */
+    public int getSlotCount() {
+        return hotSlotCount + coldUserIds.length;
+    }
+
+    /**
+     * Обходит слоты [fromSlot, toSlot) и передаёт строки с датой в границах [fromEpochSecond, toEpochSecond].
+     */
+    public void forEach(int fromSlot, int toSlot, long fromEpochSecond, long toEpochSecond, TransactionRowVisitor visitor) {
+        for (int slot = fromSlot; slot < Math.min(toSlot, hotSlotCount); slot++) {
+            TransactionVersions.Version visible = visible(slot);
+            if (visible != null && visible.epochSecond >= fromEpochSecond && visible.epochSecond <= toEpochSecond) {
+                Transaction row = visible.row;
+                visitor.visit(row.getUserId() == null ? 0 : row.getUserId(), visible.epochSecond, row.getAmount(),
+                        visible.categoryId, TransactionRepository.typeOf(row));
+            }
+        }
+        CategoryDictionary categories = versions.getCategories();
+        for (int slot = Math.max(fromSlot, hotSlotCount); slot < toSlot; slot++) {
+            int cold = slot - hotSlotCount;
+            for (Transaction row : readCold(cold, fromEpochSecond, toEpochSecond, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)) {
+                long epochSecond = TransactionRepository.toEpochSecond(row.getDate());
+                if (epochSecond >= fromEpochSecond && epochSecond <= toEpochSecond) {
+                    visitor.visit(coldUserIds[cold], epochSecond, row.getAmount(), categories.find(row.getCategory()),
+                            TransactionRepository.typeOf(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Передаёт копии всех транзакций снимка. Сегмент каждого выгруженного пользователя читается один раз.
+     */
+    public void forEach(Consumer<Transaction> consumer) {
+        for (int slot = 0; slot < hotSlotCount; slot++) {
+            TransactionVersions.Version visible = visible(slot);
+            if (visible != null) {
+                consumer.accept(TransactionRepository.copy(visible.row));
+            }
+        }
+        forEachCold(Long.MIN_VALUE, Long.MAX_VALUE, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, transaction -> {
+            consumer.accept(transaction);
+            return false;
+        });
+    }
+
+    public List<Transaction> findAll() {
+        List<Transaction> found = new ArrayList<>();
+        forEach(found::add);
+        return found;
+    }
+
+    @Override
+    public void close() {
+        versions.close(this);
+    }
+
+    /**
+     * Передаёт транзакции выгруженных пользователей, среди которых все с датой и суммой в диапазонах.
+     * Возвращает true, если consumer попросил остановиться.
+     */
+    boolean forEachCold(long fromEpochSecond, long toEpochSecond, double minAmount, double maxAmount,
+                        Predicate<Transaction> consumer) {
+        for (int cold = 0; cold < coldUserIds.length; cold++) {
+            for (Transaction transaction : readCold(cold, fromEpochSecond, toEpochSecond, minAmount, maxAmount)) {
+                if (consumer.test(transaction)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean pins(long userId, long generation) {
+        for (int i = 0; i < coldUserIds.length; i++) {
+            if (coldUserIds[i] == userId && coldGenerations[i] == generation) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Transaction> readCold(int cold, long fromEpochSecond, long toEpochSecond, double minAmount, double maxAmount) {
+        return versions.getColdReader().read(coldUserIds[cold], coldGenerations[cold], fromEpochSecond, toEpochSecond,
+                minAmount, maxAmount);
+    }
+
+    // Самая новая версия слота не новее снимка, null - строки в снимке нет
+    private TransactionVersions.Version visible(int slot) {
+        TransactionVersions.Version candidate = versions.head(slot);
+        while (candidate != null && candidate.version > version) {
+            candidate = candidate.older;
+        }
+        return candidate == null || !candidate.isLive() ? null : candidate;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+import org.example.util.LongObjectMap;
+import org.example.util.SortedLongSet;
+
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Инвертированный индекс по описанию и категории транзакций, отдельный для каждого пользователя.
+ * Слова хранятся в нижнем регистре в отсортированном словаре, поэтому поиск по префиксу -
+ * это диапазон словаря. Слова строки не хранятся: при изменении и удалении они заново
+ * выделяются из сохранённой строки.
+ */
+public class TransactionTextIndex {
+    private final LongObjectMap<TreeMap<String, SortedLongSet>> postingsByUser = new LongObjectMap<>();
+
+    /**
+     * Индексирует строку; previous - прежняя сохранённая версия или null.
+     */
+    public void put(Transaction transaction, Transaction previous) {
+        if (previous != null) {
+            remove(previous);
+        }
+        String[] tokens = tokenize(transaction.getDescription(), transaction.getCategory());
+        if (tokens.length == 0) {
+            return;
+        }
+        TreeMap<String, SortedLongSet> postings = postingsByUser.computeIfAbsent(transaction.getUserId(), id -> new TreeMap<>());
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new SortedLongSet()).add(transaction.getId());
+        }
+    }
+
+    public void remove(Transaction transaction) {
+        TreeMap<String, SortedLongSet> postings = transaction.getUserId() == null ? null : postingsByUser.get(transaction.getUserId());
+        if (postings == null) {
+            return;
+        }
+        for (String token : tokenize(transaction.getDescription(), transaction.getCategory())) {
+            SortedLongSet ids = postings.get(token);
+            if (ids != null && ids.remove(transaction.getId()) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+        if (postings.isEmpty()) {
+            postingsByUser.remove(transaction.getUserId());
+        }
+    }
+
+    /**
+     * Id транзакций пользователя, в тексте которых есть слова, начинающиеся с каждого слова запроса.
+     * Результат отсортирован по id.
+     */
+    public long[] search(Long userId, String query) {
+        TreeMap<String, SortedLongSet> postings = postingsByUser.get(userId);
+        String[] queryTokens = tokenize(query);
+        if (postings == null || queryTokens.length == 0) {
+            return new long[0];
+        }
+        long[] result = null;
+        for (String prefix : queryTokens) {
+            NavigableMap<String, SortedLongSet> matching = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            if (matching.isEmpty()) {
+                return new long[0];
+            }
+            long[] ids = SortedLongSet.union(matching.values());
+            result = result == null ? ids : SortedLongSet.intersect(result, ids);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    static String[] tokenize(String... texts) {
+        TreeSet<String> tokens = new TreeSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,408 @@
+package org.example.repository;
+
+import org.example.model.Transaction;
+import org.example.util.LongIntMap;
+import org.example.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Многоверсионное хранилище транзакций. Каждая транзакция занимает слот, в слоте - цепочка версий
+ * от новой к старой. Писатели под общей блокировкой ставят новую версию в голову цепочки и
+ * публикуют номер версии; читатели фиксируют номер в снимке и без блокировок видят
+ * для каждого слота самую новую версию не новее снимка.
+ * Старые версии удаляются, когда их не видит ни один открытый снимок.
+ * Транзакций выгруженных на диск пользователей здесь нет: хранится только поколение сегмента
+ * пользователя, снимок запоминает поколения при открытии и читает сегменты сам.
+ */
+public class TransactionVersions {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final CategoryDictionary categories;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Set<TransactionSnapshot> openSnapshots = ConcurrentHashMap.newKeySet();
+
+    // Состояние писателя, меняется только под writeLock
+    private final LongIntMap slotById = new LongIntMap();
+    private final LongObjectMap<ColdSegment> coldUsers = new LongObjectMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int versionCount;
+    private volatile boolean sweepPending;
+
+    // Опубликованное состояние для читателей
+    private volatile AtomicReferenceArray<Version>[] chunks = newChunks(1);
+    private volatile int slotCount;
+    private volatile long visibleVersion;
+    private volatile int retainedVersions;
+    private volatile ColdReader coldReader;
+
+    public TransactionVersions(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Ставит новую версию транзакции. Объект не копируется: хранилище передаёт свою строку,
+     * которую после сохранения никто не меняет.
+     */
+    public void put(Transaction row) {
+        writeLock.lock();
+        try {
+            installRow(row, visibleVersion + 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Ставит версию-надгробие: снимки, открытые после удаления, транзакцию не видят.
+     */
+    public void remove(long id) {
+        writeLock.lock();
+        try {
+            retire(id, visibleVersion + 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Убирает транзакции пользователя, выгруженные в сегмент, одной версией: снимок видит
+     * пользователя либо в памяти, либо в сегменте, но не в обоих местах сразу.
+     */
+    void evict(ColdSegment segment, long[] ids) {
+        writeLock.lock();
+        try {
+            long version = visibleVersion + 1;
+            for (long id : ids) {
+                retire(id, version);
+            }
+            coldUsers.put(segment.userId, segment);
+            visibleVersion = version;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает в хранилище транзакции пользователя, прочитанные из сегмента, тоже одной версией.
+     */
+    void load(long userId, List<Transaction> rows) {
+        writeLock.lock();
+        try {
+            long version = visibleVersion + 1;
+            for (Transaction row : rows) {
+                installRow(row, version);
+            }
+            coldUsers.remove(userId);
+            visibleVersion = version;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Сегмент выгруженного пользователя или null, если пользователь в памяти.
+     */
+    ColdSegment coldSegmentOf(long userId) {
+        writeLock.lock();
+        try {
+            return coldUsers.get(userId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Сегменты, в диапазон id которых попадает транзакция. Владелец холодной транзакции не хранится,
+     * поэтому его ищут по диапазонам; обычно кандидат один, если id вообще холодный.
+     */
+    List<ColdSegment> coldSegmentsContaining(long id) {
+        writeLock.lock();
+        try {
+            List<ColdSegment> found = new ArrayList<>();
+            for (ColdSegment segment : coldUsers.values()) {
+                if (id >= segment.minId && id <= segment.maxId) {
+                    found.add(segment);
+                }
+            }
+            return found;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Нужен ли сегмент какому-нибудь открытому снимку. Файл такого сегмента удалять нельзя.
+     */
+    boolean isPinned(long userId, long generation) {
+        writeLock.lock();
+        try {
+            for (TransactionSnapshot snapshot : openSnapshots) {
+                if (snapshot.pins(userId, generation)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void setColdReader(ColdReader coldReader) {
+        this.coldReader = coldReader;
+    }
+
+    ColdReader getColdReader() {
+        ColdReader reader = coldReader;
+        if (reader == null) {
+            throw new IllegalStateException("Cold transactions without a segment store");
+        }
+        return reader;
+    }
+
+    CategoryDictionary getCategories() {
+        return categories;
+    }
+
+    /**
+     * Открывает снимок текущего состояния. Снимок нужно закрыть, иначе старые версии не будут удаляться.
+     */
+    public TransactionSnapshot openSnapshot() {
+        // Регистрация под блокировкой писателя: номер версии и список выгруженных согласованы между собой,
+        // а сборщик не пропустит снимок
+        writeLock.lock();
+        try {
+            long[] coldUserIds = coldUsers.keys();
+            long[] generations = new long[coldUserIds.length];
+            for (int i = 0; i < coldUserIds.length; i++) {
+                generations[i] = coldUsers.get(coldUserIds[i]).generation;
+            }
+            TransactionSnapshot snapshot = new TransactionSnapshot(this, visibleVersion, slotCount, coldUserIds, generations);
+            openSnapshots.add(snapshot);
+            return snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Полный проход сборщика по всем слотам.
+     */
+    public void collectGarbage() {
+        writeLock.lock();
+        try {
+            sweep();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Число хранимых версий, включая надгробия. Для наблюдения за сборкой мусора.
+     */
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    public int getOpenSnapshotCount() {
+        return openSnapshots.size();
+    }
+
+    void close(TransactionSnapshot snapshot) {
+        if (openSnapshots.remove(snapshot)) {
+            // Сборка идёт в потоке писателя: при следующей записи или если писатель свободен - сейчас
+            if (writeLock.tryLock()) {
+                try {
+                    sweep();
+                } finally {
+                    writeLock.unlock();
+                }
+            } else {
+                sweepPending = true;
+            }
+        }
+    }
+
+    Version head(int slot) {
+        return chunks[slot >>> CHUNK_BITS].get(slot & CHUNK_MASK);
+    }
+
+    private void installRow(Transaction row, long version) {
+        long id = row.getId();
+        int slot = slotById.get(id, -1);
+        if (slot < 0) {
+            slot = allocateSlot();
+            slotById.put(id, slot);
+        }
+        install(slot, new Version(id, row, TransactionRepository.toEpochSecond(row.getDate()),
+                categories.idOf(row.getCategory()), version));
+    }
+
+    // Без открытых снимков старая версия никому не видна, и слот освобождается сразу, без надгробия
+    private void retire(long id, long version) {
+        int slot = slotById.get(id, -1);
+        Version head = slot < 0 ? null : head(slot);
+        if (head == null || !head.isLive()) {
+            return;
+        }
+        if (!openSnapshots.isEmpty()) {
+            install(slot, new Version(id, null, 0, -1, version));
+            return;
+        }
+        for (Version dropped = head; dropped != null; dropped = dropped.older) {
+            versionCount--;
+        }
+        chunks[slot >>> CHUNK_BITS].set(slot & CHUNK_MASK, null);
+        slotById.remove(id);
+        releaseSlot(slot);
+        visibleVersion = version;
+        retainedVersions = versionCount;
+    }
+
+    private void install(int slot, Version version) {
+        version.older = head(slot);
+        chunks[slot >>> CHUNK_BITS].set(slot & CHUNK_MASK, version);
+        versionCount++;
+        visibleVersion = version.version;
+        if (sweepPending) {
+            sweep();
+        } else {
+            prune(version, oldestVisibleVersion());
+        }
+        retainedVersions = versionCount;
+    }
+
+    private void sweep() {
+        sweepPending = false;
+        long oldest = oldestVisibleVersion();
+        int slots = slotCount;
+        for (int slot = 0; slot < slots; slot++) {
+            Version head = head(slot);
+            if (head == null) {
+                continue;
+            }
+            prune(head, oldest);
+            if (!head.isLive() && head.version <= oldest) {
+                // Удаление видят все снимки: после prune в цепочке осталось одно надгробие, слот можно отдать
+                chunks[slot >>> CHUNK_BITS].set(slot & CHUNK_MASK, null);
+                versionCount--;
+                slotById.remove(head.id);
+                releaseSlot(slot);
+            }
+        }
+        retainedVersions = versionCount;
+    }
+
+    // Обрезает цепочку после первой версии, которую видят все открытые снимки
+    private void prune(Version head, long oldest) {
+        Version version = head;
+        while (version != null && version.version > oldest) {
+            version = version.older;
+        }
+        if (version == null) {
+            return;
+        }
+        for (Version dropped = version.older; dropped != null; dropped = dropped.older) {
+            versionCount--;
+        }
+        version.older = null;
+    }
+
+    private long oldestVisibleVersion() {
+        long oldest = visibleVersion;
+        for (TransactionSnapshot snapshot : openSnapshots) {
+            oldest = Math.min(oldest, snapshot.getVersion());
+        }
+        return oldest;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = slotCount;
+        AtomicReferenceArray<Version>[] current = chunks;
+        if (slot >>> CHUNK_BITS >= current.length) {
+            AtomicReferenceArray<Version>[] grown = Arrays.copyOf(current, current.length * 2);
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+            }
+            chunks = grown;
+        }
+        slotCount = slot + 1;
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<Version>[] newChunks(int count) {
+        AtomicReferenceArray<Version>[] chunks = new AtomicReferenceArray[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+        }
+        return chunks;
+    }
+
+    /**
+     * Читает транзакции пользователя из сегмента заданного поколения. Диапазоны отсекают блоки архива,
+     * точную проверку делает вызывающий.
+     */
+    @FunctionalInterface
+    interface ColdReader {
+        List<Transaction> read(long userId, long generation, long fromEpochSecond, long toEpochSecond,
+                               double minAmount, double maxAmount);
+    }
+
+    /**
+     * Сегмент выгруженного пользователя: поколение файла и диапазон id его транзакций.
+     */
+    static final class ColdSegment {
+        final long userId;
+        final long generation;
+        final long minId;
+        final long maxId;
+
+        ColdSegment(long userId, long generation, long minId, long maxId) {
+            this.userId = userId;
+            this.generation = generation;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+    }
+
+    static final class Version {
+        final long id;
+        final Transaction row;   // null - транзакция удалена или выгружена
+        final long epochSecond;
+        final int categoryId;
+        final long version;
+        volatile Version older;
+
+        private Version(long id, Transaction row, long epochSecond, int categoryId, long version) {
+            this.id = id;
+            this.row = row;
+            this.epochSecond = epochSecond;
+            this.categoryId = categoryId;
+            this.version = version;
+        }
+
+        boolean isLive() {
+            return row != null;
+        }
+    }
+}
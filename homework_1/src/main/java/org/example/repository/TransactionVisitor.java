@@ -0,0 +1,10 @@
+package org.example.repository;
+
+/**
+ * Получает значения строки транзакции без создания объектов.
+ * type - порядковый номер {@link org.example.model.TransactionType}.
+ */
+@FunctionalInterface
+public interface TransactionVisitor {
+    void visit(long epochSecond, double amount, int categoryId, byte type);
+}
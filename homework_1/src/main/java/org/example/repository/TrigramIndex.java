@@ -0,0 +1,207 @@
+package org.example.repository;
+
+import org.example.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Триграммный индекс для поиска подстрок. Документы адресуются плотными номерами слотов,
+ * списки вхождений хранятся отсортированными массивами int и пересекаются от самого короткого.
+ */
+public class TrigramIndex {
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final LongObjectMap<Postings> postings = new LongObjectMap<>();
+    private final List<String> textBySlot = new ArrayList<>();
+
+    public void put(int slot, String... fields) {
+        remove(slot);
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                text.append(field.toLowerCase(Locale.ROOT));
+            }
+            text.append(FIELD_SEPARATOR);
+        }
+        String indexed = text.toString();
+        while (textBySlot.size() <= slot) {
+            textBySlot.add(null);
+        }
+        textBySlot.set(slot, indexed);
+        for (long trigram : trigrams(indexed)) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(slot);
+        }
+    }
+
+    public void remove(int slot) {
+        if (slot >= textBySlot.size() || textBySlot.get(slot) == null) {
+            return;
+        }
+        for (long trigram : trigrams(textBySlot.get(slot))) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        textBySlot.set(slot, null);
+    }
+
+    /**
+     * Слоты, чьи поля содержат запрос как подстроку. Лучшие совпадения идут первыми:
+     * точное совпадение поля, затем начало поля, начало слова и остальные вхождения.
+     */
+    public int[] search(String query, int limit) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        String needle = query.toLowerCase(Locale.ROOT);
+        PriorityQueue<long[]> best = new PriorityQueue<>(Comparator.comparingLong((long[] hit) -> hit[0]).reversed());
+        if (needle.length() < 3) {
+            // Для коротких запросов триграмм нет, остаётся просмотр всех документов
+            for (int slot = 0; slot < textBySlot.size(); slot++) {
+                offer(best, slot, needle, limit);
+            }
+        } else {
+            for (int slot : candidates(needle)) {
+                offer(best, slot, needle, limit);
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) best.poll()[1];
+        }
+        return result;
+    }
+
+    private int[] candidates(String needle) {
+        long[] queryTrigrams = trigrams(needle);
+        Postings[] lists = new Postings[queryTrigrams.length];
+        for (int i = 0; i < queryTrigrams.length; i++) {
+            lists[i] = postings.get(queryTrigrams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        int[] result = Arrays.copyOf(lists[0].slots, lists[0].size);
+        int size = result.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            int kept = 0;
+            for (int j = 0; j < size; j++) {
+                if (lists[i].contains(result[j])) {
+                    result[kept++] = result[j];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void offer(PriorityQueue<long[]> best, int slot, String needle, int limit) {
+        String text = textBySlot.get(slot);
+        if (text == null) {
+            return;
+        }
+        int position = text.indexOf(needle);
+        if (position < 0) {
+            return;
+        }
+        long score = rank(text, needle, position);
+        if (best.size() < limit) {
+            best.add(new long[]{score, slot});
+        } else if (score < best.peek()[0]) {
+            best.poll();
+            best.add(new long[]{score, slot});
+        }
+    }
+
+    // Меньше - лучше: класс совпадения в старших разрядах, длина текста и слот разрешают ничьи
+    private static long rank(String text, String needle, int position) {
+        char before = position == 0 ? FIELD_SEPARATOR : text.charAt(position - 1);
+        int end = position + needle.length();
+        char after = end < text.length() ? text.charAt(end) : FIELD_SEPARATOR;
+        int matchClass;
+        if (before == FIELD_SEPARATOR && after == FIELD_SEPARATOR) {
+            matchClass = 0;
+        } else if (before == FIELD_SEPARATOR) {
+            matchClass = 1;
+        } else if (!Character.isLetterOrDigit(before)) {
+            matchClass = 2;
+        } else {
+            matchClass = 3;
+        }
+        return ((long) matchClass << 48) | ((long) Math.min(text.length(), 0xFFFF) << 32) | position;
+    }
+
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() - 2];
+        int size = 0;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            char a = text.charAt(i);
+            char b = text.charAt(i + 1);
+            char c = text.charAt(i + 2);
+            if (a == FIELD_SEPARATOR || b == FIELD_SEPARATOR || c == FIELD_SEPARATOR) {
+                continue;
+            }
+            result[size++] = ((long) a << 32) | ((long) b << 16) | c;
+        }
+        long[] distinct = Arrays.copyOf(result, size);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (unique == 0 || distinct[i] != distinct[unique - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size > 0 && slots[size - 1] < slot) {
+                append(slot);
+                return;
+            }
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            append(0);
+            System.arraycopy(slots, insertAt, slots, insertAt + 1, size - insertAt - 1);
+            slots[insertAt] = slot;
+        }
+
+        private void append(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private boolean remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+    }
+}
@@ -1,52 +1,240 @@
 package org.example.repository;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import org.example.model.User;
+import org.example.model.UserFilter;
+import org.example.model.UserPage;
+import org.example.util.IdGenerator;
+import org.example.util.LongIntMap;
+import org.example.util.LongObjectMap;
 
 
 public class UserRepository {
-    private Map<Long, User> users = new HashMap<>();
-    private Long userId = 0L;
+    private final LongObjectMap<User> users = new LongObjectMap<>();
+    private final IdGenerator idGenerator;
 
-    public User save(User user) {
+    // Индексы каталога: пользователи получают плотный номер слота, флаги хранятся битовыми масками
+    private final LongIntMap slotById = new LongIntMap();
+    private final List<User> usersBySlot = new ArrayList<>();
+    private final List<String> emailBySlot = new ArrayList<>();
+    private final TreeMap<String, Long> idByEmail = new TreeMap<>();
+    // Заблокированные в порядке email: страница заблокированных читается с курсора, а не перебором всех
+    private final TreeMap<String, Long> blockedIdByEmail = new TreeMap<>();
+    // Ключ - имя в нижнем регистре и id: страница по префиксу имени читает только подходящие имена
+    private final TreeMap<String, Long> idByName = new TreeMap<>();
+    private final BitSet blockedSlots = new BitSet();
+    private final BitSet adminSlots = new BitSet();
+    private final TrigramIndex nameEmailIndex = new TrigramIndex();
+
+    public UserRepository() {
+        this(IdGenerator.shared());
+    }
+
+    public UserRepository(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Сохраняет копию пользователя. Версия должна совпадать с сохранённой, иначе OptimisticLockException.
+     */
+    public synchronized User save(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User cannot be null");
         }
         if(user.getId() == null) {
-            user.setId(++userId);
+            user.setId(idGenerator.nextId());
+        }
+        User stored = users.get(user.getId());
+        if (stored != null && stored.getVersion() != user.getVersion()) {
+            throw new OptimisticLockException("User", user.getId(), user.getVersion(), stored.getVersion());
         }
-        users.put(user.getId(), user);
+        user.setVersion(user.getVersion() + 1);
+        stored = copy(user);
+        users.put(user.getId(), stored);
+        index(stored);
         return user;
     }
-    public User findById(Long id) {
+    public synchronized User findById(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        return users.get(id);
+        User stored = users.get(id);
+        return stored == null ? null : copy(stored);
     }
 
-    public User findByMail(String email) {
+    public synchronized User findByMail(String email) {
         if (email == null) {
             throw new IllegalArgumentException("Email cannot be null");
         }
-        return users.values().stream().
-                filter(user -> user.getEmail().equals(email)).
-                findFirst().
-                orElse(null);
+        Long id = idByEmail.get(email);
+        return id == null ? null : copy(users.get(id));
     }
 
-    public List<User> findAll() {
-        return new ArrayList<>(users.values());
+    public synchronized List<User> findAll() {
+        List<User> found = new ArrayList<>(users.size());
+        for (User stored : users.values()) {
+            found.add(copy(stored));
+        }
+        return found;
     }
 
-    public boolean delete(Long id) {
+    /**
+     * Страница пользователей в порядке email, начиная после курсора.
+     */
+    public synchronized UserPage findPage(UserFilter filter, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        UserFilter criteria = filter != null ? filter : new UserFilter();
+        NavigableMap<String, Long> range = candidates(criteria);
+        String prefix = criteria.getEmailPrefix();
+        if (prefix != null && !prefix.isEmpty()) {
+            range = range.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+        if (cursor != null) {
+            range = range.tailMap(cursor, false);
+        }
+
+        List<User> page = new ArrayList<>(limit + 1);
+        for (Long id : range.values()) {
+            int slot = slotById.get(id, -1);
+            if (matches(slot, criteria)) {
+                page.add(copy(usersBySlot.get(slot)));
+                if (page.size() > limit) {
+                    break;
+                }
+            }
+        }
+        if (page.size() <= limit) {
+            return new UserPage(page, null);
+        }
+        List<User> users = new ArrayList<>(page.subList(0, limit));
+        Long lastId = users.get(limit - 1).getId();
+        return new UserPage(users, emailBySlot.get(slotById.get(lastId, -1)));
+    }
+
+    // Кандидаты в порядке email из самого узкого индекса. Администраторов и совпадения по префиксу имени мало,
+    // их email сортируются на каждый запрос; остальные страницы читаются прямо из индексов по email
+    private NavigableMap<String, Long> candidates(UserFilter filter) {
+        if (Boolean.TRUE.equals(filter.getAdmin())) {
+            TreeMap<String, Long> admins = new TreeMap<>();
+            for (int slot = adminSlots.nextSetBit(0); slot >= 0; slot = adminSlots.nextSetBit(slot + 1)) {
+                if (emailBySlot.get(slot) != null) {
+                    admins.put(emailBySlot.get(slot), usersBySlot.get(slot).getId());
+                }
+            }
+            return admins;
+        }
+        String namePrefix = filter.getNamePrefix();
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            String from = namePrefix.toLowerCase(Locale.ROOT);
+            TreeMap<String, Long> named = new TreeMap<>();
+            for (Long id : idByName.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+                String email = emailBySlot.get(slotById.get(id, -1));
+                if (email != null) {
+                    named.put(email, id);
+                }
+            }
+            return named;
+        }
+        return Boolean.TRUE.equals(filter.getBlocked()) ? blockedIdByEmail : idByEmail;
+    }
+
+    /**
+     * Поиск по подстроке имени или email, лучшие совпадения первыми.
+     */
+    public synchronized List<User> search(String query, int limit) {
+        List<User> found = new ArrayList<>();
+        for (int slot : nameEmailIndex.search(query, limit)) {
+            found.add(copy(usersBySlot.get(slot)));
+        }
+        return found;
+    }
+
+    public synchronized boolean delete(Long id) {
         if (id == null || users.get(id) == null) {
             return false;
         }
         users.remove(id);
+        int slot = slotById.get(id, -1);
+        if (slot >= 0) {
+            slotById.remove(id);
+            idByEmail.remove(emailBySlot.get(slot), id);
+            blockedIdByEmail.remove(emailBySlot.get(slot), id);
+            removeName(usersBySlot.get(slot));
+            usersBySlot.set(slot, null);
+            emailBySlot.set(slot, null);
+            blockedSlots.clear(slot);
+            adminSlots.clear(slot);
+            nameEmailIndex.remove(slot);
+        }
         return true;
     }
+
+    private void index(User user) {
+        int slot = slotById.get(user.getId(), -1);
+        if (slot < 0) {
+            slot = usersBySlot.size();
+            slotById.put(user.getId(), slot);
+            usersBySlot.add(null);
+            emailBySlot.add(null);
+        }
+        removeName(usersBySlot.get(slot));
+        if (user.getName() != null) {
+            idByName.put(nameKey(user), user.getId());
+        }
+        usersBySlot.set(slot, user);
+        String previousEmail = emailBySlot.get(slot);
+        if (previousEmail != null && !previousEmail.equals(user.getEmail())) {
+            idByEmail.remove(previousEmail, user.getId());
+        }
+        if (previousEmail != null) {
+            blockedIdByEmail.remove(previousEmail, user.getId());
+        }
+        if (user.getEmail() != null) {
+            idByEmail.put(user.getEmail(), user.getId());
+            if (user.isBlocked()) {
+                blockedIdByEmail.put(user.getEmail(), user.getId());
+            }
+        }
+        emailBySlot.set(slot, user.getEmail());
+        blockedSlots.set(slot, user.isBlocked());
+        adminSlots.set(slot, user.isAdmin());
+        nameEmailIndex.put(slot, user.getName(), user.getEmail());
+    }
+
+    private void removeName(User user) {
+        if (user != null && user.getName() != null) {
+            idByName.remove(nameKey(user));
+        }
+    }
+
+    private static String nameKey(User user) {
+        return user.getName().toLowerCase(Locale.ROOT) + '\0' + user.getId();
+    }
+
+    private boolean matches(int slot, UserFilter filter) {
+        if (filter.getBlocked() != null && blockedSlots.get(slot) != filter.getBlocked()) {
+            return false;
+        }
+        if (filter.getAdmin() != null && adminSlots.get(slot) != filter.getAdmin()) {
+            return false;
+        }
+        String namePrefix = filter.getNamePrefix();
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            String name = usersBySlot.get(slot).getName();
+            return name != null && name.toLowerCase(Locale.ROOT).startsWith(namePrefix.toLowerCase(Locale.ROOT));
+        }
+        return true;
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getName(), user.getEmail(), user.getPassword(), user.isAdmin(), user.isBlocked(),
+                user.getVersion());
+    }
 }
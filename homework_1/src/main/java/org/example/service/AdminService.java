@@ -4,37 +4,62 @@ import org.example.repository.UserRepository;
 import org.example.repository.TransactionRepository;
 import org.example.model.Transaction;
 import org.example.model.User;
+import org.example.model.UserFilter;
+import org.example.model.UserPage;
 
 import java.util.List;
 
 public class AdminService {
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final SessionService sessionService;
 
-    public AdminService(UserRepository userRepository, TransactionRepository transactionRepository) {
+    public AdminService(UserRepository userRepository, TransactionRepository transactionRepository, SessionService sessionService) {
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
+        this.sessionService = sessionService;
     }
 
     public List<User> getUsers() {
         return userRepository.findAll();
     }
 
+    public UserPage getUsersPage(UserFilter filter, String cursor, int limit) {
+        if (limit <= 0) {
+            return new UserPage(List.of(), null);
+        }
+        return userRepository.findPage(filter, cursor, limit);
+    }
+
+    public List<User> searchUsers(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return userRepository.search(query.trim(), limit);
+    }
+
     public List<Transaction> getUserTransactions(Long userId) {
         return transactionRepository.findByUserId(userId);
     }
 
     public boolean blockUser(Long userId) {
-        User user = userRepository.findById(userId);
-        if (user != null) {
-            user.setBlocked(true);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+        return OptimisticRetry.run(() -> {
+            User user = userRepository.findById(userId);
+            if (user != null) {
+                user.setBlocked(true);
+                userRepository.save(user);
+                sessionService.revokeAllForUser(userId);
+                return true;
+            }
+            return false;
+        });
     }
 
     public boolean deleteUser(Long userId) {
-        return userRepository.delete(userId);
+        if (userRepository.delete(userId)) {
+            sessionService.revokeAllForUser(userId);
+            return true;
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package org.example.service;
+
+import org.example.model.Budget;
+import org.example.model.BudgetForecast;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSnapshot;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Прогноз расходов на конец месяца по методу Холта (сглаживание уровня и тренда) над рядом дневных расходов.
+ * Ряды ведутся по пользователю и по его категориям и обновляются при каждой транзакции за O(1),
+ * поэтому прогноз не перечитывает историю. Транзакции задним числом и отмены точно меняют сумму
+ * с начала месяца, а в сглаживание попадают через текущий день. Траты будущими датами ждут своего дня
+ * и до него не сдвигают ни месяц, ни ряд.
+ */
+public class BudgetForecastService implements TransactionListener {
+    static final double ALPHA = 0.3;
+    static final double BETA = 0.1;
+    // Дольше этого перерыва пустые дни не прогоняются: сглаженный ряд уже сошёлся к нулю
+    private static final int MAX_IDLE_DAYS = 366;
+
+    private final BudgetService budgetService;
+    private final TransactionRepository transactionRepository;
+    private final Clock clock;
+    private final Map<Long, UserSeries> seriesByUser = new ConcurrentHashMap<>();
+
+    public BudgetForecastService(BudgetService budgetService, TransactionRepository transactionRepository) {
+        this(budgetService, transactionRepository, Clock.systemDefaultZone());
+    }
+
+    public BudgetForecastService(BudgetService budgetService, TransactionRepository transactionRepository, Clock clock) {
+        this.budgetService = budgetService;
+        this.transactionRepository = transactionRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Прогноз всех расходов пользователя на конец текущего месяца в сравнении с бюджетом.
+     */
+    public BudgetForecast getForecast(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        LocalDate today = LocalDate.now(clock);
+        YearMonth period = YearMonth.from(today);
+        double spent = 0;
+        double projected = 0;
+        UserSeries series = seriesByUser.get(userId);
+        if (series != null) {
+            synchronized (series) {
+                series.total.catchUp(today);
+                spent = series.total.spentIn(period);
+                projected = spent + series.total.projectRemaining(today);
+            }
+        }
+        Budget budget = budgetService.getBudgetByUserIdAndPeriod(userId, period);
+        double limit = budget == null ? 0 : budget.getAmount();
+        return new BudgetForecast(userId, null, period, spent, projected, limit,
+                budget == null ? 0 : Math.max(0, projected - limit));
+    }
+
+    /**
+     * Прогнозы по категориям, от больших к меньшим. Как и бюджет категории, прогноз включает её подкатегории
+     * и сравнивается с бюджетом категории на текущий месяц.
+     */
+    public List<BudgetForecast> getCategoryForecasts(Long userId) {
+        UserSeries series = userId == null ? null : seriesByUser.get(userId);
+        if (series == null) {
+            return List.of();
+        }
+        LocalDate today = LocalDate.now(clock);
+        YearMonth period = YearMonth.from(today);
+        Map<String, String> parents = budgetService.getCategoryParents(userId);
+        Map<String, double[]> totals = new HashMap<>();
+        synchronized (series) {
+            for (Map.Entry<String, Series> entry : series.byCategory.entrySet()) {
+                entry.getValue().catchUp(today);
+                double spent = entry.getValue().spentIn(period);
+                double projected = spent + entry.getValue().projectRemaining(today);
+                // Расходы поднимаются ко всем предкам; связи хранятся без циклов
+                for (String category = entry.getKey(); category != null; category = parents.get(category)) {
+                    double[] total = totals.computeIfAbsent(category, name -> new double[2]);
+                    total[0] += spent;
+                    total[1] += projected;
+                }
+            }
+        }
+        Map<String, Double> limits = new HashMap<>();
+        for (Budget budget : budgetService.getCategoryBudgets(userId, period)) {
+            limits.put(budget.getCategory(), budget.getAmount());
+            totals.computeIfAbsent(budget.getCategory(), name -> new double[2]);
+        }
+        List<BudgetForecast> forecasts = new ArrayList<>(totals.size());
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            Double limit = limits.get(entry.getKey());
+            double projected = entry.getValue()[1];
+            forecasts.add(new BudgetForecast(userId, entry.getKey(), period, entry.getValue()[0], projected,
+                    limit == null ? 0 : limit, limit == null ? 0 : Math.max(0, projected - limit)));
+        }
+        forecasts.sort(Comparator.comparingDouble(BudgetForecast::getProjected).reversed());
+        return forecasts;
+    }
+
+    /**
+     * Заполняет ряды по всей истории, например при старте. Обычная работа идёт по событиям транзакций.
+     */
+    public void rebuild() {
+        List<Transaction> history;
+        try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+            history = snapshot.findAll();
+        }
+        history.sort(Comparator.comparing(Transaction::getDate));
+        seriesByUser.clear();
+        for (Transaction transaction : history) {
+            record(transaction, 1);
+        }
+    }
+
+    @Override
+    public void onCreated(Transaction transaction) {
+        record(transaction, 1);
+    }
+
+    @Override
+    public void onUpdated(Transaction before, Transaction after) {
+        record(before, -1);
+        record(after, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction transaction) {
+        record(transaction, -1);
+    }
+
+    private void record(Transaction transaction, int sign) {
+        if (transaction.getType() != TransactionType.EXPENSE || transaction.getUserId() == null || transaction.getDate() == null) {
+            return;
+        }
+        LocalDate date = transaction.getDate().toLocalDate();
+        LocalDate today = LocalDate.now(clock);
+        double amount = sign * transaction.getAmount();
+        UserSeries series = seriesByUser.computeIfAbsent(transaction.getUserId(), id -> new UserSeries());
+        synchronized (series) {
+            series.total.add(date, amount, today);
+            if (transaction.getCategory() != null) {
+                series.byCategory.computeIfAbsent(transaction.getCategory(), category -> new Series()).add(date, amount, today);
+            }
+        }
+    }
+
+    private static final class UserSeries {
+        final Series total = new Series();
+        final Map<String, Series> byCategory = new HashMap<>();
+    }
+
+    /**
+     * Дневной ряд расходов. Текущий день копится в openSum и попадает в сглаживание, когда приходит следующий.
+     */
+    static final class Series {
+        private long openDay = Long.MIN_VALUE;
+        private double openSum;
+        private double level;
+        private double trend;
+        private int closedDays;
+        private YearMonth month;
+        private double monthSpent;
+        // Траты будущими датами по дням; в ряд попадают, когда день наступит
+        private final TreeMap<LocalDate, Double> pending = new TreeMap<>();
+
+        void add(LocalDate date, double amount, LocalDate today) {
+            if (date.isAfter(today)) {
+                pending.merge(date, amount, (sum, added) -> sum + added == 0 ? null : sum + added);
+                return;
+            }
+            catchUp(today);
+            apply(date, amount);
+        }
+
+        /**
+         * Переносит в ряд отложенные траты, чей день уже наступил.
+         */
+        void catchUp(LocalDate today) {
+            while (!pending.isEmpty() && !pending.firstKey().isAfter(today)) {
+                Map.Entry<LocalDate, Double> due = pending.pollFirstEntry();
+                apply(due.getKey(), due.getValue());
+            }
+        }
+
+        private void apply(LocalDate date, double amount) {
+            YearMonth transactionMonth = YearMonth.from(date);
+            if (month == null || transactionMonth.isAfter(month)) {
+                month = transactionMonth;
+                monthSpent = 0;
+            }
+            if (transactionMonth.equals(month)) {
+                monthSpent += amount;
+            }
+            long day = date.toEpochDay();
+            if (openDay == Long.MIN_VALUE) {
+                openDay = day;
+            }
+            advanceTo(day);
+            openSum += amount;
+        }
+
+        double spentIn(YearMonth period) {
+            return period.equals(month) ? monthSpent : 0;
+        }
+
+        /**
+         * Ожидаемые расходы с сегодняшнего дня до конца месяца сверх уже потраченного сегодня.
+         */
+        double projectRemaining(LocalDate today) {
+            if (openDay == Long.MIN_VALUE) {
+                return 0;
+            }
+            long day = today.toEpochDay();
+            advanceTo(day);
+            if (closedDays == 0) {
+                return 0; // истории меньше дня, прогнозировать не по чему
+            }
+            double todaySpent = openDay == day ? openSum : 0;
+            double projected = Math.max(0, level + trend - todaySpent);
+            int daysLeft = today.lengthOfMonth() - today.getDayOfMonth();
+            for (int ahead = 2; ahead <= daysLeft + 1; ahead++) {
+                projected += Math.max(0, level + ahead * trend);
+            }
+            return projected;
+        }
+
+        private void advanceTo(long day) {
+            if (day <= openDay) {
+                return;
+            }
+            close(openSum);
+            long idle = Math.min(day - openDay - 1, MAX_IDLE_DAYS);
+            for (long i = 0; i < idle; i++) {
+                close(0);
+            }
+            openDay = day;
+            openSum = 0;
+        }
+
+        private void close(double value) {
+            if (closedDays == 0) {
+                level = value;
+                trend = 0;
+            } else {
+                double previous = level;
+                level = ALPHA * value + (1 - ALPHA) * (level + trend);
+                trend = BETA * (level - previous) + (1 - BETA) * trend;
+            }
+            closedDays++;
+        }
+    }
+}
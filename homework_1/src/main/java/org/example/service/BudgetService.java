@@ -1,28 +1,85 @@
 package org.example.service;
 
 import org.example.model.Budget;
+import org.example.model.BudgetPeriodType;
 import org.example.repository.BudgetRepository;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class BudgetService {
+    public static final int MAX_WINDOW_DAYS = 92;
+
     private final BudgetRepository budgetRepository;
     private final TransactionService transactionService;
+    private volatile UserCommandExecutor userExecutor = UserCommandExecutor.inline();
 
     public BudgetService(BudgetRepository budgetRepository, TransactionService transactionService) {
         this.budgetRepository = budgetRepository;
         this.transactionService = transactionService;
     }
 
+    /**
+     * Исполнитель, в потоке шарда которого выполняются записи пользователя. По умолчанию записи идут в вызывающем потоке.
+     */
+    public void setUserExecutor(UserCommandExecutor userExecutor) {
+        this.userExecutor = userExecutor == null ? UserCommandExecutor.inline() : userExecutor;
+    }
+
     public Budget createBudget(Long userId, double amount, YearMonth period) {
-        if (userId == null || period == null || amount <= 0) {
+        return createBudget(userId, amount, period, null);
+    }
+
+    /**
+     * Бюджет на категорию вместе с её подкатегориями. category = null - бюджет на все расходы.
+     */
+    public Budget createBudget(Long userId, double amount, YearMonth period, String category) {
+        if (userId == null || period == null || amount <= 0 || (category != null && category.trim().isEmpty())) {
             return null;
         }
         Budget budget = new Budget();
         budget.setUserId(userId);
         budget.setAmount(amount);
         budget.setPeriod(period);
-        return budgetRepository.save(budget);
+        budget.setCategory(category);
+        return userExecutor.call(userId, () -> budgetRepository.save(budget));
+    }
+
+    /**
+     * Бюджет на неделю, две недели или скользящее окно. Для WEEKLY и BIWEEKLY периоды идут подряд от startDate,
+     * для ROLLING берутся последние windowDays дней. MONTHLY создаёт обычный месячный бюджет.
+     */
+    public Budget createPeriodBudget(Long userId, double amount, BudgetPeriodType type, LocalDate startDate, int windowDays) {
+        if (userId == null || type == null || amount <= 0) {
+            return null;
+        }
+        if (type == BudgetPeriodType.MONTHLY) {
+            return startDate == null ? null : createBudget(userId, amount, YearMonth.from(startDate));
+        }
+        int days = type == BudgetPeriodType.WEEKLY ? 7 : type == BudgetPeriodType.BIWEEKLY ? 14 : windowDays;
+        if (days <= 0 || days > MAX_WINDOW_DAYS || (type != BudgetPeriodType.ROLLING && startDate == null)) {
+            return null;
+        }
+        Budget budget = new Budget();
+        budget.setUserId(userId);
+        budget.setAmount(amount);
+        budget.setPeriodType(type);
+        budget.setStartDate(type == BudgetPeriodType.ROLLING ? null : startDate);
+        budget.setWindowDays(days);
+        return userExecutor.call(userId, () -> budgetRepository.save(budget));
+    }
+
+    /**
+     * Бюджеты пользователя с периодом не по календарному месяцу.
+     */
+    public List<Budget> getPeriodBudgets(Long userId) {
+        if (userId == null) return List.of();
+        return budgetRepository.findByUserId(userId).stream()
+                .filter(b -> b.getPeriodType() != null && b.getPeriodType() != BudgetPeriodType.MONTHLY)
+                .collect(Collectors.toList());
     }
 
     public Budget getBudgetById(Long budgetId) {
@@ -33,27 +90,80 @@ public class BudgetService {
     public Budget getBudgetByUserIdAndPeriod(Long userId, YearMonth period) {
         if (userId == null || period == null) return null;
         return budgetRepository.findByUserId(userId).stream()
-                .filter(b -> b.getPeriod().equals(period))
+                .filter(b -> period.equals(b.getPeriod()) && b.getCategory() == null)
                 .findFirst()
                 .orElse(null);
     }
 
-    public boolean updateBudget(Long budgetId, Double amount) {
-        Budget budget = budgetRepository.findById(budgetId);
-        if (budget != null && amount != null && amount > 0) {
-            budget.setAmount(amount);
-            budgetRepository.save(budget);
-            return true;
+    public List<Budget> getCategoryBudgets(Long userId, YearMonth period) {
+        if (userId == null || period == null) return List.of();
+        return budgetRepository.findByUserId(userId).stream()
+                .filter(b -> period.equals(b.getPeriod()) && b.getCategory() != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Сохраняет родителя категории вместе с бюджетами. Проверку на циклы делает CategoryBudgetService.
+     */
+    public void setCategoryParent(Long userId, String category, String parent) {
+        if (userId == null || category == null || category.trim().isEmpty()) {
+            return;
         }
-        return false;
+        userExecutor.call(userId, () -> {
+            budgetRepository.saveCategoryParent(userId, category, parent);
+            return null;
+        });
+    }
+
+    /**
+     * Родители категорий пользователя: категория -> родитель. Категорий верхнего уровня в карте нет.
+     */
+    public Map<String, String> getCategoryParents(Long userId) {
+        if (userId == null) return Map.of();
+        return budgetRepository.findCategoryParents(userId);
+    }
+
+    public Map<Long, Map<String, String>> getAllCategoryParents() {
+        return budgetRepository.findAllCategoryParents();
+    }
+
+    public List<Budget> getBudgetsByPeriod(YearMonth period) {
+        if (period == null) return List.of();
+        return budgetRepository.findAll().stream()
+                .filter(b -> period.equals(b.getPeriod()))
+                .collect(Collectors.toList());
+    }
+
+    public boolean updateBudget(Long budgetId, Double amount) {
+        return userExecutor.call(ownerOf(budgetId), () -> OptimisticRetry.run(() -> {
+            Budget budget = budgetRepository.findById(budgetId);
+            if (budget != null && amount != null && amount > 0) {
+                budget.setAmount(amount);
+                budgetRepository.save(budget);
+                return true;
+            }
+            return false;
+        }));
     }
 
     public boolean deleteBudget(Long budgetId) {
-        if (budgetId == null || budgetRepository.findById(budgetId) == null) {
+        Budget budget = budgetId == null ? null : budgetRepository.findById(budgetId);
+        if (budget == null) {
             return false;
         }
-        budgetRepository.delete(budgetId);
-        return true;
+        return userExecutor.call(budget.getUserId(), () -> {
+            budgetRepository.delete(budgetId);
+            return true;
+        });
+    }
+
+    // Владелец бюджета нужен только для выбора шарда
+    private Long ownerOf(Long budgetId) {
+        if (budgetId == null || !userExecutor.isSharded()) {
+            return null;
+        }
+        Budget budget = budgetRepository.findById(budgetId);
+        return budget == null ? null : budget.getUserId();
     }
 
     public boolean isBudgetExceeded(Long userId, YearMonth period, TransactionService transactionService) {
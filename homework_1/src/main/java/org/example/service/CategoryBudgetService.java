@@ -0,0 +1,171 @@
+package org.example.service;
+
+import org.example.model.Budget;
+import org.example.model.BudgetStatus;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSnapshot;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Бюджеты по категориям с иерархией (например, Еда -> Продукты, Рестораны).
+ * Расходы ведутся по событиям транзакций в дереве категорий пользователя и сразу поднимаются к предкам,
+ * поэтому проверка всех бюджетов пользователя стоит O(число бюджетов) и не читает транзакции.
+ */
+public class CategoryBudgetService implements TransactionListener {
+    private final BudgetService budgetService;
+    private final TransactionRepository transactionRepository;
+    private final Map<Long, CategoryTree> trees = new ConcurrentHashMap<>();
+
+    public CategoryBudgetService(BudgetService budgetService, TransactionRepository transactionRepository) {
+        this.budgetService = budgetService;
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * Делает parent родителем категории (null - категория верхнего уровня). Уже учтённые расходы переносятся.
+     * Возвращает false, если получился бы цикл.
+     */
+    public boolean setParentCategory(Long userId, String category, String parent) {
+        if (userId == null || category == null || category.trim().isEmpty() || category.equals(parent)) {
+            return false;
+        }
+        CategoryTree tree = tree(userId);
+        synchronized (tree) {
+            if (!tree.setParent(category, parent)) {
+                return false;
+            }
+            budgetService.setCategoryParent(userId, category, parent);
+            return true;
+        }
+    }
+
+    public String getParentCategory(Long userId, String category) {
+        CategoryTree tree = userId == null ? null : trees.get(userId);
+        if (tree == null) {
+            return null;
+        }
+        synchronized (tree) {
+            return tree.parentOf(category);
+        }
+    }
+
+    /**
+     * Расходы категории вместе с подкатегориями за месяц. category = null - все расходы.
+     */
+    public double getSpent(Long userId, String category, YearMonth period) {
+        CategoryTree tree = userId == null || period == null ? null : trees.get(userId);
+        if (tree == null) {
+            return 0;
+        }
+        synchronized (tree) {
+            return tree.spent(category, period);
+        }
+    }
+
+    /**
+     * Состояние всех бюджетов пользователя за месяц, включая общий.
+     */
+    public List<BudgetStatus> evaluate(Long userId, YearMonth period) {
+        if (userId == null || period == null) {
+            return List.of();
+        }
+        List<Budget> budgets = new ArrayList<>(budgetService.getCategoryBudgets(userId, period));
+        Budget total = budgetService.getBudgetByUserIdAndPeriod(userId, period);
+        if (total != null) {
+            budgets.add(0, total);
+        }
+        return statuses(budgets, period);
+    }
+
+    /**
+     * Проверка всех бюджетов месяца, например при его закрытии. Возвращает только превышенные.
+     */
+    public List<BudgetStatus> findExceeded(YearMonth period) {
+        List<BudgetStatus> exceeded = new ArrayList<>();
+        for (BudgetStatus status : statuses(budgetService.getBudgetsByPeriod(period), period)) {
+            if (status.isExceeded()) {
+                exceeded.add(status);
+            }
+        }
+        return exceeded;
+    }
+
+    /**
+     * Заполняет деревья расходами из истории, например при старте. Иерархия категорий берётся из бюджетов.
+     */
+    public void rebuild() {
+        List<Transaction> history;
+        try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+            history = snapshot.findAll();
+        }
+        for (CategoryTree tree : trees.values()) {
+            synchronized (tree) {
+                tree.clearSpending();
+            }
+        }
+        for (Map.Entry<Long, Map<String, String>> user : budgetService.getAllCategoryParents().entrySet()) {
+            CategoryTree tree = tree(user.getKey());
+            synchronized (tree) {
+                // Сохранённые связи не образуют цикла, поэтому порядок их восстановления не важен
+                for (Map.Entry<String, String> link : user.getValue().entrySet()) {
+                    tree.setParent(link.getKey(), link.getValue());
+                }
+            }
+        }
+        for (Transaction transaction : history) {
+            record(transaction, 1);
+        }
+    }
+
+    @Override
+    public void onCreated(Transaction transaction) {
+        record(transaction, 1);
+    }
+
+    @Override
+    public void onUpdated(Transaction before, Transaction after) {
+        record(before, -1);
+        record(after, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction transaction) {
+        record(transaction, -1);
+    }
+
+    private List<BudgetStatus> statuses(List<Budget> budgets, YearMonth period) {
+        List<BudgetStatus> statuses = new ArrayList<>(budgets.size());
+        for (Budget budget : budgets) {
+            double spent = getSpent(budget.getUserId(), budget.getCategory(), period);
+            statuses.add(new BudgetStatus(budget.getId(), budget.getUserId(), budget.getCategory(), period,
+                    period.atDay(1), period.atEndOfMonth(), budget.getAmount(), spent, spent > budget.getAmount()));
+        }
+        return statuses;
+    }
+
+    private void record(Transaction transaction, int sign) {
+        if (!isExpense(transaction)) {
+            return;
+        }
+        CategoryTree tree = tree(transaction.getUserId());
+        synchronized (tree) {
+            tree.add(transaction.getCategory(), YearMonth.from(transaction.getDate()), sign * transaction.getAmount());
+        }
+    }
+
+    private CategoryTree tree(Long userId) {
+        return trees.computeIfAbsent(userId, id -> new CategoryTree());
+    }
+
+    private static boolean isExpense(Transaction transaction) {
+        return transaction.getType() == TransactionType.EXPENSE && transaction.getUserId() != null
+                && transaction.getDate() != null;
+    }
+}
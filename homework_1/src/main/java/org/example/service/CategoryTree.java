@@ -0,0 +1,119 @@
+package org.example.service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дерево категорий пользователя с расходами по месяцам. Узел 0 - корень "все расходы".
+ * Для каждого месяца хранится массив сумм по поддеревьям: расход добавляется в категорию и всех её предков,
+ * поэтому сумма любой категории вместе с подкатегориями читается за O(1).
+ * Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+ */
+final class CategoryTree {
+    static final int ROOT = 0;
+
+    private final Map<String, Integer> nodeByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int[] parents = new int[8];
+    private final Map<YearMonth, double[]> subtreeSums = new HashMap<>();
+
+    CategoryTree() {
+        names.add(null);
+        parents[ROOT] = -1;
+    }
+
+    /**
+     * Номер узла категории, новая категория подвешивается к корню. null - корень.
+     */
+    int node(String category) {
+        if (category == null) {
+            return ROOT;
+        }
+        Integer node = nodeByName.get(category);
+        if (node != null) {
+            return node;
+        }
+        int created = names.size();
+        names.add(category);
+        nodeByName.put(category, created);
+        if (created == parents.length) {
+            parents = Arrays.copyOf(parents, created * 2);
+        }
+        parents[created] = ROOT;
+        return created;
+    }
+
+    String parentOf(String category) {
+        Integer node = category == null ? null : nodeByName.get(category);
+        return node == null ? null : names.get(parents[node]);
+    }
+
+    /**
+     * Переносит категорию под parent (null - под корень) вместе с накопленными суммами.
+     * Возвращает false, если parent лежит в поддереве категории.
+     */
+    boolean setParent(String category, String parent) {
+        int child = node(category);
+        int newParent = node(parent);
+        for (int ancestor = newParent; ancestor >= 0; ancestor = parents[ancestor]) {
+            if (ancestor == child) {
+                return false;
+            }
+        }
+        int oldParent = parents[child];
+        if (oldParent == newParent) {
+            return true;
+        }
+        for (YearMonth month : subtreeSums.keySet()) {
+            double[] sums = sumsFor(month);
+            double moved = sums[child];
+            if (moved != 0) {
+                propagate(sums, oldParent, -moved);
+                propagate(sums, newParent, moved);
+            }
+        }
+        parents[child] = newParent;
+        return true;
+    }
+
+    /**
+     * Добавляет расход в категорию и её предков: O(глубина дерева).
+     */
+    void add(String category, YearMonth month, double amount) {
+        int node = node(category);
+        propagate(sumsFor(month), node, amount);
+    }
+
+    /**
+     * Расходы категории вместе с подкатегориями за месяц, category = null - все расходы.
+     */
+    double spent(String category, YearMonth month) {
+        Integer node = category == null ? Integer.valueOf(ROOT) : nodeByName.get(category);
+        double[] sums = subtreeSums.get(month);
+        return node == null || sums == null || node >= sums.length ? 0 : sums[node];
+    }
+
+    void clearSpending() {
+        subtreeSums.clear();
+    }
+
+    // Массив сумм месяца, растянутый под все узлы
+    private double[] sumsFor(YearMonth month) {
+        double[] sums = subtreeSums.computeIfAbsent(month, key -> new double[names.size()]);
+        if (sums.length < names.size()) {
+            sums = Arrays.copyOf(sums, Math.max(names.size(), sums.length * 2));
+            subtreeSums.put(month, sums);
+        }
+        return sums;
+    }
+
+    private void propagate(double[] sums, int node, double amount) {
+        for (int current = node; current >= 0; current = parents[current]) {
+            sums[current] += amount;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.service;
+
+import org.example.model.Goal;
+import org.example.model.GoalDeadlineEvent;
+import org.example.util.IndexedLongHeap;
+import org.example.util.LongObjectMap;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Планировщик сроков целей. Цели лежат в куче по времени ближайшего события: сначала
+ * "срок приближается" (за warnBefore до начала дня срока), затем "срок прошёл" (начало следующего дня).
+ * Фоновый поток спит до вершины кучи и будится, если вершина сменилась, поэтому события уходят
+ * в момент наступления без обхода всех целей. Постановка и перенос срока - O(log n).
+ * После "срок прошёл" цель уходит из расписания. Цель вне расписания, чей срок уже прошёл, не планируется,
+ * поэтому правка цели не отправит событие снова. По той же причине при старте планируются только цели,
+ * срок которых ещё не прошёл.
+ */
+public class GoalDeadlineScheduler {
+    private static final byte APPROACHING = 0;
+    private static final byte MISSED = 1;
+
+    private final GoalService goalService;
+    private final NotificationService notificationService;
+    private final long warnBeforeMillis;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition headChanged = lock.newCondition();
+    // Под lock
+    private final IndexedLongHeap queue = new IndexedLongHeap();
+    private final LongObjectMap<Deadline> deadlines = new LongObjectMap<>();
+    private Thread worker;
+    private boolean running;
+
+    public GoalDeadlineScheduler(GoalService goalService, NotificationService notificationService) {
+        this(goalService, notificationService, Duration.ofDays(7), Clock.systemDefaultZone());
+    }
+
+    public GoalDeadlineScheduler(GoalService goalService, NotificationService notificationService,
+                                 Duration warnBefore, Clock clock) {
+        if (warnBefore == null || warnBefore.isNegative() || clock == null) {
+            throw new IllegalArgumentException("Invalid scheduler settings");
+        }
+        this.goalService = goalService;
+        this.notificationService = notificationService;
+        this.warnBeforeMillis = warnBefore.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Ставит цель в расписание или переносит, если срок изменился. Срок, который уже прошёл, не планируется.
+     */
+    public void schedule(Goal goal) {
+        if (goal == null || goal.getId() == null || goal.getDeadline() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            Deadline current = deadlines.get(goal.getId());
+            if (current != null && current.date.equals(goal.getDeadline())) {
+                current.name = goal.getName();
+                return;
+            }
+            Deadline deadline = new Deadline(goal.getUserId(), goal.getName(), goal.getDeadline());
+            long now = clock.millis();
+            if (current == null && now >= missedAt(deadline.date)) {
+                return;
+            }
+            deadline.stage = now >= missedAt(deadline.date) ? MISSED : APPROACHING;
+            deadlines.put(goal.getId(), deadline);
+            enqueue(goal.getId(), deadline);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(Long goalId) {
+        if (goalId == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            deadlines.remove(goalId);
+            queue.remove(goalId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getScheduledCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Отправляет все события, время которых наступило. Возвращает число отправленных.
+     */
+    public int fireDue() {
+        List<GoalDeadlineEvent> due = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = clock.millis();
+            while (!queue.isEmpty() && queue.peekPriority() <= now) {
+                long goalId = queue.poll();
+                Deadline deadline = deadlines.get(goalId);
+                due.add(new GoalDeadlineEvent(goalId, deadline.userId, deadline.name, deadline.date,
+                        deadline.stage == APPROACHING ? GoalDeadlineEvent.Type.APPROACHING : GoalDeadlineEvent.Type.MISSED));
+                if (deadline.stage == APPROACHING) {
+                    deadline.stage = MISSED;
+                    enqueue(goalId, deadline);
+                } else {
+                    deadlines.remove(goalId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        int sent = 0;
+        for (GoalDeadlineEvent event : due) {
+            // Достигнутые и удалённые цели не беспокоят пользователя. Цель читается через сервис,
+            // чтобы учесть взносы, накопленные в счётчике и ещё не перенесённые в репозиторий
+            Goal goal = goalService.getGoalById(event.getGoalId());
+            if (goal != null && goal.getCurrentAmount() < goal.getTargetAmount()) {
+                notificationService.sendGoalDeadlineNotification(event);
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Планирует уже существующие цели и запускает фоновый поток.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (running) {
+                return;
+            }
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        for (Goal goal : goalService.getAllGoals()) {
+            schedule(goal);
+        }
+        lock.lock();
+        try {
+            worker = new Thread(this::runLoop, "goal-deadlines");
+            worker.setDaemon(true);
+            worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            headChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runLoop() {
+        while (awaitDue()) {
+            fireDue();
+        }
+    }
+
+    // Ждёт, пока наступит время вершины кучи. false - планировщик остановлен
+    private boolean awaitDue() {
+        lock.lock();
+        try {
+            while (running) {
+                if (queue.isEmpty()) {
+                    headChanged.await();
+                    continue;
+                }
+                long wait = queue.peekPriority() - clock.millis();
+                if (wait <= 0) {
+                    return true;
+                }
+                headChanged.await(wait, TimeUnit.MILLISECONDS);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(long goalId, Deadline deadline) {
+        long dueAt = deadline.stage == APPROACHING ? approachingAt(deadline.date) : missedAt(deadline.date);
+        boolean newHead = queue.isEmpty() || dueAt < queue.peekPriority() || queue.peekId() == goalId;
+        queue.put(goalId, dueAt);
+        if (newHead) {
+            headChanged.signal();
+        }
+    }
+
+    private long approachingAt(LocalDate date) {
+        return date.atStartOfDay(clock.getZone()).toInstant().toEpochMilli() - warnBeforeMillis;
+    }
+
+    private long missedAt(LocalDate date) {
+        return date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private static final class Deadline {
+        final Long userId;
+        final LocalDate date;
+        String name;
+        byte stage;
+
+        Deadline(Long userId, String name, LocalDate date) {
+            this.userId = userId;
+            this.name = name;
+            this.date = date;
+        }
+    }
+}
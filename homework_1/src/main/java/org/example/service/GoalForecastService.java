@@ -0,0 +1,322 @@
+package org.example.service;
+
+import org.example.model.Goal;
+import org.example.model.GoalForecast;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.util.EpochMonths;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Прогноз даты достижения целей. По истории пользователя считаются среднее и разброс чистых
+ * месячных накоплений (доходы минус расходы), затем методом Монте-Карло разыгрываются сценарии
+ * накопления остатка цели. Сценарии делятся на пачки и считаются параллельно в пуле.
+ * Прогнозы кэшируются по пользователю до новых транзакций пользователя или до смены месяца:
+ * в новом месяце история сдвигается. При постоянных накоплениях (разброс 0) сценарий один,
+ * он считается без розыгрыша.
+ */
+public class GoalForecastService implements TransactionListener {
+    static final int PATHS = 10_000;
+    static final int HORIZON_MONTHS = 240;
+    private static final int HISTORY_MONTHS = 12;
+    private static final int BATCH_PATHS = 1_000;
+    private static final byte INCOME = (byte) TransactionType.INCOME.ordinal();
+    private static final byte EXPENSE = (byte) TransactionType.EXPENSE.ordinal();
+
+    private final GoalService goalService;
+    private final TransactionRepository transactionRepository;
+    private final ForkJoinPool pool;
+    private final Clock clock;
+
+    private final Map<Long, UserForecasts> cache = new ConcurrentHashMap<>();
+    // Счётчик сбросов по пользователю: расчёт, начатый до сброса, не попадёт в кэш
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+
+    public GoalForecastService(GoalService goalService, TransactionRepository transactionRepository) {
+        this(goalService, transactionRepository, ForkJoinPool.commonPool(), Clock.systemDefaultZone());
+    }
+
+    public GoalForecastService(GoalService goalService, TransactionRepository transactionRepository, ForkJoinPool pool,
+                               Clock clock) {
+        this.goalService = goalService;
+        this.transactionRepository = transactionRepository;
+        this.pool = pool;
+        this.clock = clock;
+    }
+
+    /**
+     * Прогноз по цели. Повторный запрос без новых транзакций и изменений цели отдаётся из кэша.
+     */
+    public GoalForecast getForecast(Long goalId) {
+        if (goalId == null) {
+            return null;
+        }
+        Goal goal = goalService.getGoalById(goalId);
+        if (goal == null) {
+            return null;
+        }
+        return forecast(goal, userForecasts(goal.getUserId()), true);
+    }
+
+    public List<GoalForecast> getForecasts(Long userId) {
+        if (userId == null) {
+            return List.of();
+        }
+        UserForecasts forecasts = userForecasts(userId);
+        List<GoalForecast> result = new ArrayList<>();
+        for (Goal goal : goalService.getGoalsByUserId(userId)) {
+            result.add(forecast(goal, forecasts, true));
+        }
+        return result;
+    }
+
+    /**
+     * Пересчитывает прогнозы всех целей, например ночью. Пользователи считаются параллельно.
+     * Возвращает число целей.
+     */
+    public int refreshAll() {
+        Map<Long, List<Goal>> goalsByUser = goalService.getAllGoals().stream()
+                .filter(goal -> goal.getUserId() != null)
+                .collect(Collectors.groupingBy(Goal::getUserId));
+        cache.clear();
+        return pool.submit(() -> goalsByUser.entrySet().parallelStream()
+                .mapToInt(entry -> {
+                    UserForecasts forecasts = userForecasts(entry.getKey());
+                    for (Goal goal : entry.getValue()) {
+                        forecast(goal, forecasts, false);
+                    }
+                    return entry.getValue().size();
+                })
+                .sum()).join();
+    }
+
+    @Override
+    public void onCreated(Transaction transaction) {
+        invalidate(transaction.getUserId());
+    }
+
+    @Override
+    public void onUpdated(Transaction before, Transaction after) {
+        invalidate(after.getUserId());
+    }
+
+    @Override
+    public void onDeleted(Transaction transaction) {
+        invalidate(transaction.getUserId());
+    }
+
+    private void invalidate(Long userId) {
+        if (userId != null) {
+            generations.merge(userId, 1L, Long::sum);
+            cache.remove(userId);
+        }
+    }
+
+    private UserForecasts userForecasts(Long userId) {
+        YearMonth month = YearMonth.now(clock);
+        UserForecasts cached = cache.get(userId);
+        if (cached != null) {
+            if (cached.month.equals(month)) {
+                return cached;
+            }
+            cache.remove(userId, cached);
+        }
+        long generation = generations.getOrDefault(userId, 0L);
+        UserForecasts computed = new UserForecasts(month, monthlySavings(userId, month));
+        UserForecasts raced = cache.putIfAbsent(userId, computed);
+        if (raced != null) {
+            // Соперник успел раньше; его запись за прошлый месяц уберёт следующий запрос
+            return raced.month.equals(month) ? raced : computed;
+        }
+        if (generations.getOrDefault(userId, 0L) != generation) {
+            // Пока считали, пришла транзакция: отдаём результат, но в кэше не оставляем
+            cache.remove(userId, computed);
+        }
+        return computed;
+    }
+
+    // Чистые накопления по полным месяцам за последний год, начиная с первого месяца с транзакциями
+    private double[] monthlySavings(Long userId, YearMonth current) {
+        YearMonth first = current.minusMonths(HISTORY_MONTHS);
+        int firstIndex = EpochMonths.monthIndex(first);
+        double[] net = new double[HISTORY_MONTHS];
+        int[] earliest = {HISTORY_MONTHS};
+        transactionRepository.forEachByUser(userId, first.atDay(1).atStartOfDay(),
+                current.minusMonths(1).atEndOfMonth().atTime(23, 59, 59), (epochSecond, amount, categoryId, type) -> {
+                    int month = EpochMonths.monthIndex(epochSecond) - firstIndex;
+                    if (month < 0 || month >= HISTORY_MONTHS) {
+                        return;
+                    }
+                    if (type == INCOME) {
+                        net[month] += amount;
+                    } else if (type == EXPENSE) {
+                        net[month] -= amount;
+                    }
+                    earliest[0] = Math.min(earliest[0], month);
+                });
+        int months = HISTORY_MONTHS - earliest[0];
+        double mean = 0;
+        for (int i = earliest[0]; i < HISTORY_MONTHS; i++) {
+            mean += net[i];
+        }
+        mean = months == 0 ? 0 : mean / months;
+        double variance = 0;
+        for (int i = earliest[0]; i < HISTORY_MONTHS; i++) {
+            variance += (net[i] - mean) * (net[i] - mean);
+        }
+        double stdDev = months < 2 ? 0 : Math.sqrt(variance / (months - 1));
+        return new double[]{mean, stdDev};
+    }
+
+    private GoalForecast forecast(Goal goal, UserForecasts forecasts, boolean parallel) {
+        LocalDate today = LocalDate.now(clock);
+        CachedForecast cached = forecasts.goals.get(goal.getId());
+        if (cached != null && cached.matches(goal, today)) {
+            return copy(cached.forecast);
+        }
+        GoalForecast forecast = simulate(goal, forecasts.mean, forecasts.stdDev, today, parallel);
+        forecasts.goals.put(goal.getId(), new CachedForecast(goal, today, forecast));
+        return copy(forecast);
+    }
+
+    private GoalForecast simulate(Goal goal, double mean, double stdDev, LocalDate today, boolean parallel) {
+        double remaining = Math.max(0, goal.getTargetAmount() - goal.getCurrentAmount());
+        if (remaining == 0) {
+            return new GoalForecast(goal.getId(), 0, mean, stdDev, today, today, 1);
+        }
+        // Зерно зависит только от цели: пересчёт без новых данных даёт тот же прогноз
+        long seed = goal.getId() * 0x9E3779B97F4A7C15L;
+        int batches = PATHS / BATCH_PATHS;
+        int[] completedInMonth;
+        if (stdDev == 0) {
+            // Все сценарии одинаковы: считаем один, без 10 000 x 240 розыгрышей
+            completedInMonth = new int[HORIZON_MONTHS + 2];
+            completedInMonth[steadyMonth(remaining, mean)] = PATHS;
+        } else if (parallel) {
+            completedInMonth = pool.submit(() -> IntStream.range(0, batches).parallel()
+                    .mapToObj(batch -> simulateBatch(remaining, mean, stdDev, seed + batch))
+                    .reduce(GoalForecastService::merge)
+                    .orElseThrow()).join();
+        } else {
+            completedInMonth = new int[HORIZON_MONTHS + 2];
+            for (int batch = 0; batch < batches; batch++) {
+                merge(completedInMonth, simulateBatch(remaining, mean, stdDev, seed + batch));
+            }
+        }
+        int monthsToDeadline = goal.getDeadline() == null ? HORIZON_MONTHS
+                : (int) Math.min(HORIZON_MONTHS, Math.max(0, ChronoUnit.MONTHS.between(today, goal.getDeadline())));
+        int byDeadline = 0;
+        for (int month = 1; month <= monthsToDeadline; month++) {
+            byDeadline += completedInMonth[month];
+        }
+        return new GoalForecast(goal.getId(), remaining, mean, stdDev,
+                dateOfQuantile(completedInMonth, 0.5, today), dateOfQuantile(completedInMonth, 0.9, today),
+                (double) byDeadline / PATHS);
+    }
+
+    // Месяц достижения при одинаковых накоплениях; HORIZON_MONTHS + 1 - не достигнута
+    private static int steadyMonth(double remaining, double mean) {
+        if (mean <= 0) {
+            return HORIZON_MONTHS + 1;
+        }
+        double saved = 0;
+        int month = 1;
+        for (; month <= HORIZON_MONTHS; month++) {
+            saved += mean;
+            if (saved >= remaining) {
+                break;
+            }
+        }
+        return month;
+    }
+
+    // completed[m] - число сценариев, где цель достигнута в месяце m; HORIZON_MONTHS + 1 - не достигнута
+    private static int[] simulateBatch(double remaining, double mean, double stdDev, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] completed = new int[HORIZON_MONTHS + 2];
+        for (int path = 0; path < BATCH_PATHS; path++) {
+            double saved = 0;
+            int month = 1;
+            for (; month <= HORIZON_MONTHS; month++) {
+                saved += mean + stdDev * random.nextGaussian();
+                if (saved >= remaining) {
+                    break;
+                }
+            }
+            completed[month]++;
+        }
+        return completed;
+    }
+
+    private static int[] merge(int[] into, int[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+        return into;
+    }
+
+    private static LocalDate dateOfQuantile(int[] completedInMonth, double quantile, LocalDate today) {
+        long needed = (long) Math.ceil(quantile * PATHS);
+        long seen = 0;
+        for (int month = 1; month <= HORIZON_MONTHS; month++) {
+            seen += completedInMonth[month];
+            if (seen >= needed) {
+                return today.plusMonths(month);
+            }
+        }
+        return null;
+    }
+
+    private static GoalForecast copy(GoalForecast forecast) {
+        return new GoalForecast(forecast.getGoalId(), forecast.getRemainingAmount(), forecast.getMonthlySavingsMean(),
+                forecast.getMonthlySavingsStdDev(), forecast.getExpectedDate(), forecast.getPessimisticDate(),
+                forecast.getProbabilityByDeadline());
+    }
+
+    private static final class UserForecasts {
+        final YearMonth month;   // история посчитана до начала этого месяца
+        final double mean;
+        final double stdDev;
+        final Map<Long, CachedForecast> goals = new ConcurrentHashMap<>();
+
+        UserForecasts(YearMonth month, double[] savings) {
+            this.month = month;
+            this.mean = savings[0];
+            this.stdDev = savings[1];
+        }
+    }
+
+    private static final class CachedForecast {
+        final double targetAmount;
+        final double currentAmount;
+        final LocalDate deadline;
+        final LocalDate computedOn;
+        final GoalForecast forecast;
+
+        CachedForecast(Goal goal, LocalDate computedOn, GoalForecast forecast) {
+            this.targetAmount = goal.getTargetAmount();
+            this.currentAmount = goal.getCurrentAmount();
+            this.deadline = goal.getDeadline();
+            this.computedOn = computedOn;
+            this.forecast = forecast;
+        }
+
+        boolean matches(Goal goal, LocalDate today) {
+            return targetAmount == goal.getTargetAmount() && currentAmount == goal.getCurrentAmount()
+                    && computedOn.equals(today) && (deadline == null ? goal.getDeadline() == null : deadline.equals(goal.getDeadline()));
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.example.service;
+
+import org.example.model.Goal;
+import org.example.model.GoalFundingRule;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSnapshot;
+import org.example.util.IdGenerator;
+import org.example.util.LongDoubleMap;
+import org.example.util.LongIntMap;
+import org.example.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Автоматическое пополнение целей из доходов. Правило пользователя отправляет процент каждого дохода в цель.
+ * Сервис подписывается на события TransactionService: доход распределяется по правилам своего пользователя,
+ * а при изменении или удалении транзакции прежнее распределение отменяется. Для этого запоминается,
+ * сколько каждая транзакция отдала в какие цели. Пересчёт по всей истории идёт параллельно по снимку транзакций.
+ * Под монитором сервиса меняется только учёт распределений; цели пополняются и пересчёт считается вне его.
+ * Распределённое и внесённое в цели учитываются отдельно: разница вносится, когда GoalService её принял,
+ * непринятая остаётся и вносится при следующем пополнении, а остаток меньше MIN_DELTA копится до него же.
+ * Правила удалённой цели удаляются, когда очередное пополнение не находит цели.
+ */
+public class GoalFundingService implements TransactionListener {
+    private static final double MIN_DELTA = 0.005;
+
+    private final GoalService goalService;
+    private final TransactionRepository transactionRepository;
+    private final ForkJoinPool pool;
+    private final Object recomputeLock = new Object();
+
+    // Состояние меняется только под монитором сервиса
+    private final LongObjectMap<List<GoalFundingRule>> rulesByUser = new LongObjectMap<>();
+    private final LongObjectMap<Allocation> allocations = new LongObjectMap<>();
+    private LongDoubleMap allocatedByGoal = new LongDoubleMap();
+    private final LongDoubleMap fundedByGoal = new LongDoubleMap();
+    // Суммы, которые сейчас вносятся в цели без монитора
+    private final LongDoubleMap inFlightByGoal = new LongDoubleMap();
+    // Цели, у которых распределённое может расходиться с внесённым
+    private final LongIntMap unsettledGoals = new LongIntMap();
+    // Транзакции, по которым пришли события во время пересчёта; null - пересчёта нет
+    private LongIntMap touchedDuringRecompute;
+
+    public GoalFundingService(GoalService goalService, TransactionRepository transactionRepository) {
+        this(goalService, transactionRepository, ForkJoinPool.commonPool());
+    }
+
+    public GoalFundingService(GoalService goalService, TransactionRepository transactionRepository, ForkJoinPool pool) {
+        this.goalService = goalService;
+        this.transactionRepository = transactionRepository;
+        this.pool = pool;
+    }
+
+    /**
+     * Добавляет правило. Цель должна принадлежать пользователю, сумма процентов его правил - не больше 100.
+     * Правило действует на новые доходы, прошлые учитываются при пересчёте.
+     */
+    public GoalFundingRule addRule(Long userId, Long goalId, double percent) {
+        if (userId == null || goalId == null || percent <= 0 || percent > 100) {
+            return null;
+        }
+        Goal goal = goalService.getGoalById(goalId);
+        if (goal == null || !userId.equals(goal.getUserId())) {
+            return null;
+        }
+        synchronized (this) {
+            List<GoalFundingRule> rules = rulesByUser.computeIfAbsent(userId, id -> new ArrayList<>());
+            double total = percent;
+            for (GoalFundingRule rule : rules) {
+                total += rule.getPercent();
+            }
+            if (total > 100) {
+                return null;
+            }
+            GoalFundingRule rule = new GoalFundingRule(IdGenerator.shared().nextId(), userId, goalId, percent);
+            rules.add(rule);
+            return copy(rule);
+        }
+    }
+
+    public synchronized boolean removeRule(Long userId, Long ruleId) {
+        List<GoalFundingRule> rules = userId == null ? null : rulesByUser.get(userId);
+        return rules != null && rules.removeIf(rule -> rule.getId().equals(ruleId));
+    }
+
+    public synchronized List<GoalFundingRule> getRules(Long userId) {
+        List<GoalFundingRule> rules = userId == null ? null : rulesByUser.get(userId);
+        if (rules == null) {
+            return List.of();
+        }
+        return rules.stream().map(GoalFundingService::copy).collect(Collectors.toList());
+    }
+
+    /**
+     * Сумма, которую правила отправили в цель и цель приняла.
+     */
+    public synchronized double getFundedAmount(Long goalId) {
+        return goalId == null ? 0 : fundedByGoal.get(goalId, 0);
+    }
+
+    @Override
+    public void onCreated(Transaction transaction) {
+        onUpdated(null, transaction);
+    }
+
+    @Override
+    public void onUpdated(Transaction before, Transaction after) {
+        synchronized (this) {
+            touch(after.getId());
+            apply(after);
+        }
+        settle();
+    }
+
+    @Override
+    public void onDeleted(Transaction transaction) {
+        synchronized (this) {
+            touch(transaction.getId());
+            reverse(transaction.getId());
+        }
+        settle();
+    }
+
+    /**
+     * Перераспределяет все доходы по правилам на момент вызова. Цели получают разницу между новой и прежней
+     * суммой пополнений, поэтому ручные взносы сохраняются. Возвращает число распределённых доходов.
+     * События транзакций не ждут пересчёта: распределение транзакций, изменённых за время пересчёта,
+     * остаётся таким, каким его сделали события.
+     */
+    public int recompute() {
+        synchronized (recomputeLock) {
+            LongObjectMap<List<GoalFundingRule>> rules;
+            synchronized (this) {
+                rules = copyRules();
+                touchedDuringRecompute = new LongIntMap();
+            }
+            List<Allocation> computed;
+            try {
+                List<Transaction> history;
+                try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+                    history = snapshot.findAll();
+                }
+                computed = pool.submit(() -> history.parallelStream()
+                        .map(transaction -> allocate(transaction, transaction.getUserId() == null ? null : rules.get(transaction.getUserId())))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList())).join();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    touchedDuringRecompute = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                swap(computed);
+            }
+            settle();
+            return computed.size();
+        }
+    }
+
+    // Заменяет учёт распределений пересчитанным, кроме транзакций, которые события изменили после снимка
+    private void swap(List<Allocation> computed) {
+        LongIntMap touched = touchedDuringRecompute;
+        touchedDuringRecompute = null;
+        LongObjectMap<Allocation> current = new LongObjectMap<>(touched.size());
+        for (long transactionId : touched.keys()) {
+            Allocation allocation = allocations.get(transactionId);
+            if (allocation != null) {
+                current.put(transactionId, allocation);
+            }
+        }
+        allocations.clear();
+        for (Allocation allocation : computed) {
+            if (!touched.containsKey(allocation.transactionId)) {
+                allocations.put(allocation.transactionId, allocation);
+            }
+        }
+        for (Allocation allocation : current.values()) {
+            allocations.put(allocation.transactionId, allocation);
+        }
+        LongDoubleMap allocated = new LongDoubleMap(allocatedByGoal.size());
+        for (Allocation allocation : allocations.values()) {
+            for (int i = 0; i < allocation.goalIds.length; i++) {
+                allocated.addTo(allocation.goalIds[i], allocation.amounts[i]);
+            }
+        }
+        for (long goalId : allocatedByGoal.keys()) {
+            unsettledGoals.put(goalId, 1);
+        }
+        for (long goalId : allocated.keys()) {
+            unsettledGoals.put(goalId, 1);
+        }
+        allocatedByGoal = allocated;
+    }
+
+    private void apply(Transaction transaction) {
+        Allocation previous = allocations.get(transaction.getId());
+        if (previous != null && previous.version > transaction.getVersion()) {
+            return; // событие старше уже учтённого состояния
+        }
+        reverse(transaction.getId());
+        Allocation allocation = allocate(transaction, rulesFor(transaction));
+        if (allocation == null) {
+            return;
+        }
+        allocations.put(allocation.transactionId, allocation);
+        for (int i = 0; i < allocation.goalIds.length; i++) {
+            allocate(allocation.goalIds[i], allocation.amounts[i]);
+        }
+    }
+
+    private void reverse(long transactionId) {
+        Allocation allocation = allocations.remove(transactionId);
+        if (allocation == null) {
+            return;
+        }
+        for (int i = 0; i < allocation.goalIds.length; i++) {
+            allocate(allocation.goalIds[i], -allocation.amounts[i]);
+        }
+    }
+
+    private void allocate(long goalId, double amount) {
+        allocatedByGoal.addTo(goalId, amount);
+        unsettledGoals.put(goalId, 1);
+    }
+
+    private void touch(long transactionId) {
+        if (touchedDuringRecompute != null) {
+            touchedDuringRecompute.put(transactionId, 1);
+        }
+    }
+
+    // Вносит в цели разницу между распределённым и внесённым. Вызывается без монитора: изменения накопленной
+    // суммы складываются, порядок между потоками не важен, а внесение в работе учитывается в inFlightByGoal
+    private void settle() {
+        long[] goalIds;
+        synchronized (this) {
+            goalIds = unsettledGoals.keys();
+        }
+        for (long goalId : goalIds) {
+            double delta;
+            synchronized (this) {
+                delta = pendingOf(goalId);
+                if (Math.abs(delta) < MIN_DELTA) {
+                    unsettledGoals.remove(goalId); // остаток дождётся следующего пополнения цели
+                    continue;
+                }
+                inFlightByGoal.addTo(goalId, delta);
+            }
+            boolean applied = goalService.adjustProgress(goalId, delta);
+            boolean deleted = !applied && goalService.getGoalById(goalId) == null;
+            synchronized (this) {
+                if (inFlightByGoal.addTo(goalId, -delta) == 0) {
+                    inFlightByGoal.remove(goalId);
+                }
+                if (applied) {
+                    fundedByGoal.addTo(goalId, delta);
+                    if (Math.abs(pendingOf(goalId)) < MIN_DELTA) {
+                        unsettledGoals.remove(goalId);
+                    }
+                } else if (deleted) {
+                    forgetGoal(goalId);
+                }
+                // Иначе цель остаётся среди неурегулированных и вносится при следующем пополнении
+            }
+        }
+    }
+
+    private double pendingOf(long goalId) {
+        return allocatedByGoal.get(goalId, 0) - fundedByGoal.get(goalId, 0) - inFlightByGoal.get(goalId, 0);
+    }
+
+    // Цели больше нет: её правила не действуют, а учёт распределений по ней не нужен
+    private void forgetGoal(long goalId) {
+        for (long userId : rulesByUser.keys()) {
+            rulesByUser.get(userId).removeIf(rule -> Objects.equals(rule.getGoalId(), goalId));
+        }
+        allocatedByGoal.remove(goalId);
+        fundedByGoal.remove(goalId);
+        unsettledGoals.remove(goalId);
+    }
+
+    private List<GoalFundingRule> rulesFor(Transaction transaction) {
+        return transaction.getUserId() == null ? null : rulesByUser.get(transaction.getUserId());
+    }
+
+    private LongObjectMap<List<GoalFundingRule>> copyRules() {
+        LongObjectMap<List<GoalFundingRule>> copy = new LongObjectMap<>(rulesByUser.size());
+        for (long userId : rulesByUser.keys()) {
+            copy.put(userId, List.copyOf(rulesByUser.get(userId)));
+        }
+        return copy;
+    }
+
+    private static Allocation allocate(Transaction transaction, List<GoalFundingRule> rules) {
+        if (rules == null || rules.isEmpty() || transaction.getType() != TransactionType.INCOME || transaction.getAmount() <= 0) {
+            return null;
+        }
+        long[] goalIds = new long[rules.size()];
+        double[] amounts = new double[rules.size()];
+        for (int i = 0; i < goalIds.length; i++) {
+            GoalFundingRule rule = rules.get(i);
+            goalIds[i] = rule.getGoalId();
+            // Округление до копеек, чтобы отмена вычитала ровно то, что было добавлено
+            amounts[i] = Math.round(transaction.getAmount() * rule.getPercent()) / 100.0;
+        }
+        return new Allocation(transaction.getId(), transaction.getVersion(), goalIds, amounts);
+    }
+
+    private static GoalFundingRule copy(GoalFundingRule rule) {
+        return new GoalFundingRule(rule.getId(), rule.getUserId(), rule.getGoalId(), rule.getPercent());
+    }
+
+    private static final class Allocation {
+        final long transactionId;
+        final long version;
+        final long[] goalIds;
+        final double[] amounts;
+
+        Allocation(long transactionId, long version, long[] goalIds, double[] amounts) {
+            this.transactionId = transactionId;
+            this.version = version;
+            this.goalIds = goalIds;
+            this.amounts = amounts;
+        }
+    }
+}
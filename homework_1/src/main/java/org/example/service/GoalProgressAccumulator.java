@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.example.model.Goal;
+import org.example.repository.GoalRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопитель взносов в цели. Взносы переводятся в копейки и складываются в LongAdder цели:
+ * счётчик разбит на ячейки по потокам, поэтому параллельные взносы в одну цель не ждут друг друга.
+ * В репозиторий накопленное переносится при чтении цели.
+ *
+ * После close накопитель не копит: взнос сразу пишется в репозиторий. Взнос, который прочитал
+ * накопитель до закрытия, после добавления ещё раз проверяет флаг и, если закрытие уже началось,
+ * переносит свою цель сам - иначе он мог бы попасть в счётчик после того, как close его обошёл.
+ */
+class GoalProgressAccumulator {
+    static final long UNITS_PER_AMOUNT = 100;
+
+    private final GoalRepository goalRepository;
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    GoalProgressAccumulator(GoalRepository goalRepository) {
+        this.goalRepository = goalRepository;
+    }
+
+    /**
+     * Добавляет взнос без записи в репозиторий. Репозиторий читается только при первом взносе в цель.
+     */
+    boolean add(Long goalId, double amount) {
+        if (closed) {
+            return OptimisticRetry.run(() -> addToGoal(goalId, Math.round(amount * UNITS_PER_AMOUNT)));
+        }
+        LongAdder units = pending.get(goalId);
+        if (units == null) {
+            if (goalRepository.findById(goalId) == null) {
+                return false;
+            }
+            units = pending.computeIfAbsent(goalId, id -> new LongAdder());
+        }
+        units.add(Math.round(amount * UNITS_PER_AMOUNT));
+        if (closed) {
+            // Закрытие могло уже обойти эту цель: переносим сами, fold не запишет сумму дважды
+            fold(goalId);
+        }
+        return true;
+    }
+
+    /**
+     * Переносит накопленное в сохранённую цель и возвращает её вместе с взносами, пришедшими во время переноса.
+     */
+    Goal fold(Long goalId) {
+        LongAdder units = pending.get(goalId);
+        if (units == null) {
+            return goalRepository.findById(goalId);
+        }
+        // Перенос одной цели идёт в одном потоке, иначе два переноса запишут одну сумму дважды
+        synchronized (units) {
+            long folded = units.sum();
+            // После закрытия этот счётчик больше никто не прочитает, поэтому конфликты повторяем до успеха
+            int attempts = closed ? Integer.MAX_VALUE : OptimisticRetry.DEFAULT_ATTEMPTS;
+            if (folded != 0 && OptimisticRetry.run(attempts, () -> addToGoal(goalId, folded))) {
+                units.add(-folded);
+            }
+            Goal goal = goalRepository.findById(goalId);
+            if (goal != null) {
+                goal.setCurrentAmount(goal.getCurrentAmount() + toAmount(units.sum()));
+            }
+            return goal;
+        }
+    }
+
+    void foldAll() {
+        for (Long goalId : pending.keySet()) {
+            fold(goalId);
+        }
+    }
+
+    /**
+     * Закрывает накопитель и переносит накопленное; дальнейшие взносы пишутся в репозиторий сразу.
+     */
+    void close() {
+        closed = true;
+        foldAll();
+    }
+
+    void forget(Long goalId) {
+        pending.remove(goalId);
+    }
+
+    private boolean addToGoal(Long goalId, long units) {
+        Goal goal = goalRepository.findById(goalId);
+        if (goal == null) {
+            return false;
+        }
+        goal.setCurrentAmount(goal.getCurrentAmount() + toAmount(units));
+        goalRepository.save(goal);
+        return true;
+    }
+
+    private static double toAmount(long units) {
+        return (double) units / UNITS_PER_AMOUNT;
+    }
+}
@@ -8,11 +8,42 @@ import java.util.List;
 
 public class GoalService {
     private final GoalRepository goalRepository;
+    private volatile GoalProgressAccumulator accumulator;
+    private volatile GoalDeadlineScheduler deadlineScheduler;
+    private volatile UserCommandExecutor userExecutor = UserCommandExecutor.inline();
 
     public GoalService(GoalRepository goalRepository) {
         this.goalRepository = goalRepository;
     }
 
+    /**
+     * Планировщик, который получает новые цели, переносы сроков и удаления.
+     */
+    public void setDeadlineScheduler(GoalDeadlineScheduler deadlineScheduler) {
+        this.deadlineScheduler = deadlineScheduler;
+    }
+
+    /**
+     * Исполнитель, в потоке шарда которого выполняются записи пользователя. По умолчанию записи идут в вызывающем потоке.
+     */
+    public void setUserExecutor(UserCommandExecutor userExecutor) {
+        this.userExecutor = userExecutor == null ? UserCommandExecutor.inline() : userExecutor;
+    }
+
+    /**
+     * Режим накопления взносов: updateGoalProgress не пишет в репозиторий, а копит сумму
+     * в счётчике цели; сумма переносится в цель при чтении. При выключении накопленное переносится сразу.
+     */
+    public void setProgressAccumulation(boolean enabled) {
+        GoalProgressAccumulator current = accumulator;
+        if (enabled && current == null) {
+            accumulator = new GoalProgressAccumulator(goalRepository);
+        } else if (!enabled && current != null) {
+            accumulator = null;
+            current.close();
+        }
+    }
+
     public Goal createGoal(Long userId, String name, double targetAmount, LocalDate deadline) {
         if (userId == null || name == null || name.trim().isEmpty() || targetAmount <= 0 || deadline == null || deadline.isBefore(LocalDate.now())) {
             return null; // Простая валидация
@@ -23,57 +54,106 @@ public class GoalService {
         goal.setTargetAmount(targetAmount);
         goal.setCurrentAmount(0);
         goal.setDeadline(deadline);
-        return goalRepository.save(goal);
+        return userExecutor.call(userId, () -> {
+            Goal saved = goalRepository.save(goal);
+            GoalDeadlineScheduler scheduler = deadlineScheduler;
+            if (scheduler != null && saved != null) {
+                scheduler.schedule(saved);
+            }
+            return saved;
+        });
     }
 
     public Goal getGoalById(Long goalId) {
         if (goalId == null) return null;
-        return goalRepository.findById(goalId);
+        return findGoal(goalId);
     }
 
     public List<Goal> getGoalsByUserId(Long userId) {
         if (userId == null) return null;
-        return goalRepository.findByUserId(userId);
+        List<Goal> goals = goalRepository.findByUserId(userId);
+        GoalProgressAccumulator current = accumulator;
+        if (current != null) {
+            goals.replaceAll(goal -> {
+                Goal folded = current.fold(goal.getId());
+                return folded != null ? folded : goal;
+            });
+        }
+        return goals;
+    }
+
+    public List<Goal> getAllGoals() {
+        GoalProgressAccumulator current = accumulator;
+        if (current != null) {
+            current.foldAll();
+        }
+        return goalRepository.findAll();
     }
 
     public boolean updateGoal(Long goalId, String name, Double targetAmount, LocalDate deadline, Double currentAmount) {
-        Goal goal = goalRepository.findById(goalId);
-        if (goal == null) return false;
+        return userExecutor.call(ownerOf(goalId), () -> update(goalId, name, targetAmount, deadline, currentAmount));
+    }
 
-        boolean updated = false;
-        if (name != null && !name.trim().isEmpty()) {
-            goal.setName(name);
-            updated = true;
+    private boolean update(Long goalId, String name, Double targetAmount, LocalDate deadline, Double currentAmount) {
+        GoalProgressAccumulator current = accumulator;
+        if (current != null && goalId != null) {
+            // Новая сумма заменяет и уже накопленные взносы
+            current.fold(goalId);
         }
-        if (targetAmount != null && targetAmount > 0) {
-            goal.setTargetAmount(targetAmount);
-            updated = true;
-        }
-        if (deadline != null && !deadline.isBefore(LocalDate.now())) {
-            goal.setDeadline(deadline);
-            updated = true;
-        }
-        if (currentAmount != null && currentAmount >= 0) {
-            goal.setCurrentAmount(currentAmount);
-            updated = true;
-        }
-        if (updated) {
-            goalRepository.save(goal);
-            return true;
-        }
-        return false;
+        return OptimisticRetry.run(() -> {
+            Goal goal = goalRepository.findById(goalId);
+            if (goal == null) return false;
+
+            boolean updated = false;
+            if (name != null && !name.trim().isEmpty()) {
+                goal.setName(name);
+                updated = true;
+            }
+            if (targetAmount != null && targetAmount > 0) {
+                goal.setTargetAmount(targetAmount);
+                updated = true;
+            }
+            if (deadline != null && !deadline.isBefore(LocalDate.now())) {
+                goal.setDeadline(deadline);
+                updated = true;
+            }
+            if (currentAmount != null && currentAmount >= 0) {
+                goal.setCurrentAmount(currentAmount);
+                updated = true;
+            }
+            if (updated) {
+                goalRepository.save(goal);
+                GoalDeadlineScheduler scheduler = deadlineScheduler;
+                if (scheduler != null) {
+                    scheduler.schedule(goal);
+                }
+                return true;
+            }
+            return false;
+        });
     }
 
     public boolean deleteGoal(Long goalId) {
-        if (goalId == null || goalRepository.findById(goalId) == null) {
+        Goal goal = goalId == null ? null : goalRepository.findById(goalId);
+        if (goal == null) {
             return false;
         }
-        goalRepository.delete(goalId);
-        return true;
+        return userExecutor.call(goal.getUserId(), () -> {
+            GoalProgressAccumulator current = accumulator;
+            if (current != null) {
+                current.forget(goalId);
+            }
+            GoalDeadlineScheduler scheduler = deadlineScheduler;
+            if (scheduler != null) {
+                scheduler.cancel(goalId);
+            }
+            goalRepository.delete(goalId);
+            return true;
+        });
     }
 
     public double calculateProgress(Long goalId) {
-        Goal goal = goalRepository.findById(goalId);
+        Goal goal = goalId == null ? null : findGoal(goalId);
         if (goal != null && goal.getTargetAmount() != 0) {
             return (goal.getCurrentAmount() / goal.getTargetAmount()) * 100;
         }
@@ -83,10 +163,35 @@ public class GoalService {
     // Простой метод для обновления прогресса
     public boolean updateGoalProgress(Long goalId, double amountToAdd) {
         if (goalId == null || amountToAdd < 0) return false;
+        return adjustProgress(goalId, amountToAdd);
+    }
+
+    // Изменение накопленной суммы на delta, отрицательное - при отмене автоматического пополнения
+    boolean adjustProgress(Long goalId, double delta) {
+        GoalProgressAccumulator current = accumulator;
+        if (current != null) {
+            return current.add(goalId, delta);
+        }
+        return userExecutor.call(ownerOf(goalId), () -> OptimisticRetry.run(() -> {
+            Goal goal = goalRepository.findById(goalId);
+            if (goal == null) return false;
+            goal.setCurrentAmount(goal.getCurrentAmount() + delta);
+            goalRepository.save(goal);
+            return true;
+        }));
+    }
+
+    // Владелец цели нужен только для выбора шарда
+    private Long ownerOf(Long goalId) {
+        if (goalId == null || !userExecutor.isSharded()) {
+            return null;
+        }
         Goal goal = goalRepository.findById(goalId);
-        if (goal == null) return false;
-        goal.setCurrentAmount(goal.getCurrentAmount() + amountToAdd);
-        goalRepository.save(goal);
-        return true;
+        return goal == null ? null : goal.getUserId();
+    }
+
+    private Goal findGoal(Long goalId) {
+        GoalProgressAccumulator current = accumulator;
+        return current != null ? current.fold(goalId) : goalRepository.findById(goalId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,223 @@
+package org.example.service;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Token bucket для попыток входа по email и по клиенту.
+ * Таблица фиксированного размера: у ключа два возможных слота, при нехватке места вытесняется
+ * полная корзина, а если обе неполные - та, что дольше не пополнялась. Новый ключ место получает всегда,
+ * иначе поток случайных ключей забил бы таблицу и отказывал во входе всем.
+ * Состояние вытесненной неполной корзины запоминается в таблице вытесненных, и вернувшийся ключ
+ * продолжает с него: перебор случайных ключей не возвращает атакуемому email полный запас попыток.
+ * В слоте таблицы вытесненных остаётся корзина с меньшим запасом.
+ * Состояние корзины упаковано в один long и меняется через CAS, блокировок нет.
+ */
+public class LoginRateLimiter {
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+
+    private final AtomicReferenceArray<Bucket> table;
+    private final AtomicReferenceArray<Evicted> evicted;
+    private final int mask;
+    private final long capacityMilli;
+    private final double refillMilliPerMs;
+    private final long epoch;
+    private final Clock clock;
+
+    public LoginRateLimiter() {
+        this(5, 5.0 / 60, 1 << 16, Clock.systemUTC());
+    }
+
+    /**
+     * @param capacity        сколько попыток подряд разрешено
+     * @param refillPerSecond сколько попыток восстанавливается в секунду
+     * @param tableSize       число корзин, округляется вверх до степени двойки
+     */
+    public LoginRateLimiter(int capacity, double refillPerSecond, int tableSize, Clock clock) {
+        if (capacity <= 0 || capacity * MILLI > TOKEN_MASK || refillPerSecond <= 0 || tableSize <= 0 || clock == null) {
+            throw new IllegalArgumentException("Invalid rate limiter settings");
+        }
+        int size = Integer.highestOneBit(Math.max(2, tableSize - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.evicted = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.capacityMilli = capacity * MILLI;
+        this.refillMilliPerMs = refillPerSecond;
+        this.clock = clock;
+        this.epoch = clock.millis();
+    }
+
+    /**
+     * Списывает по попытке с корзины email и корзины клиента.
+     * Возвращает false, если хотя бы одна из них пуста; тогда ни одна не списывается.
+     */
+    public boolean tryAcquire(String email, String clientId) {
+        long now = clock.millis() - epoch;
+        Bucket byEmail = null;
+        Bucket byClient = null;
+        if (email != null) {
+            byEmail = bucketFor("e:" + email.trim().toLowerCase(Locale.ROOT), now);
+            if (!byEmail.hasToken(now)) {
+                return false;
+            }
+        }
+        if (clientId != null) {
+            byClient = bucketFor("c:" + clientId, now);
+            if (!byClient.hasToken(now)) {
+                return false;
+            }
+        }
+        if (byEmail != null && !byEmail.tryConsume(now)) {
+            return false;
+        }
+        if (byClient != null && !byClient.tryConsume(now)) {
+            // Корзину клиента опустошили параллельно - возвращаем попытку email
+            if (byEmail != null) {
+                byEmail.refund();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Корзина ключа. Если оба слота заняты, один из них освобождается.
+     */
+    private Bucket bucketFor(String key, long now) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        int first = (hash ^ (hash >>> 16)) & mask;
+        int second = (first ^ ((hash >>> 8) | 1)) & mask;
+        while (true) {
+            Bucket a = table.get(first);
+            if (a != null && a.key.equals(key)) {
+                return a;
+            }
+            Bucket b = table.get(second);
+            if (b != null && b.key.equals(key)) {
+                return b;
+            }
+            boolean evictFirst = evictsBefore(a, b, now);
+            int victim = evictFirst ? first : second;
+            Bucket expected = evictFirst ? a : b;
+            Evicted remembered = evicted.get(first);
+            boolean restored = remembered != null && remembered.key.equals(key);
+            Bucket fresh = new Bucket(key, restored ? remembered.state : pack(now, capacityMilli));
+            if (table.compareAndSet(victim, expected, fresh)) {
+                if (restored) {
+                    evicted.compareAndSet(first, remembered, null);
+                }
+                remember(expected, now);
+                return fresh;
+            }
+        }
+    }
+
+    // Порядок вытеснения: пустой слот, полная корзина, затем корзина, которая дольше не пополнялась
+    private boolean evictsBefore(Bucket candidate, Bucket other, long now) {
+        if (candidate == null || other == null) {
+            return candidate == null;
+        }
+        boolean candidateFull = candidate.isFull(now);
+        if (candidateFull != other.isFull(now)) {
+            return candidateFull;
+        }
+        return candidate.state.get() >>> TOKEN_BITS <= other.state.get() >>> TOKEN_BITS;
+    }
+
+    // Полная корзина ничего не помнит; неполная занимает слот вытесненных, если в нём корзина с большим запасом
+    private void remember(Bucket bucket, long now) {
+        if (bucket == null || bucket.isFull(now)) {
+            return;
+        }
+        int hash = bucket.key.hashCode() * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Evicted entry = new Evicted(bucket.key, bucket.state.get());
+        while (true) {
+            Evicted current = evicted.get(slot);
+            if (current != null && refilled(current.state, now) <= refilled(entry.state, now)) {
+                return;
+            }
+            if (evicted.compareAndSet(slot, current, entry)) {
+                return;
+            }
+        }
+    }
+
+    private long refilled(long state, long now) {
+        long elapsed = Math.max(0, now - (state >>> TOKEN_BITS));
+        return Math.min(capacityMilli, (state & TOKEN_MASK) + (long) (elapsed * refillMilliPerMs));
+    }
+
+    private static long pack(long millis, long tokens) {
+        return (millis << TOKEN_BITS) | tokens;
+    }
+
+    private static final class Evicted {
+        private final String key;
+        private final long state;
+
+        private Evicted(String key, long state) {
+            this.key = key;
+            this.state = state;
+        }
+    }
+
+    private final class Bucket {
+        private final String key;
+        // Время последнего пополнения и остаток токенов; время сдвигается только при списании
+        private final AtomicLong state;
+
+        private Bucket(String key, long state) {
+            this.key = key;
+            this.state = new AtomicLong(state);
+        }
+
+        private boolean isFull(long now) {
+            return refilled(state.get(), now) >= capacityMilli;
+        }
+
+        private boolean hasToken(long now) {
+            return refilled(state.get(), now) >= MILLI;
+        }
+
+        private void refund() {
+            while (true) {
+                long current = state.get();
+                long tokens = Math.min(capacityMilli, (current & TOKEN_MASK) + MILLI);
+                if (state.compareAndSet(current, pack(current >>> TOKEN_BITS, tokens))) {
+                    return;
+                }
+            }
+        }
+
+        private boolean tryConsume(long now) {
+            while (true) {
+                long current = state.get();
+                long last = current >>> TOKEN_BITS;
+                long refilled = refilled(current, now);
+                long touched = Math.max(now, last);
+                if (refilled < MILLI) {
+                    // Время не сдвигаем, иначе частые попытки не дадут корзине наполниться
+                    return false;
+                }
+                if (state.compareAndSet(current, pack(touched, refilled - MILLI))) {
+                    return true;
+                }
+            }
+        }
+    }
+}
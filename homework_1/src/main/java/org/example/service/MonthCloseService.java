@@ -0,0 +1,325 @@
+package org.example.service;
+
+import org.example.model.Budget;
+import org.example.model.MonthCloseResult;
+import org.example.model.MonthlySummary;
+import org.example.model.TransactionType;
+import org.example.model.User;
+import org.example.repository.MonthCloseCheckpointRepository;
+import org.example.repository.MonthlySummaryRepository;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionRowVisitor;
+import org.example.repository.TransactionSnapshot;
+import org.example.repository.UserRepository;
+import org.example.util.LongDoubleMap;
+import org.example.util.LongObjectMap;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Закрытие месяца: итоги всех пользователей, проверка бюджетов и уведомления о превышении.
+ * Пользователи делятся на PARTITIONS частей по хэшу id. Транзакции месяца читаются из снимка
+ * один раз, параллельно по слотам, и сразу раскладываются по частям; затем части закрываются параллельно
+ * в пуле. Закрытая часть отмечается в контрольных точках, перезапуск после падения берёт только незакрытые.
+ * Итоги пишутся один раз, а уведомления части, упавшей на середине, при перезапуске отправляются повторно.
+ * Итоги и контрольные точки должны храниться одинаково - оба в файлах или оба в памяти: отметка в файле
+ * при итогах в памяти после падения пропустила бы часть, итоги которой потеряны.
+ */
+public class MonthCloseService {
+    static final int PARTITIONS = 64;
+    static final int NOTIFICATION_BATCH = 500;
+    private static final byte INCOME = (byte) TransactionType.INCOME.ordinal();
+    private static final byte EXPENSE = (byte) TransactionType.EXPENSE.ordinal();
+    private static final int LEAF_SLOTS = 50_000;
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final BudgetService budgetService;
+    private final NotificationService notificationService;
+    private final MonthlySummaryRepository summaryRepository;
+    private final MonthCloseCheckpointRepository checkpoints;
+    private final ForkJoinPool pool;
+    private final Clock clock;
+
+    public MonthCloseService(UserRepository userRepository, TransactionRepository transactionRepository,
+                             BudgetService budgetService, NotificationService notificationService,
+                             MonthlySummaryRepository summaryRepository, MonthCloseCheckpointRepository checkpoints) {
+        this(userRepository, transactionRepository, budgetService, notificationService, summaryRepository, checkpoints,
+                ForkJoinPool.commonPool());
+    }
+
+    public MonthCloseService(UserRepository userRepository, TransactionRepository transactionRepository,
+                             BudgetService budgetService, NotificationService notificationService,
+                             MonthlySummaryRepository summaryRepository, MonthCloseCheckpointRepository checkpoints,
+                             ForkJoinPool pool) {
+        this(userRepository, transactionRepository, budgetService, notificationService, summaryRepository, checkpoints,
+                pool, Clock.systemDefaultZone());
+    }
+
+    public MonthCloseService(UserRepository userRepository, TransactionRepository transactionRepository,
+                             BudgetService budgetService, NotificationService notificationService,
+                             MonthlySummaryRepository summaryRepository, MonthCloseCheckpointRepository checkpoints,
+                             ForkJoinPool pool, Clock clock) {
+        if (summaryRepository.isPersistent() != checkpoints.isPersistent()) {
+            throw new IllegalArgumentException("Summaries and checkpoints must both be persistent or both in memory");
+        }
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.budgetService = budgetService;
+        this.notificationService = notificationService;
+        this.summaryRepository = summaryRepository;
+        this.checkpoints = checkpoints;
+        this.pool = pool;
+        this.clock = clock;
+    }
+
+    /**
+     * Закрывает месяц или продолжает прерванное закрытие. Повторный вызов для закрытого месяца ничего не делает.
+     * Закрыть можно только прошедший месяц. Возвращает null при неверном месяце.
+     */
+    public MonthCloseResult closeMonth(YearMonth month) {
+        if (month == null || !month.isBefore(YearMonth.now(clock))) {
+            return null;
+        }
+        // Изменения транзакций ждут, пока месяц закрывается: иначе запись между чтением и сохранением итогов потерялась бы
+        Lock lock = summaryRepository.getCloseLock().writeLock();
+        lock.lock();
+        try {
+            return close(month);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MonthCloseResult close(YearMonth month) {
+        BitSet pending = checkpoints.completed(month);
+        int skipped = pending.cardinality();
+        pending.flip(0, PARTITIONS);
+        if (pending.isEmpty()) {
+            return new MonthCloseResult(month, 0, skipped, 0, 0);
+        }
+
+        List<List<Long>> usersByPartition = new ArrayList<>(PARTITIONS);
+        for (int i = 0; i < PARTITIONS; i++) {
+            usersByPartition.add(new ArrayList<>());
+        }
+        for (User user : userRepository.findAll()) {
+            int partition = partitionOf(user.getId());
+            if (pending.get(partition)) {
+                usersByPartition.get(partition).add(user.getId());
+            }
+        }
+        LongDoubleMap budgets = new LongDoubleMap();
+        for (Budget budget : budgetService.getBudgetsByPeriod(month)) {
+            if (budget.getCategory() == null) {
+                budgets.put(budget.getUserId(), budget.getAmount());
+            }
+        }
+
+        Activity activity = scan(month, pending);
+        String[] categoryNames = new String[transactionRepository.getCategoryCount()];
+        for (int id = 0; id < categoryNames.length; id++) {
+            categoryNames[id] = transactionRepository.getCategoryName(id);
+        }
+
+        long[][] counts = pool.submit(() -> pending.stream().parallel()
+                .mapToObj(partition -> closePartition(month, partition, usersByPartition.get(partition),
+                        activity.byPartition[partition], budgets, categoryNames))
+                .toArray(long[][]::new)).join();
+        long users = 0;
+        long exceeded = 0;
+        for (long[] count : counts) {
+            users += count[0];
+            exceeded += count[1];
+        }
+        return new MonthCloseResult(month, counts.length, skipped, users, exceeded);
+    }
+
+    /**
+     * Закрыт ли месяц полностью.
+     */
+    public boolean isClosed(YearMonth month) {
+        return month != null && checkpoints.completed(month).cardinality() == PARTITIONS;
+    }
+
+    static int partitionOf(long userId) {
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed >>> 32), PARTITIONS);
+    }
+
+    // Возвращает {пользователей, превышенных бюджетов}
+    private long[] closePartition(YearMonth month, int partition, List<Long> userIds, LongObjectMap<UserMonth> activity,
+                                  LongDoubleMap budgets, String[] categoryNames) {
+        List<MonthlySummary> summaries = new ArrayList<>(userIds.size());
+        List<MonthlySummary> exceeded = new ArrayList<>();
+        for (Long userId : userIds) {
+            UserMonth user = activity.get(userId);
+            if (user == null) {
+                user = new UserMonth();
+            }
+            Map<String, Double> byCategory = new HashMap<>();
+            if (user.expenseByCategory != null) {
+                for (int id = 0; id < user.expenseByCategory.length; id++) {
+                    if (user.expenseByCategory[id] != 0) {
+                        byCategory.merge(categoryNames[id], user.expenseByCategory[id], Double::sum);
+                    }
+                }
+            }
+            double budget = budgets.get(userId, 0);
+            MonthlySummary summary = new MonthlySummary(userId, month, user.income, user.expenses, user.count,
+                    budget, budget > 0 && user.expenses > budget, byCategory);
+            summaries.add(summary);
+            if (summary.isBudgetExceeded()) {
+                exceeded.add(summary);
+            }
+        }
+        summaryRepository.saveAll(summaries);
+        for (int from = 0; from < exceeded.size(); from += NOTIFICATION_BATCH) {
+            notificationService.sendBudgetExceededNotifications(
+                    exceeded.subList(from, Math.min(exceeded.size(), from + NOTIFICATION_BATCH)));
+        }
+        checkpoints.markDone(month, partition);
+        return new long[]{userIds.size(), exceeded.size()};
+    }
+
+    private Activity scan(YearMonth month, BitSet pending) {
+        try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+            Scope scope = new Scope(snapshot, month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                    month.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) - 1,
+                    transactionRepository.getCategoryCount(), pending);
+            return pool.invoke(new ScanTask(scope, 0, snapshot.getSlotCount()));
+        }
+    }
+
+    private static final class Scope {
+        private final TransactionSnapshot snapshot;
+        private final long fromEpochSecond;
+        private final long toEpochSecond;
+        private final int categoryCount;
+        private final BitSet pending;
+
+        private Scope(TransactionSnapshot snapshot, long fromEpochSecond, long toEpochSecond, int categoryCount,
+                      BitSet pending) {
+            this.snapshot = snapshot;
+            this.fromEpochSecond = fromEpochSecond;
+            this.toEpochSecond = toEpochSecond;
+            this.categoryCount = categoryCount;
+            this.pending = pending;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Activity> {
+        private final Scope scope;
+        private final int from;
+        private final int to;
+
+        private ScanTask(Scope scope, int from, int to) {
+            this.scope = scope;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Activity compute() {
+            if (to - from <= LEAF_SLOTS) {
+                Activity activity = new Activity(scope);
+                scope.snapshot.forEach(from, to, scope.fromEpochSecond, scope.toEpochSecond, activity);
+                return activity;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scope, from, middle);
+            ScanTask right = new ScanTask(scope, middle, to);
+            left.fork();
+            Activity result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Суммы пользователей за месяц, разложенные по частям. Закрытые части не копятся.
+     */
+    private static final class Activity implements TransactionRowVisitor {
+        private final int categoryCount;
+        private final BitSet pending;
+        @SuppressWarnings("unchecked")
+        private final LongObjectMap<UserMonth>[] byPartition = new LongObjectMap[PARTITIONS];
+
+        private Activity(Scope scope) {
+            this.categoryCount = scope.categoryCount;
+            this.pending = scope.pending;
+            for (int i = 0; i < PARTITIONS; i++) {
+                byPartition[i] = new LongObjectMap<>();
+            }
+        }
+
+        @Override
+        public void visit(long userId, long epochSecond, double amount, int categoryId, byte type) {
+            int partition = partitionOf(userId);
+            if (!pending.get(partition)) {
+                return;
+            }
+            UserMonth user = byPartition[partition].computeIfAbsent(userId, id -> new UserMonth());
+            user.count++;
+            if (type == INCOME) {
+                user.income += amount;
+            } else if (type == EXPENSE) {
+                user.expenses += amount;
+                if (user.expenseByCategory == null) {
+                    user.expenseByCategory = new double[categoryCount];
+                }
+                if (categoryId >= 0) { // у строки без категории номера нет
+                    user.expenseByCategory[categoryId] += amount;
+                }
+            }
+        }
+
+        private void merge(Activity other) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                LongObjectMap<UserMonth> into = byPartition[partition];
+                LongObjectMap<UserMonth> from = other.byPartition[partition];
+                for (long userId : from.keys()) {
+                    UserMonth existing = into.get(userId);
+                    if (existing == null) {
+                        into.put(userId, from.get(userId));
+                    } else {
+                        existing.merge(from.get(userId));
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class UserMonth {
+        private double income;
+        private double expenses;
+        private long count;
+        private double[] expenseByCategory;   // создаётся при первом расходе
+
+        private void merge(UserMonth other) {
+            income += other.income;
+            expenses += other.expenses;
+            count += other.count;
+            if (other.expenseByCategory == null) {
+                return;
+            }
+            if (expenseByCategory == null) {
+                expenseByCategory = other.expenseByCategory;
+                return;
+            }
+            for (int id = 0; id < expenseByCategory.length; id++) {
+                expenseByCategory[id] += other.expenseByCategory[id];
+            }
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package org.example.service;
 
+import org.example.model.GoalDeadlineEvent;
+import org.example.model.MonthlySummary;
+
+import java.util.List;
+
 public class NotificationService {
     public void sendEmailNotification(String to, String subject, String body) {
         System.out.println("Sending notification to " + to);
@@ -7,4 +12,22 @@ public class NotificationService {
         System.out.println("Body: " + body);
         System.out.println("Notification sent successfully to " + to);
     }
-}
\ No newline at end of file
+
+    public void sendGoalDeadlineNotification(GoalDeadlineEvent event) {
+        String subject = event.getType() == GoalDeadlineEvent.Type.APPROACHING
+                ? "Приближается срок цели"
+                : "Срок цели прошёл";
+        sendEmailNotification("user " + event.getUserId(), subject,
+                "Цель \"" + event.getGoalName() + "\", срок " + event.getDeadline());
+    }
+
+    /**
+     * Уведомления о превышении бюджета за закрытый месяц, пачкой.
+     */
+    public void sendBudgetExceededNotifications(List<MonthlySummary> summaries) {
+        for (MonthlySummary summary : summaries) {
+            sendEmailNotification("user " + summary.getUserId(), "Бюджет превышен",
+                    "За " + summary.getMonth() + " потрачено " + summary.getExpenses() + " при бюджете " + summary.getBudget());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.service;
+
+import org.example.repository.OptimisticLockException;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Повтор операции чтение-изменение-запись при конфликте версий.
+ * Операция должна сама заново читать сущность: каждая попытка работает со свежей версией.
+ */
+final class OptimisticRetry {
+    static final int DEFAULT_ATTEMPTS = 3;
+
+    private OptimisticRetry() {
+    }
+
+    static boolean run(BooleanSupplier operation) {
+        return run(DEFAULT_ATTEMPTS, operation);
+    }
+
+    /**
+     * Возвращает результат операции или false, если все попытки закончились конфликтом.
+     */
+    static boolean run(int attempts, BooleanSupplier operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.getAsBoolean();
+            } catch (OptimisticLockException e) {
+                if (attempt >= attempts) {
+                    return false;
+                }
+            }
+        }
+    }
+}
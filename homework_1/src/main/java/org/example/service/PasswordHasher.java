@@ -0,0 +1,194 @@
+package org.example.service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PBKDF2-хеширование паролей на отдельном ограниченном пуле потоков,
+ * чтобы волна логинов не отнимала процессор у остальных запросов.
+ * Формат хеша: pbkdf2$версия$итерации$соль$хеш.
+ */
+public class PasswordHasher {
+    public static final int CURRENT_VERSION = 1;
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private final int iterations;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    private volatile String dummyHash;
+
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 256, Duration.ofSeconds(5));
+    }
+
+    public PasswordHasher(int iterations, int threads, int queueCapacity, Duration timeout) {
+        if (iterations <= 0 || threads <= 0 || queueCapacity <= 0 || timeout == null) {
+            throw new IllegalArgumentException("Invalid password hashing settings");
+        }
+        this.iterations = iterations;
+        this.timeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Возвращает хеш пароля или null, если пул перегружен.
+     */
+    public String hash(String password) {
+        if (password == null) {
+            return null;
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = submit(() -> pbkdf2(password, salt, iterations));
+        if (hash == null) {
+            return null;
+        }
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + CURRENT_VERSION + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Проверяет пароль по параметрам, сохранённым в хеше. Старые пароли в открытом виде
+     * сравниваются за постоянное время и должны быть перехешированы после входа.
+     */
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        String[] parts = stored.split("\\$");
+        if (!isHashFormat(parts)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] salt;
+        byte[] expected;
+        int storedIterations;
+        try {
+            storedIterations = Integer.parseInt(parts[2]);
+            salt = Base64.getDecoder().decode(parts[3]);
+            expected = Base64.getDecoder().decode(parts[4]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] actual = submit(() -> pbkdf2(password, salt, storedIterations));
+        return actual != null && MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * Проверка пароля для несуществующего пользователя против постоянного хеша с теми же параметрами:
+     * по времени ответа нельзя понять, зарегистрирован ли email.
+     */
+    public void matchDummy(String password) {
+        String dummy = dummyHash;
+        if (dummy == null) {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            dummy = hash(Base64.getEncoder().encodeToString(salt));
+            if (dummy == null) {
+                return; // Пул перегружен, настоящая проверка тоже не прошла бы
+            }
+            dummyHash = dummy;
+        }
+        matches(password, dummy);
+    }
+
+    public boolean needsRehash(String stored) {
+        if (stored == null) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        if (!isHashFormat(parts)) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < CURRENT_VERSION || Integer.parseInt(parts[2]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public double getAverageHashMillis() {
+        long count = hashCount.sum();
+        return count == 0 ? 0 : hashNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private byte[] submit(Callable<byte[]> task) {
+        Future<byte[]> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            return null;
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            future.cancel(true);
+            return null;
+        }
+    }
+
+    private byte[] pbkdf2(String password, byte[] salt, int rounds) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+            hashNanos.add(System.nanoTime() - start);
+            hashCount.increment();
+        }
+    }
+
+    private static boolean isHashFormat(String[] parts) {
+        return parts.length == 5 && PREFIX.equals(parts[0]);
+    }
+}
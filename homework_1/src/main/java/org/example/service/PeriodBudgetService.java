@@ -0,0 +1,152 @@
+package org.example.service;
+
+import org.example.model.Budget;
+import org.example.model.BudgetPeriodType;
+import org.example.model.BudgetStatus;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSnapshot;
+import org.example.util.DailySpendRing;
+import org.example.util.LongObjectMap;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Бюджеты на неделю, две недели и скользящее окно. Расходы пользователя копятся по событиям транзакций
+ * в кольцевом буфере дневных итогов, поэтому проверка бюджета - две ячейки буфера, O(1) при любой длине истории.
+ */
+public class PeriodBudgetService implements TransactionListener {
+    private static final long UNITS_PER_AMOUNT = 100;
+    private static final int RING_DAYS = BudgetService.MAX_WINDOW_DAYS * 2;
+    // Буфер держит окно и запас под траты будущими датами; более далёкие даты сдвинули бы окно из буфера
+    private static final int FUTURE_DAYS = new DailySpendRing(RING_DAYS).capacityDays() - BudgetService.MAX_WINDOW_DAYS - 1;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final byte EXPENSE = (byte) TransactionType.EXPENSE.ordinal();
+
+    private final BudgetService budgetService;
+    private final TransactionRepository transactionRepository;
+    private final Clock clock;
+    private final Map<Long, DailySpendRing> spendByUser = new ConcurrentHashMap<>();
+
+    public PeriodBudgetService(BudgetService budgetService, TransactionRepository transactionRepository) {
+        this(budgetService, transactionRepository, Clock.systemDefaultZone());
+    }
+
+    public PeriodBudgetService(BudgetService budgetService, TransactionRepository transactionRepository, Clock clock) {
+        this.budgetService = budgetService;
+        this.transactionRepository = transactionRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Состояние бюджета на текущий период. Для месячных бюджетов и чужих типов - null.
+     */
+    public BudgetStatus check(Budget budget) {
+        if (budget == null || budget.getPeriodType() == null || budget.getPeriodType() == BudgetPeriodType.MONTHLY) {
+            return null;
+        }
+        LocalDate today = LocalDate.now(clock);
+        LocalDate start = currentPeriodStart(budget, today);
+        LocalDate end = start.plusDays(budget.getWindowDays() - 1L);
+        double spent = getSpent(budget.getUserId(), start, today);
+        return new BudgetStatus(budget.getId(), budget.getUserId(), budget.getCategory(), null, start, end,
+                budget.getAmount(), spent, spent > budget.getAmount());
+    }
+
+    public List<BudgetStatus> evaluate(Long userId) {
+        List<BudgetStatus> statuses = new ArrayList<>();
+        for (Budget budget : budgetService.getPeriodBudgets(userId)) {
+            statuses.add(check(budget));
+        }
+        return statuses;
+    }
+
+    /**
+     * Расходы пользователя за дни [from, to]. Окно не длиннее BudgetService.MAX_WINDOW_DAYS.
+     */
+    public double getSpent(Long userId, LocalDate from, LocalDate to) {
+        DailySpendRing ring = userId == null ? null : spendByUser.get(userId);
+        if (ring == null) {
+            return 0;
+        }
+        synchronized (ring) {
+            return (double) ring.sum(from.toEpochDay(), to.toEpochDay()) / UNITS_PER_AMOUNT;
+        }
+    }
+
+    /**
+     * Заполняет буферы из снимка, например при старте: читаются только последние RING_DAYS дней
+     * и траты будущими датами в пределах запаса буфера. Дни пишутся по порядку, без записей задним числом.
+     */
+    public void rebuild() {
+        long today = LocalDate.now(clock).toEpochDay();
+        long firstDay = today - RING_DAYS + 1;
+        int span = RING_DAYS + FUTURE_DAYS;
+        LongObjectMap<long[]> unitsByUser = new LongObjectMap<>();
+        try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+            snapshot.forEach(0, snapshot.getSlotCount(), firstDay * SECONDS_PER_DAY, (firstDay + span) * SECONDS_PER_DAY - 1,
+                    (userId, epochSecond, amount, categoryId, type) -> {
+                        if (type == EXPENSE) {
+                            long[] units = unitsByUser.computeIfAbsent(userId, id -> new long[span]);
+                            units[(int) (Math.floorDiv(epochSecond, SECONDS_PER_DAY) - firstDay)] += Math.round(amount * UNITS_PER_AMOUNT);
+                        }
+                    });
+        }
+        spendByUser.clear();
+        for (long userId : unitsByUser.keys()) {
+            long[] units = unitsByUser.get(userId);
+            DailySpendRing ring = new DailySpendRing(RING_DAYS);
+            for (int day = 0; day < span; day++) {
+                if (units[day] != 0) {
+                    ring.add(firstDay + day, units[day]);
+                }
+            }
+            spendByUser.put(userId, ring);
+        }
+    }
+
+    @Override
+    public void onCreated(Transaction transaction) {
+        record(transaction, 1);
+    }
+
+    @Override
+    public void onUpdated(Transaction before, Transaction after) {
+        record(before, -1);
+        record(after, 1);
+    }
+
+    @Override
+    public void onDeleted(Transaction transaction) {
+        record(transaction, -1);
+    }
+
+    private void record(Transaction transaction, int sign) {
+        if (transaction.getType() != TransactionType.EXPENSE || transaction.getUserId() == null || transaction.getDate() == null) {
+            return;
+        }
+        long day = transaction.getDate().toLocalDate().toEpochDay();
+        if (day - LocalDate.now(clock).toEpochDay() > FUTURE_DAYS) {
+            return;
+        }
+        DailySpendRing ring = spendByUser.computeIfAbsent(transaction.getUserId(), id -> new DailySpendRing(RING_DAYS));
+        synchronized (ring) {
+            // Расходы старше буфера ни в одно окно уже не попадают
+            ring.add(day, sign * Math.round(transaction.getAmount() * UNITS_PER_AMOUNT));
+        }
+    }
+
+    private static LocalDate currentPeriodStart(Budget budget, LocalDate today) {
+        if (budget.getPeriodType() == BudgetPeriodType.ROLLING) {
+            return today.minusDays(budget.getWindowDays() - 1L);
+        }
+        long elapsed = today.toEpochDay() - budget.getStartDate().toEpochDay();
+        return budget.getStartDate().plusDays(Math.floorDiv(elapsed, budget.getWindowDays()) * budget.getWindowDays());
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.service;
+
+import org.example.model.AdminReport;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionRowVisitor;
+import org.example.repository.TransactionSnapshot;
+import org.example.util.EpochMonths;
+import org.example.util.LongDoubleMap;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Отчёты администратора по всем пользователям. Отчёт читает снимок хранилища, поэтому
+ * пользователи могут писать, пока он считается. Слоты снимка делятся между задачами ForkJoinPool,
+ * каждая задача копит суммы в своих примитивных массивах, частичные результаты сливаются при возврате из подзадач.
+ */
+public class ReportService {
+    private static final byte INCOME = (byte) TransactionType.INCOME.ordinal();
+    private static final byte EXPENSE = (byte) TransactionType.EXPENSE.ordinal();
+    // Меньше этого числа слотов задача считает сама, не дробясь дальше
+    private static final int LEAF_SLOTS = 50_000;
+    // Через столько слотов задача проверяет отмену и отмечает прогресс
+    private static final int BATCH_SLOTS = 4_096;
+
+    private final TransactionRepository transactionRepository;
+    private final ForkJoinPool pool;
+
+    public ReportService(TransactionRepository transactionRepository) {
+        this(transactionRepository, ForkJoinPool.commonPool());
+    }
+
+    public ReportService(TransactionRepository transactionRepository, ForkJoinPool pool) {
+        this.transactionRepository = transactionRepository;
+        this.pool = pool;
+    }
+
+    /**
+     * Запускает расчёт отчёта за месяцы [from, to] в фоне. Возвращает null при неверных параметрах.
+     */
+    public ReportTask startAdminReport(YearMonth from, YearMonth to, int topSpenders) {
+        if (from == null || to == null || from.isAfter(to) || topSpenders < 0) {
+            return null;
+        }
+        TransactionSnapshot snapshot = transactionRepository.openSnapshot();
+        int firstMonth = EpochMonths.monthIndex(from);
+        Scope scope = new Scope(snapshot, firstMonth, EpochMonths.monthIndex(to) - firstMonth + 1,
+                from.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                to.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) - 1,
+                transactionRepository.getCategoryCount(), new ReportTask(snapshot.getSlotCount()));
+        scope.task.start(pool.submit(() -> {
+            try {
+                return new AggregateTask(scope, 0, snapshot.getSlotCount()).invoke();
+            } finally {
+                snapshot.close();
+            }
+        }), result -> toReport(result, topSpenders));
+        return scope.task;
+    }
+
+    /**
+     * Считает отчёт и дожидается результата.
+     */
+    public AdminReport buildAdminReport(YearMonth from, YearMonth to, int topSpenders) {
+        ReportTask task = startAdminReport(from, to, topSpenders);
+        return task == null ? null : task.join();
+    }
+
+    private AdminReport toReport(Accumulator result, int topSpenders) {
+        Map<String, Double> byCategory = new LinkedHashMap<>();
+        for (int id = 0; id < result.expenseByCategory.length; id++) {
+            if (result.expenseByCategory[id] != 0) {
+                byCategory.put(transactionRepository.getCategoryName(id), result.expenseByCategory[id]);
+            }
+        }
+        Map<YearMonth, Double> incomeByMonth = new TreeMap<>();
+        Map<YearMonth, Double> expensesByMonth = new TreeMap<>();
+        for (int offset = 0; offset < result.incomeByMonth.length; offset++) {
+            YearMonth month = EpochMonths.toYearMonth(result.firstMonth + offset);
+            incomeByMonth.put(month, result.incomeByMonth[offset]);
+            expensesByMonth.put(month, result.expenseByMonth[offset]);
+        }
+        return new AdminReport(byCategory, incomeByMonth, expensesByMonth, topSpenders(result.spentByUser, topSpenders));
+    }
+
+    // Выбор k наибольших сумм вставкой в упорядоченные массивы
+    private static List<AdminReport.SpenderTotal> topSpenders(LongDoubleMap spentByUser, int limit) {
+        long[] userIds = new long[limit];
+        double[] totals = new double[limit];
+        int count = 0;
+        for (long userId : spentByUser.keys()) {
+            double total = spentByUser.get(userId, 0);
+            if (limit == 0 || total <= 0 || count == limit && total <= totals[count - 1]) {
+                continue;
+            }
+            int index = count == limit ? count - 1 : count++;
+            while (index > 0 && totals[index - 1] < total) {
+                totals[index] = totals[index - 1];
+                userIds[index] = userIds[index - 1];
+                index--;
+            }
+            totals[index] = total;
+            userIds[index] = userId;
+        }
+        List<AdminReport.SpenderTotal> spenders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            spenders.add(new AdminReport.SpenderTotal(userIds[i], totals[i]));
+        }
+        return spenders;
+    }
+
+    private static final class Scope {
+        private final TransactionSnapshot snapshot;
+        private final int firstMonth;
+        private final int months;
+        private final long fromEpochSecond;
+        private final long toEpochSecond;
+        private final int categoryCount;
+        private final ReportTask task;
+
+        private Scope(TransactionSnapshot snapshot, int firstMonth, int months, long fromEpochSecond, long toEpochSecond,
+                      int categoryCount, ReportTask task) {
+            this.snapshot = snapshot;
+            this.firstMonth = firstMonth;
+            this.months = months;
+            this.fromEpochSecond = fromEpochSecond;
+            this.toEpochSecond = toEpochSecond;
+            this.categoryCount = categoryCount;
+            this.task = task;
+        }
+    }
+
+    private static final class AggregateTask extends RecursiveTask<Accumulator> {
+        private final Scope scope;
+        private final int from;
+        private final int to;
+
+        private AggregateTask(Scope scope, int from, int to) {
+            this.scope = scope;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= LEAF_SLOTS) {
+                return computeLeaf();
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(scope, from, middle);
+            AggregateTask right = new AggregateTask(scope, middle, to);
+            left.fork();
+            Accumulator result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+
+        private Accumulator computeLeaf() {
+            Accumulator accumulator = new Accumulator(scope);
+            for (int batch = from; batch < to && !scope.task.isCancelled(); batch += BATCH_SLOTS) {
+                int batchEnd = Math.min(to, batch + BATCH_SLOTS);
+                scope.snapshot.forEach(batch, batchEnd, scope.fromEpochSecond, scope.toEpochSecond, accumulator);
+                scope.task.addProcessed(batchEnd - batch);
+            }
+            return accumulator;
+        }
+    }
+
+    /**
+     * Частичные суммы одной задачи.
+     */
+    static final class Accumulator implements TransactionRowVisitor {
+        private final int firstMonth;
+        private final double[] incomeByMonth;
+        private final double[] expenseByMonth;
+        private double[] expenseByCategory;
+        private final LongDoubleMap spentByUser = new LongDoubleMap();
+
+        private Accumulator(Scope scope) {
+            this.firstMonth = scope.firstMonth;
+            this.incomeByMonth = new double[scope.months];
+            this.expenseByMonth = new double[scope.months];
+            this.expenseByCategory = new double[scope.categoryCount];
+        }
+
+        @Override
+        public void visit(long userId, long epochSecond, double amount, int categoryId, byte type) {
+            int month = EpochMonths.monthIndex(epochSecond) - firstMonth;
+            if (type == INCOME) {
+                incomeByMonth[month] += amount;
+            } else if (type == EXPENSE) {
+                expenseByMonth[month] += amount;
+                spentByUser.addTo(userId, amount);
+                if (categoryId >= 0) {
+                    // Категория могла появиться уже после запуска отчёта
+                    if (categoryId >= expenseByCategory.length) {
+                        expenseByCategory = Arrays.copyOf(expenseByCategory, categoryId + 1);
+                    }
+                    expenseByCategory[categoryId] += amount;
+                }
+            }
+        }
+
+        private void merge(Accumulator other) {
+            for (int i = 0; i < incomeByMonth.length; i++) {
+                incomeByMonth[i] += other.incomeByMonth[i];
+                expenseByMonth[i] += other.expenseByMonth[i];
+            }
+            if (other.expenseByCategory.length > expenseByCategory.length) {
+                expenseByCategory = Arrays.copyOf(expenseByCategory, other.expenseByCategory.length);
+            }
+            for (int i = 0; i < other.expenseByCategory.length; i++) {
+                expenseByCategory[i] += other.expenseByCategory[i];
+            }
+            for (long userId : other.spentByUser.keys()) {
+                spentByUser.addTo(userId, other.spentByUser.get(userId, 0));
+            }
+        }
+    }
+}
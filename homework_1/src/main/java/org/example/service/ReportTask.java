@@ -0,0 +1,65 @@
+package org.example.service;
+
+import org.example.model.AdminReport;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Запущенный отчёт: прогресс, отмена и ожидание результата.
+ */
+public class ReportTask {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder processedRows = new LongAdder();
+    private final long totalRows;
+    private ForkJoinTask<ReportService.Accumulator> future;
+    private Function<ReportService.Accumulator, AdminReport> finisher;
+
+    ReportTask(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    void start(ForkJoinTask<ReportService.Accumulator> future, Function<ReportService.Accumulator, AdminReport> finisher) {
+        this.future = future;
+        this.finisher = finisher;
+    }
+
+    /**
+     * Просит остановить расчёт: подзадачи проверяют флаг после каждой пачки строк.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Доля обработанных строк от 0 до 1.
+     */
+    public double getProgress() {
+        if (totalRows == 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, (double) processedRows.sum() / totalRows);
+    }
+
+    /**
+     * Ждёт окончания расчёта. Возвращает null, если отчёт отменён.
+     */
+    public AdminReport join() {
+        ReportService.Accumulator result = future.join();
+        return isCancelled() ? null : finisher.apply(result);
+    }
+
+    void addProcessed(long rows) {
+        processedRows.add(rows);
+    }
+}
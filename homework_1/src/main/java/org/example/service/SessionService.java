@@ -0,0 +1,175 @@
+package org.example.service;
+
+import org.example.model.Session;
+import org.example.util.TimingWheel;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SessionService {
+    private static final int TOKEN_BYTES = 32;
+    private static final long WHEEL_TICK_MILLIS = 1000;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimingWheel<String> expiryWheel;
+
+    private final long idleTimeoutMillis;
+    private final long absoluteTimeoutMillis;
+    private final int maxSessions;
+    private final Clock clock;
+
+    public SessionService() {
+        this(Duration.ofMinutes(30), Duration.ofHours(12), 1_000_000, Clock.systemUTC());
+    }
+
+    public SessionService(Duration idleTimeout, Duration absoluteTimeout, int maxSessions, Clock clock) {
+        if (idleTimeout == null || absoluteTimeout == null || clock == null || maxSessions <= 0) {
+            throw new IllegalArgumentException("Invalid session settings");
+        }
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.absoluteTimeoutMillis = absoluteTimeout.toMillis();
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        this.expiryWheel = new TimingWheel<>(WHEEL_TICK_MILLIS, clock.millis());
+    }
+
+    public String createSession(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        long now = clock.millis();
+        expireDue(now, true);
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            return null; // Лимит сессий исчерпан
+        }
+        String token = newToken();
+        Session session = new Session(token, userId, now, now);
+        // Сессия публикуется под блокировкой ключа пользователя, чтобы не разминуться с revokeAllForUser
+        tokensByUser.compute(userId, (id, tokens) -> {
+            Set<String> userTokens = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            userTokens.add(token);
+            sessions.put(token, session);
+            return userTokens;
+        });
+        wheelLock.lock();
+        try {
+            expiryWheel.schedule(token, deadlineOf(session));
+        } finally {
+            wheelLock.unlock();
+        }
+        return token;
+    }
+
+    /**
+     * Проверяет токен за O(1) и продлевает сессию. Возвращает id пользователя или null.
+     */
+    public Long validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (isExpired(session, now)) {
+            remove(session);
+            return null;
+        }
+        session.setLastAccessAt(now);
+        expireDue(now, false);
+        return session.getUserId();
+    }
+
+    public boolean invalidate(String token) {
+        if (token == null) {
+            return false;
+        }
+        Session session = sessions.get(token);
+        return session != null && remove(session);
+    }
+
+    public int revokeAllForUser(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        AtomicInteger revoked = new AtomicInteger();
+        tokensByUser.computeIfPresent(userId, (id, tokens) -> {
+            for (String token : tokens) {
+                if (sessions.remove(token) != null) {
+                    sessionCount.decrementAndGet();
+                    revoked.incrementAndGet();
+                }
+            }
+            return null;
+        });
+        return revoked.get();
+    }
+
+    public int getActiveSessionCount() {
+        return sessionCount.get();
+    }
+
+    // Ленивое вытеснение: колесо проверяется попутно с обычными запросами
+    private void expireDue(long now, boolean wait) {
+        if (wait) {
+            wheelLock.lock();
+        } else if (!wheelLock.tryLock()) {
+            return;
+        }
+        try {
+            expiryWheel.advance(now, token -> {
+                Session session = sessions.get(token);
+                if (session == null) {
+                    return;
+                }
+                if (isExpired(session, now)) {
+                    remove(session);
+                } else {
+                    expiryWheel.schedule(token, deadlineOf(session));
+                }
+            });
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.getToken(), session)) {
+            return false;
+        }
+        sessionCount.decrementAndGet();
+        tokensByUser.computeIfPresent(session.getUserId(), (id, tokens) -> {
+            tokens.remove(session.getToken());
+            return tokens.isEmpty() ? null : tokens;
+        });
+        return true;
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now >= deadlineOf(session);
+    }
+
+    private long deadlineOf(Session session) {
+        return Math.min(session.getLastAccessAt() + idleTimeoutMillis, session.getCreatedAt() + absoluteTimeoutMillis);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+}
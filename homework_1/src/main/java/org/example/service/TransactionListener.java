@@ -0,0 +1,22 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+
+/**
+ * Получает события TransactionService после успешной записи. Вызывается в потоке, который менял транзакцию,
+ * и получает копии: менять их можно, на хранилище это не влияет.
+ */
+public interface TransactionListener {
+
+    default void onCreated(Transaction transaction) {
+    }
+
+    /**
+     * before - состояние до изменения, after - сохранённое.
+     */
+    default void onUpdated(Transaction before, Transaction after) {
+    }
+
+    default void onDeleted(Transaction transaction) {
+    }
+}
@@ -1,21 +1,65 @@
 package org.example.service;
 
 import org.example.model.Transaction;
+import org.example.model.TransactionQuery;
 import org.example.model.TransactionType;
+import org.example.repository.MonthTotalsVisitor;
+import org.example.repository.MonthlySummaryRepository;
 import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionVisitor;
+import org.example.util.EpochMonths;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class TransactionService {
+    private static final byte INCOME = (byte) TransactionType.INCOME.ordinal();
+    private static final byte EXPENSE = (byte) TransactionType.EXPENSE.ordinal();
+
     private final TransactionRepository transactionRepository;
+    private final List<TransactionListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile MonthlySummaryRepository summaryArchive;
+    private volatile UserCommandExecutor userExecutor = UserCommandExecutor.inline();
 
     public TransactionService(TransactionRepository transactionRepository) {
         this.transactionRepository = transactionRepository;
     }
 
+    public void addListener(TransactionListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(TransactionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Подключает архив закрытых месяцев: суммы и подсчёты за месяцы, целиком попавшие в период и закрытые,
+     * берутся из архива, транзакции читаются только за остальные дни. Транзакции с датой в закрытом месяце
+     * пользователя по-прежнему можно добавить, изменить и удалить: изменение записывается поправкой к итогу месяца.
+     */
+    public void setSummaryArchive(MonthlySummaryRepository summaryArchive) {
+        this.summaryArchive = summaryArchive;
+    }
+
+    /**
+     * Исполнитель, в потоке шарда которого выполняются записи пользователя. По умолчанию записи идут в вызывающем потоке.
+     */
+    public void setUserExecutor(UserCommandExecutor userExecutor) {
+        this.userExecutor = userExecutor == null ? UserCommandExecutor.inline() : userExecutor;
+    }
+
     public Transaction createTransaction(Long userId, double amount, String category, String description, LocalDateTime date, TransactionType type) {
         if (userId == null || category == null || category.trim().isEmpty() || date == null || amount == 0 || type == null) {
             return null;
@@ -27,7 +71,17 @@ public class TransactionService {
         transaction.setDescription(description);
         transaction.setDate(date);
         transaction.setType(type);
-        return transactionRepository.save(transaction);
+        return userExecutor.call(userId, () -> {
+            Transaction saved = underCloseLock(() -> {
+                Transaction stored = transactionRepository.save(transaction);
+                adjustClosedMonth(stored, 1);
+                return stored;
+            });
+            for (TransactionListener listener : listeners) {
+                listener.onCreated(TransactionRepository.copy(saved));
+            }
+            return saved;
+        });
     }
 
     public Transaction getTransactionById(Long transactionId) {
@@ -54,78 +108,221 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
+    public List<Transaction> findTransactions(TransactionQuery query) {
+        if (query == null) {
+            return List.of();
+        }
+        return transactionRepository.query(query);
+    }
+
+    public List<Transaction> searchTransactions(Long userId, String text, LocalDateTime startDate, LocalDateTime endDate, TransactionType type) {
+        if (userId == null || text == null || text.trim().isEmpty()) {
+            return List.of();
+        }
+        return transactionRepository.search(userId, text, startDate, endDate, type);
+    }
+
     public boolean updateTransaction(Long transactionId, Double amount, String category, String description) {
-        Transaction transaction = transactionRepository.findById(transactionId);
+        return userExecutor.call(ownerOf(transactionId), () -> OptimisticRetry.run(() -> {
+            Transaction transaction = transactionRepository.findById(transactionId);
+            if (transaction == null) {
+                return false;
+            }
+            Transaction before = TransactionRepository.copy(transaction);
+            boolean updated = false;
+            if (amount != null) {
+                transaction.setAmount(amount);
+                updated = true;
+            }
+            if (category != null && !category.trim().isEmpty()) {
+                transaction.setCategory(category);
+                updated = true;
+            }
+            if (description != null) {
+                transaction.setDescription(description);
+                updated = true;
+            }
+            if (updated) {
+                underCloseLock(() -> {
+                    transactionRepository.save(transaction);
+                    adjustClosedMonth(before, -1);
+                    adjustClosedMonth(transaction, 1);
+                    return null;
+                });
+                for (TransactionListener listener : listeners) {
+                    listener.onUpdated(TransactionRepository.copy(before), TransactionRepository.copy(transaction));
+                }
+                return true;
+            }
+            return false;
+        }));
+    }
+
+    public boolean deleteTransaction(Long transactionId) {
+        Transaction transaction = transactionId == null ? null : transactionRepository.findById(transactionId);
         if (transaction == null) {
             return false;
         }
-        boolean updated = false;
-        if (amount != null) {
-            transaction.setAmount(amount);
-            updated = true;
-        }
-        if (category != null && !category.trim().isEmpty()) {
-            transaction.setCategory(category);
-            updated = true;
-        }
-        if (description != null) {
-            transaction.setDescription(description);
-            updated = true;
-        }
-        if (updated) {
-            transactionRepository.save(transaction);
+        return userExecutor.call(transaction.getUserId(), () -> {
+            underCloseLock(() -> {
+                transactionRepository.delete(transactionId);
+                adjustClosedMonth(transaction, -1);
+                return null;
+            });
+            for (TransactionListener listener : listeners) {
+                listener.onDeleted(TransactionRepository.copy(transaction));
+            }
             return true;
-        }
-        return false;
+        });
     }
 
-    public boolean deleteTransaction(Long transactionId) {
-        if (transactionId == null || transactionRepository.findById(transactionId) == null) {
-            return false;
+    // Владелец транзакции нужен только для выбора шарда
+    private Long ownerOf(Long transactionId) {
+        if (transactionId == null || !userExecutor.isSharded()) {
+            return null;
         }
-        transactionRepository.delete(transactionId);
-        return true;
+        Transaction transaction = transactionRepository.findById(transactionId);
+        return transaction == null ? null : transaction.getUserId();
     }
 
     public double calculateTotalIncome(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Transaction> transactions = getTransactionsByUserIdAndDateRange(userId, startDate, endDate);
-        if (transactions == null) {
-            return 0;
-        }
-        return transactions.stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return sumByType(userId, startDate, endDate, TransactionType.INCOME);
     }
 
     public double calculateTotalExpenses(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Transaction> transactions = getTransactionsByUserIdAndDateRange(userId, startDate, endDate);
-        if (transactions == null) {
+        return sumByType(userId, startDate, endDate, TransactionType.EXPENSE);
+    }
+
+    public double calculateBalance(Long userId) {
+        if (userId == null) {
             return 0;
         }
-        return transactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        double[] balance = new double[1];
+        visitPeriod(userId, null, null, (epochSecond, amount, categoryId, type) -> {
+            if (type == INCOME) {
+                balance[0] += amount;
+            } else if (type == EXPENSE) {
+                balance[0] -= amount;
+            }
+        }, (month, income, expenses, count, categoryIds, categoryAmounts) -> balance[0] += income - expenses);
+        return balance[0];
     }
 
-    public double calculateBalance(Long userId) {
-        List<Transaction> transactions = getAllTransactionsByUserId(userId);
-        if (transactions == null) {
+    public long countTransactions(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (userId == null || startDate == null || endDate == null) {
             return 0;
         }
-        double income = transactions.stream().filter(t -> t.getType() == TransactionType.INCOME).mapToDouble(Transaction::getAmount).sum();
-        double expenses = transactions.stream().filter(t -> t.getType() == TransactionType.EXPENSE).mapToDouble(Transaction::getAmount).sum();
-        return income - expenses;
+        long[] count = new long[1];
+        visitPeriod(userId, startDate, endDate, (epochSecond, amount, categoryId, type) -> count[0]++,
+                (month, income, expenses, monthCount, categoryIds, categoryAmounts) -> count[0] += monthCount);
+        return count[0];
     }
 
     public Map<String, Double> calculateExpensesByCategory(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Transaction> transactions = getTransactionsByUserIdAndDateRange(userId, startDate, endDate);
-        if (transactions == null) {
+        if (userId == null || startDate == null || endDate == null) {
             return Map.of();
         }
-        return transactions.stream()
-                .filter(transaction -> transaction.getType() == TransactionType.EXPENSE) // Только расходы
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+        // Суммы копятся в массиве по номеру категории, в Map переводятся один раз в конце
+        double[][] totals = {new double[Math.max(16, transactionRepository.getCategoryCount())]};
+        boolean[][] seen = {new boolean[totals[0].length]};
+        Map<String, Double> result = new HashMap<>();
+        visitPeriod(userId, startDate, endDate, (epochSecond, amount, categoryId, type) -> {
+            if (type != EXPENSE || categoryId < 0) {
+                return;
+            }
+            if (categoryId >= totals[0].length) {
+                totals[0] = Arrays.copyOf(totals[0], categoryId * 2 + 1);
+                seen[0] = Arrays.copyOf(seen[0], totals[0].length);
+            }
+            totals[0][categoryId] += amount;
+            seen[0][categoryId] = true;
+        }, (month, income, expenses, count, categoryIds, categoryAmounts) -> {
+            // У архива свои номера категорий, его суммы складываются сразу по именам
+            for (int i = 0; i < categoryIds.length; i++) {
+                result.merge(summaryArchive.getCategoryName(categoryIds[i]), categoryAmounts[i], Double::sum);
+            }
+        });
+        for (int categoryId = 0; categoryId < totals[0].length; categoryId++) {
+            if (seen[0][categoryId]) {
+                result.merge(transactionRepository.getCategoryName(categoryId), totals[0][categoryId], Double::sum);
+            }
+        }
+        return result;
+    }
+
+    private double sumByType(Long userId, LocalDateTime startDate, LocalDateTime endDate, TransactionType transactionType) {
+        if (userId == null || startDate == null || endDate == null) {
+            return 0;
+        }
+        byte wanted = (byte) transactionType.ordinal();
+        double[] sum = new double[1];
+        boolean income = transactionType == TransactionType.INCOME;
+        visitPeriod(userId, startDate, endDate, (epochSecond, amount, categoryId, type) -> {
+            if (type == wanted) {
+                sum[0] += amount;
+            }
+        }, (month, monthIncome, monthExpenses, count, categoryIds, categoryAmounts) -> sum[0] += income ? monthIncome : monthExpenses);
+        return sum[0];
+    }
+
+    // Обходит период (null - без границы): закрытые месяцы целиком - из архива, остальные дни - по транзакциям
+    private void visitPeriod(Long userId, LocalDateTime startDate, LocalDateTime endDate, TransactionVisitor rows,
+                             MonthTotalsVisitor months) {
+        MonthlySummaryRepository archive = summaryArchive;
+        YearMonth firstFull = startDate == null ? null : firstFullMonth(startDate);
+        YearMonth lastFull = endDate == null ? null : lastFullMonth(endDate);
+        if (archive == null || firstFull != null && lastFull != null && firstFull.isAfter(lastFull)) {
+            transactionRepository.forEachByUser(userId, startDate, endDate, rows);
+            return;
+        }
+        List<Integer> archived = new ArrayList<>();
+        archive.forEachMonth(userId, firstFull, lastFull, (month, income, expenses, count, categoryIds, categoryAmounts) -> {
+            archived.add(month);
+            months.visit(month, income, expenses, count, categoryIds, categoryAmounts);
+        });
+        LocalDateTime cursor = startDate;
+        for (int month : archived) {
+            LocalDateTime monthStart = EpochMonths.toYearMonth(month).atDay(1).atStartOfDay();
+            if (cursor == null || cursor.isBefore(monthStart)) {
+                transactionRepository.forEachByUser(userId, cursor, monthStart.minusSeconds(1), rows);
+            }
+            cursor = monthStart.plusMonths(1);
+        }
+        if (cursor == null || endDate == null || !cursor.isAfter(endDate)) {
+            transactionRepository.forEachByUser(userId, cursor, endDate, rows);
+        }
+    }
+
+    // Запись под блокировкой закрытия на чтение: закрытие месяца не идёт между записью и поправкой итога
+    private <T> T underCloseLock(Supplier<T> write) {
+        MonthlySummaryRepository archive = summaryArchive;
+        if (archive == null) {
+            return write.get();
+        }
+        Lock lock = archive.getCloseLock().readLock();
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Итог месяца уже в архиве: изменение транзакции вносится в него поправкой
+    private void adjustClosedMonth(Transaction transaction, int sign) {
+        MonthlySummaryRepository archive = summaryArchive;
+        if (archive != null && transaction != null && transaction.getUserId() != null && transaction.getDate() != null) {
+            archive.adjust(transaction, sign);
+        }
+    }
+
+    private static YearMonth firstFullMonth(LocalDateTime startDate) {
+        YearMonth month = YearMonth.from(startDate);
+        return startDate.isAfter(month.atDay(1).atStartOfDay()) ? month.plusMonths(1) : month;
+    }
+
+    private static YearMonth lastFullMonth(LocalDateTime endDate) {
+        YearMonth month = YearMonth.from(endDate);
+        return endDate.isBefore(month.atEndOfMonth().atTime(23, 59, 59)) ? month.minusMonths(1) : month;
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package org.example.service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Однописательское выполнение записей по пользователям: userId хешируется в один из N шардов,
+ * у каждого шарда один поток, который по очереди выполняет команды своих пользователей.
+ * Записи одного пользователя идут в порядке отправки и не конкурируют между собой,
+ * записи пользователей разных шардов идут параллельно.
+ * Данные не делятся по шардам: репозитории общие и потокобезопасные, поэтому чтения,
+ * в том числе админские по всем пользователям, идут мимо шардов через снимки репозиториев.
+ * Команда, вызванная из потока шарда, выполняется сразу в нём: поток шарда никогда не ждёт другой шард.
+ */
+public class UserCommandExecutor implements AutoCloseable {
+    private static final UserCommandExecutor INLINE = new UserCommandExecutor(new ExecutorService[0]);
+
+    private final ExecutorService[] loops;
+    private final Thread[] threads;
+
+    public UserCommandExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public UserCommandExecutor(int shardCount) {
+        this(loops(shardCount));
+    }
+
+    private UserCommandExecutor(ExecutorService[] loops) {
+        this.loops = loops;
+        this.threads = new Thread[loops.length];
+        for (int i = 0; i < loops.length; i++) {
+            // Поток шарда создаётся заранее, чтобы isShardThread не зависел от первой команды
+            threads[i] = call(loops[i], Thread::currentThread);
+        }
+    }
+
+    /**
+     * Исполнитель без шардов: команды выполняются в вызывающем потоке.
+     */
+    public static UserCommandExecutor inline() {
+        return INLINE;
+    }
+
+    public boolean isSharded() {
+        return loops.length > 0;
+    }
+
+    /**
+     * Выполняет команду в потоке шарда пользователя и ждёт результата.
+     * Без userId, из потока шарда и после закрытия команда выполняется в вызывающем потоке.
+     */
+    public <T> T call(Long userId, Supplier<T> command) {
+        if (userId == null || !isSharded() || isShardThread()) {
+            return command.get();
+        }
+        ExecutorService loop = loops[shardOf(userId)];
+        if (loop.isShutdown()) {
+            return command.get();
+        }
+        try {
+            return call(loop, command);
+        } catch (RejectedExecutionException e) {
+            return command.get();
+        }
+    }
+
+    public int shardOf(long userId) {
+        return Math.floorMod(Long.hashCode(userId), loops.length);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    private boolean isShardThread() {
+        Thread current = Thread.currentThread();
+        for (Thread thread : threads) {
+            if (thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T call(ExecutorService loop, Supplier<T> command) {
+        Future<T> result = loop.submit(command::get);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard", e);
+        }
+    }
+
+    private static ExecutorService[] loops(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        ExecutorService[] loops = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "user-shard-" + i;
+            loops[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return loops;
+    }
+}
@@ -1,14 +1,22 @@
 package org.example.service;
 
 import org.example.model.User;
+import org.example.repository.OptimisticLockException;
 import org.example.repository.UserRepository;
 import java.util.List;
 
 public class UserService {
     private final UserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    private final LoginRateLimiter loginRateLimiter;
+    private final SessionService sessionService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, LoginRateLimiter loginRateLimiter,
+                       SessionService sessionService) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.loginRateLimiter = loginRateLimiter;
+        this.sessionService = sessionService;
     }
 
     public User registerUser(String name, String email, String password, boolean isAdmin) {
@@ -18,24 +26,50 @@ public class UserService {
         if (findUserByEmail(email) != null) {
             return null; // Пользователь с таким email уже существует
         }
+        String passwordHash = passwordHasher.hash(password);
+        if (passwordHash == null) {
+            return null; // Пул хеширования перегружен
+        }
         User user = new User();
         user.setName(name);
         user.setEmail(email);
-        user.setPassword(password);
+        user.setPassword(passwordHash);
         user.setAdmin(isAdmin);
         user.setBlocked(false);
         return userRepository.save(user);
     }
 
     public User loginUser(String email, String password) {
+        return loginUser(email, password, null);
+    }
+
+    public User loginUser(String email, String password, String clientId) {
         if (email == null || email.trim().isEmpty() || password == null || password.trim().isEmpty()) {
             return null;
         }
+        if (!loginRateLimiter.tryAcquire(email, clientId)) {
+            return null; // Слишком много попыток, до поиска и хеширования не доходим
+        }
         User user = findUserByEmail(email);
-        if (user != null && user.getPassword().equals(password)) {
-            return user;
+        if (user == null) {
+            passwordHasher.matchDummy(password); // Столько же работы, сколько для существующего email
+            return null;
+        }
+        if (!passwordHasher.matches(password, user.getPassword())) {
+            return null;
         }
-        return null;
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            String passwordHash = passwordHasher.hash(password);
+            if (passwordHash != null) {
+                user.setPassword(passwordHash);
+                try {
+                    userRepository.save(user);
+                } catch (OptimisticLockException e) {
+                    // Профиль как раз меняют: перехешируем при следующем входе
+                }
+            }
+        }
+        return user;
     }
 
     public User getUserById(Long userId) {
@@ -44,30 +78,42 @@ public class UserService {
     }
 
     public boolean updateUser(Long userId, String name, String email, String password) {
-        User user = userRepository.findById(userId);
-        if (user == null) return false;
-
-        boolean updated = false;
-        if (name != null && !name.trim().isEmpty()) {
-            user.setName(name);
-            updated = true;
-        }
-        if (email != null && !email.trim().isEmpty() && email.contains("@")) {
-            if (findUserByEmail(email) != null && !findUserByEmail(email).getId().equals(userId)) {
-                return false; // Email занят другим пользователем
-            }
-            user.setEmail(email);
-            updated = true;
-        }
+        // Хешируем один раз до цикла: при конфликте версий повторяется только запись
+        String passwordHash;
         if (password != null && !password.trim().isEmpty()) {
-            user.setPassword(password);
-            updated = true;
-        }
-        if (updated) {
-            userRepository.save(user);
-            return true;
+            passwordHash = passwordHasher.hash(password);
+            if (passwordHash == null) {
+                return false;
+            }
+        } else {
+            passwordHash = null;
         }
-        return false;
+        return OptimisticRetry.run(() -> {
+            User user = userRepository.findById(userId);
+            if (user == null) return false;
+
+            boolean updated = false;
+            if (name != null && !name.trim().isEmpty()) {
+                user.setName(name);
+                updated = true;
+            }
+            if (email != null && !email.trim().isEmpty() && email.contains("@")) {
+                if (findUserByEmail(email) != null && !findUserByEmail(email).getId().equals(userId)) {
+                    return false; // Email занят другим пользователем
+                }
+                user.setEmail(email);
+                updated = true;
+            }
+            if (passwordHash != null) {
+                user.setPassword(passwordHash);
+                updated = true;
+            }
+            if (updated) {
+                userRepository.save(user);
+                return true;
+            }
+            return false;
+        });
     }
 
     public boolean deleteUser(Long userId) {
@@ -75,6 +121,7 @@ public class UserService {
             return false;
         }
         userRepository.delete(userId);
+        sessionService.revokeAllForUser(userId); // Сессии удалённого пользователя больше не действуют
         return true;
     }
 
@@ -83,23 +130,28 @@ public class UserService {
     }
 
     public boolean blockUser(Long userId) {
-        User user = userRepository.findById(userId);
-        if (user != null) {
-            user.setBlocked(true);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+        return OptimisticRetry.run(() -> {
+            User user = userRepository.findById(userId);
+            if (user != null) {
+                user.setBlocked(true);
+                userRepository.save(user);
+                sessionService.revokeAllForUser(userId); // Заблокированный не должен работать по старым сессиям
+                return true;
+            }
+            return false;
+        });
     }
 
     public boolean unblockUser(Long userId) {
-        User user = userRepository.findById(userId);
-        if (user != null) {
-            user.setBlocked(false);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+        return OptimisticRetry.run(() -> {
+            User user = userRepository.findById(userId);
+            if (user != null) {
+                user.setBlocked(false);
+                userRepository.save(user);
+                return true;
+            }
+            return false;
+        });
     }
 
     // Новый метод для поиска пользователя по email
@@ -110,11 +162,16 @@ public class UserService {
     public void createFirstAdminIfNotExists(String email, String password) {
         // Проверяем, существует ли уже пользователь с указанным email
         if (findUserByEmail(email) == null) {
+            String passwordHash = passwordHasher.hash(password);
+            if (passwordHash == null) {
+                System.out.println("Не удалось создать администратора: пул хеширования перегружен.");
+                return;
+            }
             // Если нет, создаем нового администратора
             User firstAdmin = new User();
             firstAdmin.setName("Администратор");
             firstAdmin.setEmail(email);
-            firstAdmin.setPassword(password);
+            firstAdmin.setPassword(passwordHash);
             firstAdmin.setAdmin(true); // Ставим флаг администратора
             firstAdmin.setBlocked(false);
 
@@ -0,0 +1,100 @@
+package org.example.util;
+
+/**
+ * Кольцевой буфер нарастающих итогов по дням (в копейках) за последние capacity дней.
+ * Сумма за любое окно внутри буфера - разность двух итогов, O(1) при любой длине истории.
+ * Буфер сдвигается при записи нового дня; дни без записей получают итог предыдущего дня.
+ * Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+ */
+public class DailySpendRing {
+    private final long[] totals;   // итог по день включительно, ячейка day & mask
+    private final int mask;
+    private long firstDay = Long.MIN_VALUE;
+    private long lastDay;
+
+    /**
+     * maxWindowDays - самое длинное окно, которое будут спрашивать.
+     */
+    public DailySpendRing(int maxWindowDays) {
+        if (maxWindowDays <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        int capacity = Integer.highestOneBit(maxWindowDays) << 1;
+        totals = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Добавляет сумму (можно отрицательную) в день epochDay. Дни старше буфера не хранятся: возвращает false.
+     * Запись задним числом обновляет итоги до последнего дня, O(число дней после epochDay).
+     */
+    public boolean add(long epochDay, long units) {
+        if (firstDay == Long.MIN_VALUE) {
+            firstDay = epochDay;
+            lastDay = epochDay;
+        }
+        if (epochDay < oldestDay()) {
+            return false;
+        }
+        if (epochDay < firstDay) {
+            // Начало истории уходит назад: ранние дни получают нулевой итог
+            for (long day = Math.max(epochDay, lastDay - mask); day < firstDay; day++) {
+                totals[slot(day)] = 0;
+            }
+            firstDay = epochDay;
+        }
+        advanceTo(epochDay);
+        for (long day = epochDay; day <= lastDay; day++) {
+            totals[slot(day)] += units;
+        }
+        return true;
+    }
+
+    /**
+     * Сумма за дни [fromDay, toDay] включительно. Окно должно помещаться в буфер.
+     */
+    public long sum(long fromDay, long toDay) {
+        if (firstDay == Long.MIN_VALUE || toDay < fromDay || toDay < firstDay) {
+            return 0;
+        }
+        long to = Math.min(toDay, lastDay);
+        if (to < fromDay) {
+            return 0; // после последней записи трат не было
+        }
+        return totals[slot(to)] - totalBefore(fromDay);
+    }
+
+    public int capacityDays() {
+        return totals.length;
+    }
+
+    private long totalBefore(long day) {
+        long previous = day - 1;
+        if (previous < firstDay) {
+            return 0;
+        }
+        if (previous < oldestDay()) {
+            throw new IllegalArgumentException("Window is longer than the retained history");
+        }
+        return totals[slot(previous)];
+    }
+
+    private void advanceTo(long day) {
+        if (day <= lastDay) {
+            return;
+        }
+        long carried = totals[slot(lastDay)];
+        for (long next = Math.max(lastDay + 1, day - mask); next <= day; next++) {
+            totals[slot(next)] = carried;
+        }
+        lastDay = day;
+    }
+
+    private long oldestDay() {
+        return lastDay - mask;
+    }
+
+    private int slot(long day) {
+        return (int) (day & mask);
+    }
+}
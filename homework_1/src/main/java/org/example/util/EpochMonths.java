@@ -0,0 +1,34 @@
+package org.example.util;
+
+import java.time.YearMonth;
+
+/**
+ * Перевод секунд эпохи в номер месяца (год * 12 + месяц - 1) без создания объектов даты.
+ */
+public final class EpochMonths {
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private EpochMonths() {
+    }
+
+    public static int monthIndex(long epochSecond) {
+        // Алгоритм civil_from_days (H. Hinnant), пролептический григорианский календарь
+        long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY) + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    public static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    public static YearMonth toYearMonth(int monthIndex) {
+        return YearMonth.of(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор 64-битных id, упорядоченных по времени создания:
+ * 41 бит - миллисекунды от 2024-01-01 UTC, 10 бит - номер шарда, 12 бит - счётчик в пределах миллисекунды.
+ * Выдача без блокировок: время и счётчик хранятся в одном AtomicLong и меняются через CAS.
+ * Если часы отстали или счётчик миллисекунды исчерпан, генератор занимает следующую миллисекунду,
+ * поэтому id одного генератора всегда строго возрастают.
+ */
+public class IdGenerator {
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int MAX_SHARD = 1023;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SHARD_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_BATCH = 1 << SEQUENCE_BITS;
+    private static final IdGenerator SHARED = new IdGenerator(0);
+
+    private final int shard;
+    private final Clock clock;
+    // Миллисекунды от EPOCH_MILLIS << SEQUENCE_BITS | последний выданный номер
+    private final AtomicLong state = new AtomicLong(-1);
+
+    public IdGenerator(int shard) {
+        this(shard, Clock.systemUTC());
+    }
+
+    public IdGenerator(int shard, Clock clock) {
+        if (shard < 0 || shard > MAX_SHARD || clock == null) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + MAX_SHARD);
+        }
+        this.shard = shard;
+        this.clock = clock;
+    }
+
+    /**
+     * Общий генератор процесса для репозиториев, созданных без своего генератора.
+     */
+    public static IdGenerator shared() {
+        return SHARED;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public long nextId() {
+        long now = currentState();
+        while (true) {
+            long current = state.get();
+            long next = Math.max(current + 1, now);
+            if (state.compareAndSet(current, next)) {
+                return toId(next);
+            }
+        }
+    }
+
+    /**
+     * Резервирует count подряд идущих id одним CAS. Возвращает первый: id диапазона - first .. first + count - 1.
+     */
+    public long reserve(int count) {
+        if (count <= 0 || count > MAX_BATCH) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH);
+        }
+        long now = currentState();
+        while (true) {
+            long current = state.get();
+            long first = Math.max(current + 1, now);
+            if ((first & SEQUENCE_MASK) + count > MAX_BATCH) {
+                // Диапазон не помещается в остаток миллисекунды, начинаем следующую
+                first = ((first >>> SEQUENCE_BITS) + 1) << SEQUENCE_BITS;
+            }
+            if (state.compareAndSet(current, first + count - 1)) {
+                return toId(first);
+            }
+        }
+    }
+
+    /**
+     * Момент создания, зашитый в id.
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (SHARD_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_SHARD;
+    }
+
+    /**
+     * Наименьший возможный id, созданный не раньше момента time.
+     */
+    public static long minIdAt(Instant time) {
+        return Math.max(0, time.toEpochMilli() - EPOCH_MILLIS) << (SHARD_BITS + SEQUENCE_BITS);
+    }
+
+    /**
+     * Наибольший возможный id, созданный не позже момента time.
+     */
+    public static long maxIdAt(Instant time) {
+        long millis = time.toEpochMilli() - EPOCH_MILLIS;
+        return millis < 0 ? -1 : ((millis + 1) << (SHARD_BITS + SEQUENCE_BITS)) - 1;
+    }
+
+    private long currentState() {
+        return Math.max(0, clock.millis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+    }
+
+    private long toId(long packed) {
+        return (packed >>> SEQUENCE_BITS) << (SHARD_BITS + SEQUENCE_BITS)
+                | (long) shard << SEQUENCE_BITS
+                | (packed & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Двоичная min-куча id с приоритетом long и индексом позиций.
+ * Вставка, смена приоритета и удаление по id - O(log n), минимум - O(1).
+ * Каждый id встречается в куче не больше одного раза. Класс не потокобезопасен.
+ */
+public class IndexedLongHeap {
+    private long[] ids;
+    private long[] priorities;
+    private int size;
+    private final LongIntMap positions;
+
+    public IndexedLongHeap() {
+        this(16);
+    }
+
+    public IndexedLongHeap(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        ids = new long[capacity];
+        priorities = new long[capacity];
+        positions = new LongIntMap(capacity);
+    }
+
+    /**
+     * Добавляет id или меняет его приоритет, если id уже в куче.
+     */
+    public void put(long id, long priority) {
+        int index = positions.get(id, -1);
+        if (index >= 0) {
+            long old = priorities[index];
+            priorities[index] = priority;
+            if (priority < old) {
+                siftUp(index);
+            } else {
+                siftDown(index);
+            }
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        ids[size] = id;
+        priorities[size] = priority;
+        positions.put(id, size);
+        siftUp(size++);
+    }
+
+    public boolean remove(long id) {
+        int index = positions.get(id, -1);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public boolean contains(long id) {
+        return positions.containsKey(id);
+    }
+
+    public long peekId() {
+        checkNotEmpty();
+        return ids[0];
+    }
+
+    public long peekPriority() {
+        checkNotEmpty();
+        return priorities[0];
+    }
+
+    /**
+     * Извлекает id с наименьшим приоритетом.
+     */
+    public long poll() {
+        checkNotEmpty();
+        long id = ids[0];
+        removeAt(0);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void removeAt(int index) {
+        positions.remove(ids[index]);
+        int last = --size;
+        if (index == last) {
+            return;
+        }
+        long movedPriority = priorities[last];
+        move(last, index);
+        if (index > 0 && movedPriority < priorities[(index - 1) >>> 1]) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        long id = ids[index];
+        long priority = priorities[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        place(id, priority, index);
+    }
+
+    private void siftDown(int index) {
+        long id = ids[index];
+        long priority = priorities[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        place(id, priority, index);
+    }
+
+    private void move(int from, int to) {
+        place(ids[from], priorities[from], to);
+    }
+
+    private void place(long id, long priority, int index) {
+        ids[index] = id;
+        priorities[index] = priority;
+        positions.put(id, index);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+    }
+}
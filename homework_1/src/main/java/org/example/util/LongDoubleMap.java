@@ -0,0 +1,69 @@
+package org.example.util;
+
+/**
+ * Хеш-таблица long -> double с открытой адресацией, без упаковки ключей и значений.
+ * Устроена как {@link LongKeyTable}. Класс не потокобезопасен.
+ */
+public class LongDoubleMap extends LongKeyTable {
+    private double[] values;
+
+    public LongDoubleMap() {
+        this(16);
+    }
+
+    public LongDoubleMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Значение по ключу или defaultValue, если ключа нет.
+     */
+    public double get(long key, double defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    public void put(long key, double value) {
+        // Ячейку берём до обращения к массиву: при добавлении таблица может вырасти
+        int index = insert(key);
+        values[index] = value;
+    }
+
+    /**
+     * Прибавляет delta к значению ключа (отсутствующий ключ считается нулём) и возвращает сумму.
+     */
+    public double addTo(long key, double delta) {
+        int index = insert(key);
+        values[index] += delta;
+        return values[index];
+    }
+
+    public boolean remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    void allocateValues(int length) {
+        values = new double[length];
+    }
+
+    @Override
+    Object valueArray() {
+        return values;
+    }
+
+    @Override
+    void copyValue(Object from, int fromIndex, int toIndex) {
+        values[toIndex] = ((double[]) from)[fromIndex];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = 0;
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Общая часть хеш-таблиц с ключами long: открытая адресация с линейным пробированием.
+ * Ключи лежат в массиве long без упаковки, удаление сдвигает следующие элементы назад,
+ * поэтому «надгробий» нет. Ключ 0 помечает пустую ячейку, поэтому его значение хранится
+ * в дополнительной ячейке массива значений сразу за таблицей (индекс capacity).
+ * Наследник хранит значения в массиве длины capacity + 1 и умеет переносить их между ячейками.
+ */
+abstract class LongKeyTable {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    long[] keys;
+    int mask;
+    int size;
+    boolean hasZeroKey;
+
+    LongKeyTable(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new long[capacity];
+        mask = capacity - 1;
+        allocateValues(capacity + 1);
+    }
+
+    public final boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Ключи в порядке ячеек таблицы.
+     */
+    public final long[] keys() {
+        long[] result = new long[size];
+        int k = 0;
+        if (hasZeroKey) {
+            result[k++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[k++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ячейка ключа или -1.
+     */
+    final int indexOf(long key) {
+        if (key == 0) {
+            return hasZeroKey ? keys.length : -1;
+        }
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ячейка ключа; отсутствующий ключ добавляется с очищенным значением. Таблица может вырасти
+     * только внутри вызова, поэтому ячейка действительна до следующего изменения.
+     */
+    final int insert(long key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return index;
+        }
+        if (key == 0) {
+            hasZeroKey = true;
+            size++;
+            clearValue(keys.length);
+            return keys.length;
+        }
+        // Таблица заполняется не более чем на две трети, чтобы цепочки пробирования оставались короткими
+        if (size + 1 > keys.length / 3 * 2) {
+            rehash(grow(keys.length));
+        }
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        clearValue(i);
+        return i;
+    }
+
+    final void removeAt(int index) {
+        if (index == keys.length) {
+            hasZeroKey = false;
+            clearValue(index);
+        } else {
+            shiftBack(index);
+        }
+        size--;
+    }
+
+    abstract void allocateValues(int length);
+
+    /**
+     * Текущий массив значений; после allocateValues из него копируются значения при росте таблицы.
+     */
+    abstract Object valueArray();
+
+    abstract void copyValue(Object from, int fromIndex, int toIndex);
+
+    abstract void clearValue(int index);
+
+    // Фибоначчиево хеширование: последовательные id расходятся по всей таблице
+    static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Заполняем дыру после удаления элементами, которые без неё были бы недостижимы
+    private void shiftBack(int gap) {
+        Object values = valueArray();
+        for (int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            int ideal = slot(keys[i], mask);
+            if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                copyValue(values, i, gap);
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        clearValue(gap);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object oldValues = valueArray();
+        keys = new long[capacity];
+        mask = capacity - 1;
+        allocateValues(capacity + 1);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = slot(key, mask);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                copyValue(oldValues, j, i);
+            }
+        }
+        if (hasZeroKey) {
+            copyValue(oldValues, oldKeys.length, capacity);
+        }
+    }
+
+    private static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map is too large");
+        }
+        return capacity * 2;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+        long needed = Math.max(4L, (long) expectedSize * 3 / 2 + 1);
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size is too large");
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
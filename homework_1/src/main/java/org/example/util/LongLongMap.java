@@ -0,0 +1,69 @@
+package org.example.util;
+
+/**
+ * Хеш-таблица long -> long с открытой адресацией, без упаковки ключей и значений.
+ * Устроена как {@link LongKeyTable}. Класс не потокобезопасен.
+ */
+public class LongLongMap extends LongKeyTable {
+    private long[] values;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Значение по ключу или defaultValue, если ключа нет.
+     */
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    public void put(long key, long value) {
+        // Ячейку берём до обращения к массиву: при добавлении таблица может вырасти
+        int index = insert(key);
+        values[index] = value;
+    }
+
+    /**
+     * Прибавляет delta к значению ключа (отсутствующий ключ считается нулём) и возвращает сумму.
+     */
+    public long addTo(long key, long delta) {
+        int index = insert(key);
+        values[index] += delta;
+        return values[index];
+    }
+
+    public boolean remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    void allocateValues(int length) {
+        values = new long[length];
+    }
+
+    @Override
+    Object valueArray() {
+        return values;
+    }
+
+    @Override
+    void copyValue(Object from, int fromIndex, int toIndex) {
+        values[toIndex] = ((long[]) from)[fromIndex];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = 0;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongFunction;
+
+/**
+ * Хеш-таблица long -> объект с открытой адресацией, устроена как {@link LongKeyTable}.
+ * Значения null не допускаются. Класс не потокобезопасен.
+ */
+public class LongObjectMap<V> extends LongKeyTable {
+    private Object[] values;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Кладёт значение и возвращает прежнее или null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        int index = insert(key);
+        V previous = (V) values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Удаляет ключ и возвращает прежнее значение или null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Представление значений без копирования. Менять таблицу во время обхода нельзя.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    void allocateValues(int length) {
+        values = new Object[length];
+    }
+
+    @Override
+    Object valueArray() {
+        return values;
+    }
+
+    @Override
+    void copyValue(Object from, int fromIndex, int toIndex) {
+        values[toIndex] = ((Object[]) from)[fromIndex];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = null;
+    }
+
+    // Обходит занятые ячейки таблицы, затем ячейку ключа 0
+    private final class ValueIterator implements Iterator<V> {
+        private int index = advance(-1);
+
+        @Override
+        public boolean hasNext() {
+            return index <= keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (index > keys.length) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) values[index];
+            index = advance(index);
+            return value;
+        }
+
+        private int advance(int from) {
+            int next = from + 1;
+            while (next < keys.length && keys[next] == 0) {
+                next++;
+            }
+            if (next == keys.length && !hasZeroKey) {
+                next++;
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Отсортированный массив long без повторов. Добавление в конец - O(1),
+ * в середину и удаление - O(n), поиск - двоичный.
+ */
+public class SortedLongSet {
+    private long[] values = new long[4];
+    private int size;
+
+    public boolean add(long value) {
+        if (size == 0 || values[size - 1] < value) {
+            append(value);
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        append(0);
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt - 1);
+        values[insertAt] = value;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Индекс первого элемента, не меньшего value, или size(), если таких нет.
+     */
+    public int ceilingIndex(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Объединение нескольких множеств, результат отсортирован и без повторов.
+     */
+    public static long[] union(Iterable<SortedLongSet> sets) {
+        int total = 0;
+        SortedLongSet single = null;
+        int count = 0;
+        for (SortedLongSet set : sets) {
+            total += set.size;
+            single = set;
+            count++;
+        }
+        if (count == 1) {
+            return single.toArray();
+        }
+        long[] result = new long[total];
+        int offset = 0;
+        for (SortedLongSet set : sets) {
+            System.arraycopy(set.values, 0, result, offset, set.size);
+            offset += set.size;
+        }
+        Arrays.sort(result);
+        int unique = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (unique == 0 || result[i] != result[unique - 1]) {
+                result[unique++] = result[i];
+            }
+        }
+        return unique == result.length ? result : Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов.
+     */
+    public static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (b[j] < a[i]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    private void append(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Иерархическое колесо таймеров: 4 уровня по 64 слота.
+ * Вставка O(1), срабатывание амортизированно O(1) на элемент.
+ * Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+ */
+public class TimingWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    public void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        insert(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Продвигает колесо до указанного времени и отдаёт элементы, срок которых истёк.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long nowTick = nowMillis / tickMillis;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return;
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            cascade();
+            List<Entry<T>> bucket = slots.get(slotIndex(0, currentTick));
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> due = new ArrayList<>(bucket);
+            bucket.clear();
+            for (Entry<T> entry : due) {
+                if (entry.deadlineTick > currentTick) {
+                    insert(entry); // Было ограничено верхним уровнем
+                } else {
+                    size--;
+                    expired.accept(entry.item);
+                }
+            }
+            if (size == 0) {
+                currentTick = nowTick;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            List<Entry<T>> bucket = slots.get(slotIndex(level, currentTick));
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> moved = new ArrayList<>(bucket);
+            bucket.clear();
+            for (Entry<T> entry : moved) {
+                insert(entry);
+            }
+        }
+    }
+
+    private void insert(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                slots.get(slotIndex(level, entry.deadlineTick)).add(entry);
+                return;
+            }
+        }
+        // Дальше последнего уровня: кладём в самый дальний слот, при срабатывании переставим
+        long farTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        slots.get(slotIndex(LEVELS - 1, farTick)).add(entry);
+    }
+
+    private static int slotIndex(int level, long tick) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package org.example.service;
 
 import org.example.model.Transaction;
 import org.example.model.User;
+import org.example.model.UserFilter;
+import org.example.model.UserPage;
 import org.example.repository.UserRepository;
 import org.example.repository.TransactionRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +27,9 @@ class AdminServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private SessionService sessionService;
+
     @InjectMocks
     private AdminService adminService;
 
@@ -63,6 +68,55 @@ class AdminServiceTest {
         assertTrue(users.isEmpty());
     }
 
+    @Test
+    void getUsersPage_ShouldReturnRepositoryPage_WhenLimitIsPositive() {
+        // Arrange
+        User user1 = new User(1L, "User1", "user1@example.com", "password", false, true);
+        UserFilter filter = new UserFilter(true, null, null, "user");
+        UserPage expectedPage = new UserPage(List.of(user1), "user1@example.com");
+        when(userRepository.findPage(filter, null, 1)).thenReturn(expectedPage);
+
+        // Act
+        UserPage page = adminService.getUsersPage(filter, null, 1);
+
+        // Assert
+        assertEquals(expectedPage, page);
+    }
+
+    @Test
+    void getUsersPage_ShouldReturnEmptyPage_WhenLimitIsNotPositive() {
+        // Act
+        UserPage page = adminService.getUsersPage(new UserFilter(), null, 0);
+
+        // Assert
+        assertTrue(page.getUsers().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(userRepository, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchUsers_ShouldReturnRepositoryMatches_WhenQueryProvided() {
+        // Arrange
+        User user1 = new User(1L, "Ivan Petrov", "ivan@example.com", "password", false, false);
+        when(userRepository.search("petr", 10)).thenReturn(List.of(user1));
+
+        // Act
+        List<User> users = adminService.searchUsers(" petr ", 10);
+
+        // Assert
+        assertEquals(List.of(user1), users);
+    }
+
+    @Test
+    void searchUsers_ShouldReturnEmptyList_WhenQueryIsBlank() {
+        // Act
+        List<User> users = adminService.searchUsers("  ", 10);
+
+        // Assert
+        assertTrue(users.isEmpty());
+        verify(userRepository, never()).search(any(), anyInt());
+    }
+
     @Test
     void getUserTransactions_ShouldReturnAllTransactions_WhenUserHasTransactions() {
         // Arrange
@@ -89,6 +143,7 @@ class AdminServiceTest {
         // Assert
         assertTrue(result);
         verify(userRepository, times(1)).save(any(User.class));
+        verify(sessionService, times(1)).revokeAllForUser(1L);
     }
 
     @Test
@@ -127,5 +182,6 @@ class AdminServiceTest {
 
         // Assert
         assertFalse(result);
+        verify(sessionService, never()).revokeAllForUser(any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.ArchiveSegment;
+import org.example.repository.TransactionSegmentStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 9, 0);
+    private static final String[] CATEGORIES = {"Food", "Taxi", "Rent", "Salary", "Health"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readAll_ShouldRestoreTransactions_WhenEncoded() {
+        // Arrange
+        List<Transaction> transactions = List.of(
+                new Transaction(7L, 1L, 123.45, "Food", "lunch", START.withNano(250), TransactionType.EXPENSE, 3),
+                new Transaction(3L, 1L, 0.1 + 0.2, null, null, START.minusDays(1), null, 1),
+                new Transaction(12L, 1L, -5000.0, "Salary", "аванс", START.plusSeconds(1), TransactionType.INCOME, 0));
+
+        // Act
+        ArchiveSegment archive = new ArchiveSegment(ByteBuffer.wrap(ArchiveSegment.encode(transactions)));
+        List<Transaction> restored = archive.readAll(1L);
+
+        // Assert
+        assertEquals(3, archive.getRowCount());
+        List<Transaction> expected = new ArrayList<>(transactions);
+        expected.sort(Comparator.comparing(Transaction::getDate));
+        assertEquals(expected, restored);
+    }
+
+    @Test
+    void read_ShouldSkipBlocksOutsideRange_WhenRangeCoversOneMonth() {
+        // Arrange
+        List<Transaction> transactions = generate(5000);
+        ArchiveSegment archive = new ArchiveSegment(ByteBuffer.wrap(ArchiveSegment.encode(transactions)));
+        long from = START.plusDays(100).toEpochSecond(ZoneOffset.UTC);
+        long to = START.plusDays(130).toEpochSecond(ZoneOffset.UTC);
+
+        // Act
+        int blocks = archive.countBlocks(from, to, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        List<Transaction> found = archive.read(1L, from, to, 100.0, 500.0);
+
+        // Assert
+        assertEquals(5, archive.getBlockCount());
+        assertEquals(1, blocks);
+        long expected = transactions.stream()
+                .filter(transaction -> transaction.getDate().toEpochSecond(ZoneOffset.UTC) >= from)
+                .filter(transaction -> transaction.getDate().toEpochSecond(ZoneOffset.UTC) <= to)
+                .filter(transaction -> transaction.getAmount() >= 100.0 && transaction.getAmount() <= 500.0)
+                .count();
+        assertEquals(expected, found.size());
+        assertTrue(found.stream().allMatch(transaction -> transaction.getDescription().startsWith("purchase")));
+    }
+
+    @Test
+    void write_ShouldArchiveOldTransactions_WhenOlderThanConfiguredAge() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+        TransactionSegmentStore plain = new TransactionSegmentStore(directory.resolve("plain"));
+        TransactionSegmentStore archived = new TransactionSegmentStore(directory.resolve("archived"), Duration.ofDays(90), clock);
+        List<Transaction> transactions = generate(5000);
+        Transaction recent = new Transaction(99_999L, 1L, 10.0, "Food", "today", LocalDateTime.of(2024, 5, 30, 8, 0),
+                TransactionType.EXPENSE, 1);
+        transactions.add(recent);
+
+        // Act
+        plain.write(1L, 1L, transactions);
+        archived.write(1L, 1L, transactions);
+        List<Transaction> restored = archived.read(1L, 1L);
+        List<Transaction> fromRange = archived.read(1L, 1L, START.plusDays(400).toEpochSecond(ZoneOffset.UTC), Long.MAX_VALUE,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        // Assert
+        assertEquals(transactions.size(), restored.size());
+        assertTrue(restored.containsAll(transactions));
+        assertTrue(fromRange.contains(recent));
+        assertTrue(fromRange.size() < transactions.size() / 2);
+        assertTrue(archived.sizeOf(1L, 1L) * 4 < plain.sizeOf(1L, 1L));
+    }
+
+    @Test
+    void write_ShouldTakeFiveTimesLessThanPreviousLayout_WhenRowsAreArchived() throws IOException {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2030-01-01T00:00:00Z"), ZoneOffset.UTC);
+        TransactionSegmentStore archived = new TransactionSegmentStore(directory, Duration.ofDays(90), clock);
+        List<Transaction> transactions = generate(5000);
+
+        // Act
+        archived.write(1L, 1L, transactions);
+
+        // Assert
+        assertTrue(archived.sizeOf(1L, 1L) * 5 < encodePreviousLayout(transactions).length);
+    }
+
+    @Test
+    void delete_ShouldRemoveSegment_WhenItWasJustRead() {
+        // Arrange
+        TransactionSegmentStore store = new TransactionSegmentStore(directory);
+        store.write(1L, 1L, generate(10));
+        List<Transaction> restored = store.read(1L, 1L);
+
+        // Act
+        boolean deleted = store.delete(1L, 1L);
+
+        // Assert
+        assertEquals(10, restored.size());
+        assertTrue(deleted);
+        assertEquals(0, store.sizeOf(1L, 1L));
+        assertTrue(store.read(1L, 1L).isEmpty());
+    }
+
+    // Прежний формат сегмента TSG1: DataOutputStream, все поля строки подряд без сжатия
+    private static byte[] encodePreviousLayout(List<Transaction> transactions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x54534731);
+            out.writeInt(transactions.size());
+            for (Transaction transaction : transactions) {
+                out.writeLong(transaction.getId());
+                out.writeLong(transaction.getVersion());
+                out.writeDouble(transaction.getAmount());
+                out.writeBoolean(transaction.getCategory() != null);
+                out.writeUTF(transaction.getCategory());
+                out.writeBoolean(transaction.getDescription() != null);
+                out.writeUTF(transaction.getDescription());
+                out.writeBoolean(true);
+                out.writeLong(transaction.getDate().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(transaction.getDate().getNano());
+                out.writeByte(transaction.getType().ordinal());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Транзакции раз в два часа: суммы до копейки, повторяющиеся категории и описания
+    private static List<Transaction> generate(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double amount = (i * 7919 % 100_000) / 100.0;
+            transactions.add(new Transaction(1000L + i, 1L, amount, CATEGORIES[i % CATEGORIES.length],
+                    "purchase #" + (i % 50), START.plusHours(2L * i), i % 10 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    1));
+        }
+        return transactions;
+    }
+}
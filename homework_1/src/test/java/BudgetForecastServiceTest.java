@@ -0,0 +1,166 @@
+import org.example.model.BudgetForecast;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.BudgetRepository;
+import org.example.repository.TransactionRepository;
+import org.example.service.BudgetForecastService;
+import org.example.service.BudgetService;
+import org.example.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetForecastServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-15T08:00:00Z"), ZoneOffset.UTC);
+    private static final YearMonth JUNE = YearMonth.of(2025, 6);
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private BudgetService budgetService;
+    private BudgetForecastService budgetForecastService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        budgetService = new BudgetService(new BudgetRepository(), transactionService);
+        budgetForecastService = new BudgetForecastService(budgetService, transactionRepository, CLOCK);
+        transactionService.addListener(budgetForecastService);
+    }
+
+    @Test
+    void getForecast_ShouldProjectOverrun_WhenDailySpendIsSteady() {
+        // Arrange
+        budgetService.createBudget(1L, 2500.0, JUNE);
+        for (int day = 1; day <= 14; day++) {
+            expense(1L, 100.0, "Food", JUNE.atDay(day));
+        }
+
+        // Act
+        BudgetForecast forecast = budgetForecastService.getForecast(1L);
+
+        // Assert
+        assertEquals(1400.0, forecast.getSpent(), 1e-9);
+        assertEquals(3000.0, forecast.getProjected(), 1e-6);
+        assertEquals(500.0, forecast.getOverrun(), 1e-6);
+    }
+
+    @Test
+    void getForecast_ShouldFollowTrend_WhenSpendGrows() {
+        // Arrange
+        for (int day = 1; day <= 14; day++) {
+            expense(1L, day * 10.0, "Food", JUNE.atDay(day));
+        }
+
+        // Act
+        BudgetForecast forecast = budgetForecastService.getForecast(1L);
+
+        // Assert
+        assertEquals(1050.0, forecast.getSpent(), 1e-9);
+        assertTrue(forecast.getProjected() > 1050.0 + 16 * 140.0);
+        assertEquals(0.0, forecast.getBudget());
+        assertEquals(0.0, forecast.getOverrun());
+    }
+
+    @Test
+    void getForecast_ShouldReduceSpent_WhenExpenseDeletedOrUpdated() {
+        // Arrange
+        Transaction deleted = expense(1L, 300.0, "Food", JUNE.atDay(3));
+        Transaction updated = expense(1L, 200.0, "Food", JUNE.atDay(10));
+        expense(1L, 50.0, "Food", JUNE.minusMonths(1).atDay(20));
+
+        // Act
+        transactionService.deleteTransaction(deleted.getId());
+        transactionService.updateTransaction(updated.getId(), 120.0, null, null);
+        BudgetForecast forecast = budgetForecastService.getForecast(1L);
+
+        // Assert
+        assertEquals(120.0, forecast.getSpent(), 1e-9);
+    }
+
+    @Test
+    void getForecast_ShouldKeepCurrentMonth_WhenExpenseIsFutureDated() {
+        // Arrange
+        MutableClock clock = new MutableClock(Instant.parse("2025-06-15T08:00:00Z"));
+        BudgetForecastService forecasts = new BudgetForecastService(budgetService, transactionRepository, clock);
+        transactionService.addListener(forecasts);
+        for (int day = 1; day <= 14; day++) {
+            expense(1L, 100.0, "Food", JUNE.atDay(day));
+        }
+        expense(1L, 900.0, "Rent", JUNE.plusMonths(1).atDay(1));
+
+        // Act
+        BudgetForecast beforeRent = forecasts.getForecast(1L);
+        clock.set(Instant.parse("2025-07-01T08:00:00Z"));
+        BudgetForecast afterRent = forecasts.getForecast(1L);
+
+        // Assert
+        assertEquals(JUNE, beforeRent.getPeriod());
+        assertEquals(1400.0, beforeRent.getSpent(), 1e-9);
+        assertEquals(3000.0, beforeRent.getProjected(), 1e-6);
+        assertEquals(900.0, afterRent.getSpent(), 1e-9);
+    }
+
+    @Test
+    void getCategoryForecasts_ShouldMatchRebuild_WhenReplayedFromHistory() {
+        // Arrange
+        for (int day = 1; day <= 14; day++) {
+            expense(1L, 50.0, "Food", JUNE.atDay(day));
+            expense(1L, 20.0, "Taxi", JUNE.atDay(day));
+        }
+        transactionService.createTransaction(1L, 5000.0, "Salary", "", JUNE.atDay(5).atTime(9, 0), TransactionType.INCOME);
+        List<BudgetForecast> live = budgetForecastService.getCategoryForecasts(1L);
+
+        // Act
+        budgetForecastService.rebuild();
+        List<BudgetForecast> rebuilt = budgetForecastService.getCategoryForecasts(1L);
+
+        // Assert
+        assertEquals(2, live.size());
+        assertEquals("Food", live.get(0).getCategory());
+        assertEquals(1500.0, live.get(0).getProjected(), 1e-6);
+        assertEquals(live, rebuilt);
+    }
+
+    @Test
+    void getCategoryForecasts_ShouldCompareSubtreeWithCategoryBudget_WhenCategoryHasChildren() {
+        // Arrange
+        budgetService.createBudget(1L, 1000.0, JUNE, "Food");
+        budgetService.createBudget(1L, 300.0, JUNE, "Taxi");
+        budgetService.setCategoryParent(1L, "Groceries", "Food");
+        for (int day = 1; day <= 14; day++) {
+            expense(1L, 50.0, "Groceries", JUNE.atDay(day));
+            expense(1L, 10.0, "Food", JUNE.atDay(day));
+        }
+
+        // Act
+        List<BudgetForecast> forecasts = budgetForecastService.getCategoryForecasts(1L);
+
+        // Assert
+        assertEquals(3, forecasts.size());
+        BudgetForecast food = forecasts.get(0);
+        assertEquals("Food", food.getCategory());
+        assertEquals(1800.0, food.getProjected(), 1e-6);
+        assertEquals(1000.0, food.getBudget(), 1e-9);
+        assertEquals(800.0, food.getOverrun(), 1e-6);
+        assertEquals("Groceries", forecasts.get(1).getCategory());
+        assertEquals(0.0, forecasts.get(1).getBudget(), 1e-9);
+        BudgetForecast taxi = forecasts.get(2);
+        assertEquals("Taxi", taxi.getCategory());
+        assertEquals(0.0, taxi.getProjected(), 1e-9);
+        assertEquals(0.0, taxi.getOverrun(), 1e-9);
+    }
+
+    private Transaction expense(Long userId, double amount, String category, LocalDate date) {
+        return transactionService.createTransaction(userId, amount, category, "", date.atTime(12, 0), TransactionType.EXPENSE);
+    }
+}
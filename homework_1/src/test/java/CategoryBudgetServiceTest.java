@@ -0,0 +1,134 @@
+import org.example.model.BudgetStatus;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.BudgetRepository;
+import org.example.repository.TransactionRepository;
+import org.example.service.BudgetService;
+import org.example.service.CategoryBudgetService;
+import org.example.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryBudgetServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private BudgetService budgetService;
+    private CategoryBudgetService categoryBudgetService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        budgetService = new BudgetService(new BudgetRepository(), transactionService);
+        categoryBudgetService = new CategoryBudgetService(budgetService, transactionRepository);
+        transactionService.addListener(categoryBudgetService);
+        categoryBudgetService.setParentCategory(1L, "Groceries", "Food");
+        categoryBudgetService.setParentCategory(1L, "Restaurants", "Food");
+    }
+
+    @Test
+    void rebuild_ShouldRestoreHierarchyFromBudgets_WhenServiceStartsEmpty() {
+        // Arrange
+        expense(1L, 300.0, "Groceries");
+        expense(1L, 200.0, "Restaurants");
+        categoryBudgetService.setParentCategory(1L, "Restaurants", null);
+        CategoryBudgetService restarted = new CategoryBudgetService(budgetService, transactionRepository);
+
+        // Act
+        restarted.rebuild();
+
+        // Assert
+        assertEquals("Food", restarted.getParentCategory(1L, "Groceries"));
+        assertNull(restarted.getParentCategory(1L, "Restaurants"));
+        assertEquals(300.0, restarted.getSpent(1L, "Food", MONTH), 1e-9);
+    }
+
+    @Test
+    void getSpent_ShouldRollUpToParents_WhenChildCategoriesSpend() {
+        // Arrange
+        expense(1L, 300.0, "Groceries");
+        expense(1L, 200.0, "Restaurants");
+        expense(1L, 50.0, "Food");
+        expense(1L, 100.0, "Taxi");
+
+        // Act
+        double food = categoryBudgetService.getSpent(1L, "Food", MONTH);
+        double total = categoryBudgetService.getSpent(1L, null, MONTH);
+
+        // Assert
+        assertEquals(550.0, food, 1e-9);
+        assertEquals(650.0, total, 1e-9);
+        assertEquals(200.0, categoryBudgetService.getSpent(1L, "Restaurants", MONTH), 1e-9);
+    }
+
+    @Test
+    void evaluate_ShouldMarkExceededBudgets_WhenSubtreeSpendExceedsLimit() {
+        // Arrange
+        budgetService.createBudget(1L, 1000.0, MONTH);
+        budgetService.createBudget(1L, 400.0, MONTH, "Food");
+        budgetService.createBudget(1L, 250.0, MONTH, "Restaurants");
+        expense(1L, 300.0, "Groceries");
+        Transaction dinner = expense(1L, 200.0, "Restaurants");
+
+        // Act
+        List<BudgetStatus> before = categoryBudgetService.evaluate(1L, MONTH);
+        transactionService.deleteTransaction(dinner.getId());
+        List<BudgetStatus> after = categoryBudgetService.evaluate(1L, MONTH);
+
+        // Assert
+        assertEquals(3, before.size());
+        assertNull(before.get(0).getCategory());
+        assertFalse(before.get(0).isExceeded());
+        assertTrue(before.stream().anyMatch(status -> "Food".equals(status.getCategory()) && status.isExceeded()));
+        assertTrue(before.stream().anyMatch(status -> "Restaurants".equals(status.getCategory()) && !status.isExceeded()));
+        assertTrue(after.stream().noneMatch(BudgetStatus::isExceeded));
+    }
+
+    @Test
+    void setParentCategory_ShouldMoveSpendAndRejectCycles_WhenHierarchyChanges() {
+        // Arrange
+        expense(1L, 200.0, "Restaurants");
+
+        // Act
+        boolean cycle = categoryBudgetService.setParentCategory(1L, "Food", "Restaurants");
+        boolean moved = categoryBudgetService.setParentCategory(1L, "Restaurants", "Leisure");
+
+        // Assert
+        assertFalse(cycle);
+        assertTrue(moved);
+        assertEquals(0.0, categoryBudgetService.getSpent(1L, "Food", MONTH), 1e-9);
+        assertEquals(200.0, categoryBudgetService.getSpent(1L, "Leisure", MONTH), 1e-9);
+        assertEquals("Leisure", categoryBudgetService.getParentCategory(1L, "Restaurants"));
+    }
+
+    @Test
+    void findExceeded_ShouldMatchAfterRebuild_WhenMonthIsSwept() {
+        // Arrange
+        budgetService.createBudget(1L, 100.0, MONTH, "Food");
+        budgetService.createBudget(2L, 100.0, MONTH, "Food");
+        expense(1L, 150.0, "Groceries");
+        expense(2L, 50.0, "Food");
+
+        // Act
+        List<BudgetStatus> live = categoryBudgetService.findExceeded(MONTH);
+        categoryBudgetService.rebuild();
+        List<BudgetStatus> rebuilt = categoryBudgetService.findExceeded(MONTH);
+
+        // Assert
+        assertEquals(1, live.size());
+        assertEquals(1L, live.get(0).getUserId());
+        assertEquals(live, rebuilt);
+    }
+
+    private Transaction expense(Long userId, double amount, String category) {
+        return transactionService.createTransaction(userId, amount, category, "", MONTH.atDay(10).atTime(12, 0), TransactionType.EXPENSE);
+    }
+}
@@ -0,0 +1,188 @@
+import org.example.model.Goal;
+import org.example.model.GoalDeadlineEvent;
+import org.example.repository.GoalRepository;
+import org.example.service.GoalDeadlineScheduler;
+import org.example.service.GoalService;
+import org.example.service.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class GoalDeadlineSchedulerTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    private MutableClock clock;
+    private GoalService goalService;
+    private GoalDeadlineScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        clock = new MutableClock(Instant.now());
+        GoalRepository goalRepository = new GoalRepository();
+        goalService = new GoalService(goalRepository);
+        scheduler = new GoalDeadlineScheduler(goalService, notificationService, Duration.ofDays(7), clock);
+        goalService.setDeadlineScheduler(scheduler);
+    }
+
+    @Test
+    void fireDue_ShouldSendApproachingThenMissed_WhenTimeReachesDeadline() {
+        // Arrange
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        Goal goal = goalService.createGoal(1L, "Vacation", 1000.0, deadline);
+        ArgumentCaptor<GoalDeadlineEvent> events = ArgumentCaptor.forClass(GoalDeadlineEvent.class);
+
+        // Act
+        int beforeWarning = scheduler.fireDue();
+        clock.set(deadline.minusDays(7).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int atWarning = scheduler.fireDue();
+        clock.set(deadline.atTime(23, 59).toInstant(ZoneOffset.UTC));
+        int onDeadlineDay = scheduler.fireDue();
+        clock.set(deadline.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int afterDeadline = scheduler.fireDue();
+
+        // Assert
+        assertEquals(0, beforeWarning);
+        assertEquals(1, atWarning);
+        assertEquals(0, onDeadlineDay);
+        assertEquals(1, afterDeadline);
+        Mockito.verify(notificationService, Mockito.times(2)).sendGoalDeadlineNotification(events.capture());
+        assertEquals(GoalDeadlineEvent.Type.APPROACHING, events.getAllValues().get(0).getType());
+        assertEquals(GoalDeadlineEvent.Type.MISSED, events.getAllValues().get(1).getType());
+        assertEquals(goal.getId(), events.getAllValues().get(1).getGoalId());
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    void updateGoal_ShouldRescheduleEvents_WhenDeadlineMoved() {
+        // Arrange
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        Goal goal = goalService.createGoal(1L, "Vacation", 1000.0, deadline);
+
+        // Act
+        goalService.updateGoal(goal.getId(), null, null, deadline.plusDays(60), null);
+        clock.set(deadline.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int atOldDeadline = scheduler.fireDue();
+
+        // Assert
+        assertEquals(0, atOldDeadline);
+        assertEquals(1, scheduler.getScheduledCount());
+        Mockito.verify(notificationService, Mockito.never()).sendGoalDeadlineNotification(any());
+    }
+
+    @Test
+    void fireDue_ShouldSkipNotification_WhenGoalReachedOrDeleted() {
+        // Arrange
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        Goal reached = goalService.createGoal(1L, "Reached", 100.0, deadline);
+        Goal deleted = goalService.createGoal(1L, "Deleted", 100.0, deadline);
+        goalService.updateGoalProgress(reached.getId(), 100.0);
+        goalService.deleteGoal(deleted.getId());
+
+        // Act
+        clock.set(deadline.plusDays(2).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int sent = scheduler.fireDue() + scheduler.fireDue();
+
+        // Assert
+        assertEquals(0, sent);
+        Mockito.verify(notificationService, Mockito.never()).sendGoalDeadlineNotification(any());
+    }
+
+    @Test
+    void updateGoal_ShouldNotResendMissed_WhenGoalChangedAfterDeadline() {
+        // Arrange
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        Goal goal = goalService.createGoal(1L, "Vacation", 1000.0, deadline);
+        clock.set(deadline.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int beforeUpdate = scheduler.fireDue() + scheduler.fireDue();
+
+        // Act
+        goalService.updateGoal(goal.getId(), "Summer vacation", 1200.0, null, null);
+        clock.advance(Duration.ofDays(1));
+        int afterUpdate = scheduler.fireDue();
+
+        // Assert
+        assertEquals(2, beforeUpdate);
+        assertEquals(0, afterUpdate);
+        assertEquals(0, scheduler.getScheduledCount());
+        Mockito.verify(notificationService, Mockito.times(2)).sendGoalDeadlineNotification(any());
+    }
+
+    @Test
+    void fireDue_ShouldSkipNotification_WhenAccumulatedDepositsReachTarget() {
+        // Arrange
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        goalService.setProgressAccumulation(true);
+        Goal goal = goalService.createGoal(1L, "Reached", 100.0, deadline);
+        goalService.updateGoalProgress(goal.getId(), 60.0);
+        goalService.updateGoalProgress(goal.getId(), 40.0);
+
+        // Act
+        clock.set(deadline.plusDays(2).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int sent = scheduler.fireDue() + scheduler.fireDue();
+
+        // Assert
+        assertEquals(0, sent);
+        Mockito.verify(notificationService, Mockito.never()).sendGoalDeadlineNotification(any());
+    }
+
+    @Test
+    void start_ShouldScheduleExistingGoals_WhenDeadlineNotPassed() {
+        // Arrange
+        GoalRepository goalRepository = new GoalRepository();
+        GoalService existingGoals = new GoalService(goalRepository);
+        LocalDate deadline = LocalDate.now(clock).plusDays(30);
+        Goal pending = existingGoals.createGoal(1L, "Vacation", 1000.0, deadline);
+        Goal overdue = existingGoals.createGoal(1L, "Overdue", 1000.0, deadline);
+        overdue.setDeadline(LocalDate.now(clock).minusDays(3));
+        goalRepository.save(overdue);
+        GoalDeadlineScheduler restarted = new GoalDeadlineScheduler(existingGoals, notificationService, Duration.ofDays(7), clock);
+        ArgumentCaptor<GoalDeadlineEvent> events = ArgumentCaptor.forClass(GoalDeadlineEvent.class);
+
+        // Act
+        restarted.start();
+        int scheduled = restarted.getScheduledCount();
+        restarted.shutdown();
+        clock.set(deadline.minusDays(7).atStartOfDay(ZoneOffset.UTC).toInstant());
+        int sent = restarted.fireDue();
+
+        // Assert
+        assertEquals(1, scheduled);
+        assertEquals(1, sent);
+        Mockito.verify(notificationService).sendGoalDeadlineNotification(events.capture());
+        assertEquals(pending.getId(), events.getValue().getGoalId());
+    }
+
+    @Test
+    void start_ShouldFireFromBackgroundThread_WhenEventBecomesDue() {
+        // Arrange
+        GoalRepository goalRepository = new GoalRepository();
+        GoalService realTimeGoals = new GoalService(goalRepository);
+        GoalDeadlineScheduler realTime = new GoalDeadlineScheduler(realTimeGoals, notificationService,
+                Duration.ofDays(7), Clock.systemUTC());
+        realTimeGoals.setDeadlineScheduler(realTime);
+        realTime.start();
+
+        // Act
+        realTimeGoals.createGoal(1L, "Soon", 100.0, LocalDate.now(ZoneOffset.UTC).plusDays(3));
+
+        // Assert
+        Mockito.verify(notificationService, Mockito.timeout(2000).times(1)).sendGoalDeadlineNotification(any());
+        assertEquals(1, realTime.getScheduledCount());
+        realTime.shutdown();
+    }
+}
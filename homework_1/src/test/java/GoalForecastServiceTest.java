@@ -0,0 +1,187 @@
+import org.example.model.Goal;
+import org.example.model.GoalForecast;
+import org.example.model.TransactionType;
+import org.example.repository.GoalRepository;
+import org.example.repository.TransactionRepository;
+import org.example.service.GoalForecastService;
+import org.example.service.GoalService;
+import org.example.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoalForecastServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-15T10:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private GoalService goalService;
+    private ForkJoinPool pool;
+    private GoalForecastService goalForecastService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        goalService = new GoalService(new GoalRepository());
+        pool = new ForkJoinPool(4);
+        goalForecastService = new GoalForecastService(goalService, transactionRepository, pool, CLOCK);
+        transactionService.addListener(goalForecastService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void getForecast_ShouldProjectExactDate_WhenSavingsAreSteady() {
+        // Arrange
+        saveMonths(1L, 3000.0, 2000.0);
+        Goal goal = goalService.createGoal(1L, "Car", 5000.0, LocalDate.of(2030, 1, 1));
+
+        // Act
+        GoalForecast forecast = goalForecastService.getForecast(goal.getId());
+
+        // Assert
+        assertEquals(1000.0, forecast.getMonthlySavingsMean(), 1e-9);
+        assertEquals(0.0, forecast.getMonthlySavingsStdDev(), 1e-9);
+        assertEquals(TODAY.plusMonths(5), forecast.getExpectedDate());
+        assertEquals(TODAY.plusMonths(5), forecast.getPessimisticDate());
+        assertEquals(1.0, forecast.getProbabilityByDeadline(), 1e-9);
+    }
+
+    @Test
+    void getForecast_ShouldSpreadDates_WhenSavingsVary() {
+        // Arrange
+        for (int month = 1; month <= 12; month++) {
+            YearMonth yearMonth = YearMonth.of(2024, 6).plusMonths(month - 1);
+            double income = month % 2 == 0 ? 3000.0 : 1000.0;
+            transactionService.createTransaction(1L, income, "Salary", "", yearMonth.atDay(10).atTime(12, 0), TransactionType.INCOME);
+        }
+        Goal goal = goalService.createGoal(1L, "House", 20000.0, LocalDate.of(2030, 1, 1));
+
+        // Act
+        GoalForecast forecast = goalForecastService.getForecast(goal.getId());
+
+        // Assert
+        assertEquals(2000.0, forecast.getMonthlySavingsMean(), 1e-9);
+        assertTrue(forecast.getMonthlySavingsStdDev() > 1000.0);
+        assertFalse(forecast.getExpectedDate().isAfter(forecast.getPessimisticDate()));
+        assertTrue(forecast.getExpectedDate().isAfter(TODAY.plusMonths(8)));
+        assertTrue(forecast.getExpectedDate().isBefore(TODAY.plusMonths(12)));
+    }
+
+    @Test
+    void getForecast_ShouldRecompute_WhenUserAddsTransaction() {
+        // Arrange
+        saveMonths(1L, 3000.0, 2000.0);
+        Goal goal = goalService.createGoal(1L, "Car", 5000.0, LocalDate.of(2030, 1, 1));
+        GoalForecast first = goalForecastService.getForecast(goal.getId());
+        GoalForecast cached = goalForecastService.getForecast(goal.getId());
+
+        // Act
+        transactionService.createTransaction(1L, 12000.0, "Bonus", "", TODAY.minusMonths(1).atTime(12, 0), TransactionType.INCOME);
+        GoalForecast refreshed = goalForecastService.getForecast(goal.getId());
+
+        // Assert
+        assertEquals(first, cached);
+        assertEquals(2000.0, refreshed.getMonthlySavingsMean(), 1e-9);
+        assertTrue(refreshed.getExpectedDate().isBefore(first.getExpectedDate()));
+    }
+
+    @Test
+    void refreshAll_ShouldForecastEveryGoal_WhenBatchRuns() {
+        // Arrange
+        for (long userId = 1; userId <= 20; userId++) {
+            saveMonths(userId, 2000.0 + userId * 100, 1500.0);
+            goalService.createGoal(userId, "Goal", 10000.0, LocalDate.of(2030, 1, 1));
+            goalService.createGoal(userId, "Other", 500.0, LocalDate.of(2030, 1, 1));
+        }
+        goalService.createGoal(99L, "Without history", 100.0, LocalDate.of(2030, 1, 1));
+
+        // Act
+        int refreshed = goalForecastService.refreshAll();
+
+        // Assert
+        assertEquals(41, refreshed);
+        assertNull(goalForecastService.getForecasts(99L).get(0).getExpectedDate());
+        assertEquals(0.0, goalForecastService.getForecasts(99L).get(0).getProbabilityByDeadline(), 1e-9);
+    }
+
+    @Test
+    void getForecast_ShouldShiftHistory_WhenMonthChanges() {
+        // Arrange
+        MutableClock clock = new MutableClock(Instant.parse("2025-06-15T10:00:00Z"));
+        GoalForecastService monthly = new GoalForecastService(goalService, transactionRepository, pool, clock);
+        saveMonths(1L, 3000.0, 2000.0);
+        transactionService.createTransaction(1L, 13000.0, "Bonus", "", TODAY.atTime(9, 0), TransactionType.INCOME);
+        Goal goal = goalService.createGoal(1L, "Car", 5000.0, LocalDate.of(2030, 1, 1));
+        GoalForecast june = monthly.getForecast(goal.getId());
+
+        // Act
+        clock.advance(Duration.ofDays(30));
+        GoalForecast july = monthly.getForecast(goal.getId());
+
+        // Assert
+        assertEquals(1000.0, june.getMonthlySavingsMean(), 1e-9);
+        assertEquals(2000.0, july.getMonthlySavingsMean(), 1e-9);
+    }
+
+    @Test
+    void getForecast_ShouldAnswerWithinTenMillis_WhenGoalIsUnreachableOrCached() {
+        // Arrange
+        saveMonths(1L, 2000.0, 2000.0);
+        saveMonths(2L, 3000.0, 2000.0);
+        transactionService.createTransaction(2L, 500.0, "Gift", "", LocalDate.of(2025, 1, 3).atTime(9, 0), TransactionType.INCOME);
+        List<Long> unreachable = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            unreachable.add(goalService.createGoal(1L, "Flat " + i, 100_000.0, LocalDate.of(2030, 1, 1)).getId());
+        }
+        Long varying = goalService.createGoal(2L, "Car", 50_000.0, LocalDate.of(2030, 1, 1)).getId();
+        goalForecastService.getForecast(varying);
+
+        // Act
+        long fastestFirst = Long.MAX_VALUE;
+        GoalForecast never = null;
+        for (Long goalId : unreachable) {
+            long start = System.nanoTime();
+            never = goalForecastService.getForecast(goalId);
+            fastestFirst = Math.min(fastestFirst, System.nanoTime() - start);
+        }
+        long fastestCached = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            goalForecastService.getForecast(varying);
+            fastestCached = Math.min(fastestCached, System.nanoTime() - start);
+        }
+
+        // Assert
+        assertNull(never.getExpectedDate());
+        assertEquals(0.0, never.getProbabilityByDeadline(), 1e-9);
+        assertTrue(fastestFirst < TimeUnit.MILLISECONDS.toNanos(10), "first forecast took " + fastestFirst + " ns");
+        assertTrue(fastestCached < TimeUnit.MILLISECONDS.toNanos(10), "cached forecast took " + fastestCached + " ns");
+    }
+
+    private void saveMonths(Long userId, double income, double expense) {
+        for (YearMonth month = YearMonth.of(2024, 6); month.isBefore(YearMonth.of(2025, 6)); month = month.plusMonths(1)) {
+            transactionService.createTransaction(userId, income, "Salary", "", month.atDay(5).atTime(9, 0), TransactionType.INCOME);
+            transactionService.createTransaction(userId, expense, "Rent", "", month.atDay(20).atTime(9, 0), TransactionType.EXPENSE);
+        }
+    }
+}
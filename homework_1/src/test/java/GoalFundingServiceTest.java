@@ -0,0 +1,170 @@
+import org.example.model.Goal;
+import org.example.model.GoalFundingRule;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.GoalRepository;
+import org.example.repository.TransactionRepository;
+import org.example.service.GoalFundingService;
+import org.example.service.GoalService;
+import org.example.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoalFundingServiceTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private GoalService goalService;
+    private ForkJoinPool pool;
+    private GoalFundingService goalFundingService;
+    private Goal goal;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        goalService = new GoalService(new GoalRepository());
+        pool = new ForkJoinPool(4);
+        goalFundingService = new GoalFundingService(goalService, transactionRepository, pool);
+        transactionService.addListener(goalFundingService);
+        goal = goalService.createGoal(1L, "Vacation", 10000.0, LocalDate.now().plusYears(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void createTransaction_ShouldFundGoal_WhenIncomeMatchesRule() {
+        // Arrange
+        goalFundingService.addRule(1L, goal.getId(), 10);
+
+        // Act
+        transactionService.createTransaction(1L, 1000.0, "Salary", "", DATE, TransactionType.INCOME);
+        transactionService.createTransaction(1L, 500.0, "Food", "", DATE, TransactionType.EXPENSE);
+        transactionService.createTransaction(2L, 1000.0, "Salary", "", DATE, TransactionType.INCOME);
+
+        // Assert
+        assertEquals(100.0, goalService.getGoalById(goal.getId()).getCurrentAmount(), 1e-9);
+        assertEquals(100.0, goalFundingService.getFundedAmount(goal.getId()), 1e-9);
+    }
+
+    @Test
+    void createTransaction_ShouldDropRule_WhenGoalWasDeleted() {
+        // Arrange
+        Goal other = goalService.createGoal(1L, "Car", 50000.0, LocalDate.now().plusYears(2));
+        goalFundingService.addRule(1L, goal.getId(), 10);
+        goalFundingService.addRule(1L, other.getId(), 20);
+        transactionService.createTransaction(1L, 1000.0, "Salary", "", DATE, TransactionType.INCOME);
+        goalService.deleteGoal(goal.getId());
+
+        // Act
+        transactionService.createTransaction(1L, 1000.0, "Salary", "", DATE, TransactionType.INCOME);
+
+        // Assert
+        assertEquals(1, goalFundingService.getRules(1L).size());
+        assertEquals(other.getId(), goalFundingService.getRules(1L).get(0).getGoalId());
+        assertEquals(0.0, goalFundingService.getFundedAmount(goal.getId()), 1e-9);
+        assertEquals(400.0, goalService.getGoalById(other.getId()).getCurrentAmount(), 1e-9);
+    }
+
+    @Test
+    void updateAndDeleteTransaction_ShouldReverseFunding_WhenIncomeChanges() {
+        // Arrange
+        goalFundingService.addRule(1L, goal.getId(), 10);
+        Transaction income = transactionService.createTransaction(1L, 1000.0, "Salary", "", DATE, TransactionType.INCOME);
+
+        // Act
+        transactionService.updateTransaction(income.getId(), 333.33, null, null);
+        double afterUpdate = goalService.getGoalById(goal.getId()).getCurrentAmount();
+        transactionService.deleteTransaction(income.getId());
+
+        // Assert
+        assertEquals(33.33, afterUpdate, 1e-9);
+        assertEquals(0.0, goalService.getGoalById(goal.getId()).getCurrentAmount(), 1e-9);
+    }
+
+    @Test
+    void recompute_ShouldFundHistoryAndKeepManualDeposits_WhenRuleAddedLater() {
+        // Arrange
+        for (int i = 0; i < 1000; i++) {
+            transactionService.createTransaction(1L, 100.0, "Salary", "", DATE.plusMinutes(i), TransactionType.INCOME);
+        }
+        goalService.updateGoalProgress(goal.getId(), 50.0);
+        goalFundingService.addRule(1L, goal.getId(), 5);
+
+        // Act
+        int funded = goalFundingService.recompute();
+        int fundedAgain = goalFundingService.recompute();
+
+        // Assert
+        assertEquals(1000, funded);
+        assertEquals(1000, fundedAgain);
+        assertEquals(5050.0, goalService.getGoalById(goal.getId()).getCurrentAmount(), 1e-6);
+    }
+
+    @Test
+    void recompute_ShouldKeepEventFunding_WhenIncomeArrivesDuringRecompute() throws Exception {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            transactionService.createTransaction(1L, 100.0, "Salary", "", DATE.plusMinutes(i), TransactionType.INCOME);
+        }
+        ForkJoinPool busyPool = new ForkJoinPool(1);
+        GoalFundingService blockedFunding = new GoalFundingService(goalService, transactionRepository, busyPool);
+        transactionService.addListener(blockedFunding);
+        blockedFunding.addRule(1L, goal.getId(), 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        busyPool.submit(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        started.await();
+        CompletableFuture<Integer> recompute = CompletableFuture.supplyAsync(blockedFunding::recompute);
+        while (busyPool.getQueuedSubmissionCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Act
+        transactionService.createTransaction(1L, 1000.0, "Salary", "", DATE.plusDays(1), TransactionType.INCOME);
+        release.countDown();
+        int funded = recompute.get(5, TimeUnit.SECONDS);
+        busyPool.shutdownNow();
+
+        // Assert
+        assertEquals(10, funded);
+        assertEquals(200.0, blockedFunding.getFundedAmount(goal.getId()), 1e-9);
+    }
+
+    @Test
+    void addRule_ShouldReturnNull_WhenPercentsExceedLimitOrGoalIsForeign() {
+        // Arrange
+        Goal foreign = goalService.createGoal(2L, "Car", 5000.0, LocalDate.now().plusYears(1));
+        goalFundingService.addRule(1L, goal.getId(), 60);
+
+        // Act
+        GoalFundingRule overLimit = goalFundingService.addRule(1L, goal.getId(), 50);
+        GoalFundingRule foreignGoal = goalFundingService.addRule(1L, foreign.getId(), 10);
+        GoalFundingRule upToLimit = goalFundingService.addRule(1L, goal.getId(), 40);
+
+        // Assert
+        assertNull(overLimit);
+        assertNull(foreignGoal);
+        assertNotNull(upToLimit);
+        assertEquals(2, goalFundingService.getRules(1L).size());
+    }
+}
@@ -0,0 +1,94 @@
+import org.example.util.IdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    private MutableClock clock;
+    private IdGenerator idGenerator;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        idGenerator = new IdGenerator(5, clock);
+    }
+
+    @Test
+    void nextId_ShouldEmbedTimestampAndShard_WhenGenerated() {
+        // Act
+        long id = idGenerator.nextId();
+
+        // Assert
+        assertEquals(clock.instant(), IdGenerator.timestampOf(id));
+        assertEquals(5, IdGenerator.shardOf(id));
+        assertTrue(id >= IdGenerator.minIdAt(clock.instant()));
+        assertTrue(id <= IdGenerator.maxIdAt(clock.instant()));
+    }
+
+    @Test
+    void nextId_ShouldKeepIncreasing_WhenClockGoesBackwards() {
+        // Arrange
+        long first = idGenerator.nextId();
+        clock.advance(Duration.ofSeconds(-10));
+
+        // Act
+        long second = idGenerator.nextId();
+
+        // Assert
+        assertTrue(second > first);
+    }
+
+    @Test
+    void nextId_ShouldBorrowNextMillisecond_WhenSequenceExhausted() {
+        // Arrange
+        long last = 0;
+        for (int i = 0; i < 4096; i++) {
+            last = idGenerator.nextId();
+        }
+
+        // Act
+        long overflow = idGenerator.nextId();
+
+        // Assert
+        assertTrue(overflow > last);
+        assertEquals(clock.instant().plusMillis(1), IdGenerator.timestampOf(overflow));
+        assertEquals(5, IdGenerator.shardOf(overflow));
+    }
+
+    @Test
+    void reserve_ShouldReturnContiguousRange_WhenBatchRequested() {
+        // Arrange
+        for (int i = 0; i < 4000; i++) {
+            idGenerator.nextId();
+        }
+
+        // Act
+        long first = idGenerator.reserve(200);
+        long next = idGenerator.nextId();
+
+        // Assert
+        assertEquals(IdGenerator.timestampOf(first), IdGenerator.timestampOf(first + 199));
+        assertEquals(5, IdGenerator.shardOf(first + 199));
+        assertTrue(next > first + 199);
+    }
+
+    @Test
+    void nextId_ShouldNotRepeat_WhenCalledConcurrently() {
+        // Arrange
+        IdGenerator shared = new IdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        // Act
+        IntStream.range(0, 200_000).parallel().forEach(i -> ids.add(shared.nextId()));
+
+        // Assert
+        assertEquals(200_000, ids.size());
+    }
+}
@@ -0,0 +1,48 @@
+import org.example.util.IndexedLongHeap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedLongHeapTest {
+
+    @Test
+    void poll_ShouldReturnIdsByPriority_WhenPrioritiesChangedAndRemoved() {
+        // Arrange
+        IndexedLongHeap heap = new IndexedLongHeap();
+        long[] priorities = new long[5000];
+        Random random = new Random(42);
+        for (int id = 0; id < priorities.length; id++) {
+            priorities[id] = random.nextInt(1_000_000);
+            heap.put(id, priorities[id]);
+        }
+        for (int i = 0; i < 3000; i++) {
+            int id = random.nextInt(priorities.length);
+            priorities[id] = random.nextInt(1_000_000);
+            heap.put(id, priorities[id]);
+        }
+        for (int id = 0; id < priorities.length; id += 3) {
+            heap.remove(id);
+            priorities[id] = -1;
+        }
+        int remaining = priorities.length - (priorities.length + 2) / 3;
+
+        // Act
+        int polled = 0;
+        long previous = Long.MIN_VALUE;
+        boolean ordered = true;
+        while (!heap.isEmpty()) {
+            long priority = heap.peekPriority();
+            long id = heap.poll();
+            ordered &= priority >= previous && priorities[(int) id] == priority;
+            previous = priority;
+            polled++;
+        }
+
+        // Assert
+        assertTrue(ordered);
+        assertEquals(remaining, polled);
+        assertFalse(heap.contains(1));
+    }
+}
@@ -0,0 +1,128 @@
+import org.example.service.LoginRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private MutableClock clock;
+    private LoginRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        rateLimiter = new LoginRateLimiter(3, 1.0, 1024, clock);
+    }
+
+    @Test
+    void tryAcquire_ShouldRejectAttempts_WhenBucketIsEmpty() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("user@example.com", null));
+        }
+
+        // Act
+        boolean result = rateLimiter.tryAcquire("USER@example.com ", null);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void tryAcquire_ShouldAllowAttempt_WhenBucketRefilled() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("user@example.com", null);
+        }
+        clock.advance(Duration.ofSeconds(1));
+
+        // Act
+        boolean result = rateLimiter.tryAcquire("user@example.com", null);
+
+        // Assert
+        assertTrue(result);
+        assertFalse(rateLimiter.tryAcquire("user@example.com", null));
+    }
+
+    @Test
+    void tryAcquire_ShouldLimitClient_WhenEmailsDiffer() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        // Act
+        boolean result = rateLimiter.tryAcquire("fresh@example.com", "10.0.0.1");
+
+        // Assert
+        assertFalse(result);
+        assertTrue(rateLimiter.tryAcquire("fresh@example.com", "10.0.0.2"));
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepEmailThrottled_WhenAttackerSpraysOtherKeys() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            rateLimiter.tryAcquire("victim@example.com", null);
+        }
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            rateLimiter.tryAcquire("spray" + i + "@example.com", "client-" + i);
+        }
+        boolean result = rateLimiter.tryAcquire("victim@example.com", "client-fresh");
+
+        // Assert
+        assertFalse(result);
+        assertTrue(rateLimiter.size() <= 1024);
+    }
+
+    @Test
+    void tryAcquire_ShouldNotSpendEmailAttempt_WhenClientIsThrottled() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("victim@example.com", "10.0.0.1");
+        }
+
+        // Assert
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("victim@example.com", "10.0.0.2"));
+        }
+        assertFalse(rateLimiter.tryAcquire("victim@example.com", "10.0.0.3"));
+    }
+
+    @Test
+    void tryAcquire_ShouldAdmitNewKey_WhenTableIsFullOfPartlyUsedBuckets() {
+        // Arrange
+        LoginRateLimiter small = new LoginRateLimiter(3, 0.001, 4, clock);
+        for (int i = 0; i < 1000; i++) {
+            small.tryAcquire("spray" + i + "@example.com", null);
+        }
+
+        // Act
+        boolean result = small.tryAcquire("legit@example.com", "10.0.0.9");
+
+        // Assert
+        assertTrue(result);
+        assertTrue(small.size() <= 4);
+    }
+
+    @Test
+    void size_ShouldStayBounded_WhenManyDistinctKeysAttempted() {
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            rateLimiter.tryAcquire("user" + i + "@example.com", "client-" + i);
+        }
+
+        // Assert
+        assertTrue(rateLimiter.size() <= 1024);
+    }
+}
@@ -0,0 +1,93 @@
+import org.example.util.LongIntMap;
+import org.example.util.LongLongMap;
+import org.example.util.LongObjectMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectMapTest {
+
+    @Test
+    void put_ShouldReturnPreviousValue_WhenKeyExists() {
+        // Arrange
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(7L, "first");
+
+        // Act
+        String previous = map.put(7L, "second");
+
+        // Assert
+        assertEquals("first", previous);
+        assertEquals("second", map.get(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void remove_ShouldKeepOtherKeysReachable_WhenProbeChainIsShifted() {
+        // Arrange
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000) - 1_000;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (long key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.values().size());
+        assertTrue(map.values().containsAll(expected.values()));
+    }
+
+    @Test
+    void get_ShouldReturnDefault_WhenPrimitiveKeyMissing() {
+        // Arrange
+        LongIntMap map = new LongIntMap();
+        map.put(0L, 0);
+        map.put(3L, 30);
+
+        // Act
+        map.remove(3L);
+
+        // Assert
+        assertEquals(-1, map.get(3L, -1));
+        assertEquals(0, map.get(0L, -1));
+        assertEquals(5, map.addTo(9L, 5));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void put_ShouldKeepAllValues_WhenPrimitiveMapGrowsWithZeroKey() {
+        // Arrange
+        LongLongMap map = new LongLongMap(2);
+        map.put(0L, 42L);
+
+        // Act
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key * 31, key);
+        }
+        for (long key = 1; key <= 10_000; key += 2) {
+            map.remove(key * 31);
+        }
+
+        // Assert
+        assertEquals(5001, map.size());
+        assertEquals(42L, map.get(0L, -1));
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key % 2 == 0 ? key : -1, map.get(key * 31, -1));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import org.example.model.MonthCloseResult;
+import org.example.model.MonthlySummary;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.model.User;
+import org.example.repository.BudgetRepository;
+import org.example.repository.MonthCloseCheckpointRepository;
+import org.example.repository.MonthlySummaryRepository;
+import org.example.repository.TransactionRepository;
+import org.example.repository.UserRepository;
+import org.example.service.BudgetService;
+import org.example.service.MonthCloseService;
+import org.example.service.NotificationService;
+import org.example.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MonthCloseServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+
+    @Mock
+    private NotificationService notificationService;
+
+    private UserRepository userRepository;
+    private TransactionService transactionService;
+    private BudgetService budgetService;
+    private TransactionRepository transactionRepository;
+    private MonthlySummaryRepository summaryRepository;
+    private MonthCloseCheckpointRepository checkpoints;
+    private MonthCloseService monthCloseService;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        userRepository = new UserRepository();
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        budgetService = new BudgetService(new BudgetRepository(), transactionService);
+        summaryRepository = new MonthlySummaryRepository();
+        checkpoints = new MonthCloseCheckpointRepository();
+        pool = new ForkJoinPool(4);
+        monthCloseService = new MonthCloseService(userRepository, transactionRepository, budgetService,
+                notificationService, summaryRepository, checkpoints, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void closeMonth_ShouldWriteSummariesAndNotify_WhenBudgetExceeded() {
+        // Arrange
+        Long spender = user("spender").getId();
+        Long saver = user("saver").getId();
+        Long idle = user("idle").getId();
+        budgetService.createBudget(spender, 500.0, MONTH);
+        budgetService.createBudget(saver, 500.0, MONTH);
+        transaction(spender, 1000.0, "Salary", MONTH, TransactionType.INCOME);
+        transaction(spender, 400.0, "Food", MONTH, TransactionType.EXPENSE);
+        transaction(spender, 300.0, "Taxi", MONTH, TransactionType.EXPENSE);
+        transaction(spender, 900.0, "Food", MONTH.plusMonths(1), TransactionType.EXPENSE);
+        transaction(saver, 100.0, "Food", MONTH, TransactionType.EXPENSE);
+
+        // Act
+        MonthCloseResult result = monthCloseService.closeMonth(MONTH);
+
+        // Assert
+        assertEquals(3, result.getUsers());
+        assertEquals(1, result.getExceededBudgets());
+        assertTrue(monthCloseService.isClosed(MONTH));
+        MonthlySummary summary = summaryRepository.find(spender, MONTH);
+        assertEquals(1000.0, summary.getIncome(), 1e-9);
+        assertEquals(700.0, summary.getExpenses(), 1e-9);
+        assertEquals(300.0, summary.getBalance(), 1e-9);
+        assertEquals(3, summary.getTransactionCount());
+        assertEquals(400.0, summary.getExpensesByCategory().get("Food"), 1e-9);
+        assertTrue(summary.isBudgetExceeded());
+        assertFalse(summaryRepository.find(saver, MONTH).isBudgetExceeded());
+        assertEquals(0, summaryRepository.find(idle, MONTH).getTransactionCount());
+        verify(notificationService).sendBudgetExceededNotifications(List.of(summary));
+    }
+
+    @Test
+    void closeMonth_ShouldResumeFromCheckpoint_WhenPreviousRunFailed() {
+        // Arrange
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Long userId = user("user" + i).getId();
+            userIds.add(userId);
+            budgetService.createBudget(userId, 10.0, MONTH);
+            transaction(userId, 20.0, "Food", MONTH, TransactionType.EXPENSE);
+        }
+        doThrow(new IllegalStateException("mail server is down"))
+                .doNothing()
+                .when(notificationService).sendBudgetExceededNotifications(anyList());
+        assertThrows(IllegalStateException.class, () -> monthCloseService.closeMonth(MONTH));
+        int closedBeforeRestart = checkpoints.completed(MONTH).cardinality();
+
+        // Act
+        MonthCloseResult resumed = monthCloseService.closeMonth(MONTH);
+        MonthCloseResult repeated = monthCloseService.closeMonth(MONTH);
+
+        // Assert
+        assertTrue(closedBeforeRestart < 64);
+        assertEquals(closedBeforeRestart, resumed.getSkippedPartitions());
+        assertEquals(64 - closedBeforeRestart, resumed.getClosedPartitions());
+        assertTrue(monthCloseService.isClosed(MONTH));
+        assertEquals(userIds.size(), summaryRepository.countByMonth(MONTH));
+        for (Long userId : userIds) {
+            assertTrue(summaryRepository.find(userId, MONTH).isBudgetExceeded());
+        }
+        assertEquals(0, repeated.getClosedPartitions());
+        assertEquals(64, repeated.getSkippedPartitions());
+    }
+
+    @Test
+    void checkpoints_ShouldSurviveRestart_WhenBackedByFile(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path file = directory.resolve("month-close.log");
+        MonthCloseCheckpointRepository written = new MonthCloseCheckpointRepository(file);
+        written.markDone(MONTH, 3);
+        written.markDone(MONTH, 17);
+        written.markDone(MONTH.plusMonths(1), 5);
+        Files.writeString(file, "2025-03 4", StandardOpenOption.APPEND);
+
+        // Act
+        MonthCloseCheckpointRepository reloaded = new MonthCloseCheckpointRepository(file);
+
+        // Assert
+        assertEquals(2, reloaded.completed(MONTH).cardinality());
+        assertTrue(reloaded.completed(MONTH).get(17));
+        assertFalse(reloaded.completed(MONTH).get(4));
+        assertTrue(reloaded.completed(MONTH.plusMonths(1)).get(5));
+    }
+
+    @Test
+    void closeMonth_ShouldSkipClosedPartitions_WhenRestartedWithFileBackedStores(@TempDir Path directory) {
+        // Arrange
+        Path summaries = directory.resolve("summaries.bin");
+        Path log = directory.resolve("month-close.log");
+        Long spender = user("spender").getId();
+        transaction(spender, 400.0, "Food", MONTH, TransactionType.EXPENSE);
+        new MonthCloseService(userRepository, transactionRepository, budgetService,
+                notificationService, new MonthlySummaryRepository(summaries), new MonthCloseCheckpointRepository(log), pool)
+                .closeMonth(MONTH);
+
+        // Act
+        MonthlySummaryRepository reloaded = new MonthlySummaryRepository(summaries);
+        MonthCloseResult restarted = new MonthCloseService(userRepository, transactionRepository,
+                budgetService, notificationService, reloaded, new MonthCloseCheckpointRepository(log), pool)
+                .closeMonth(MONTH);
+
+        // Assert
+        assertEquals(64, restarted.getSkippedPartitions());
+        assertEquals(400.0, reloaded.find(spender, MONTH).getExpenses(), 1e-9);
+    }
+
+    @Test
+    void constructor_ShouldReject_WhenOnlyCheckpointsArePersistent(@TempDir Path directory) {
+        // Arrange
+        MonthCloseCheckpointRepository fileCheckpoints = new MonthCloseCheckpointRepository(directory.resolve("month-close.log"));
+
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new MonthCloseService(userRepository,
+                new TransactionRepository(), budgetService, notificationService, summaryRepository, fileCheckpoints, pool));
+    }
+
+    @Test
+    void closeMonth_ShouldReturnNull_WhenMonthIsNotOver() {
+        // Arrange
+        MonthCloseService service = new MonthCloseService(userRepository, transactionRepository, budgetService,
+                notificationService, summaryRepository, checkpoints, pool,
+                Clock.fixed(MONTH.atDay(15).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        user("early");
+
+        // Act
+        MonthCloseResult current = service.closeMonth(MONTH);
+        MonthCloseResult future = service.closeMonth(MONTH.plusMonths(1));
+        MonthCloseResult previous = service.closeMonth(MONTH.minusMonths(1));
+
+        // Assert
+        assertNull(current);
+        assertNull(future);
+        assertNotNull(previous);
+        assertEquals(0, checkpoints.completed(MONTH).cardinality());
+    }
+
+    @Test
+    void closeMonth_ShouldCountExpense_WhenRowHasNoCategory() {
+        // Arrange
+        Long userId = user("plain").getId();
+        transaction(userId, 100.0, "Food", MONTH, TransactionType.EXPENSE);
+        Transaction uncategorized = new Transaction();
+        uncategorized.setUserId(userId);
+        uncategorized.setAmount(40.0);
+        uncategorized.setDate(MONTH.atDay(12).atTime(9, 0));
+        uncategorized.setType(TransactionType.EXPENSE);
+        transactionRepository.save(uncategorized);
+
+        // Act
+        MonthCloseResult result = monthCloseService.closeMonth(MONTH);
+
+        // Assert
+        assertEquals(1, result.getUsers());
+        MonthlySummary summary = summaryRepository.find(userId, MONTH);
+        assertEquals(140.0, summary.getExpenses(), 1e-9);
+        assertEquals(100.0, summary.getExpensesByCategory().get("Food"), 1e-9);
+    }
+
+    private User user(String name) {
+        return userRepository.save(new User(null, name, name + "@example.com", "hash", false, false));
+    }
+
+    private void transaction(Long userId, double amount, String category, YearMonth month, TransactionType type) {
+        transactionService.createTransaction(userId, amount, category, "", month.atDay(10).atTime(12, 0), type);
+    }
+}
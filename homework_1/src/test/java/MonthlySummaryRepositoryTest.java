@@ -0,0 +1,111 @@
+import org.example.model.MonthlySummary;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.MonthlySummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonthlySummaryRepositoryTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+
+    @Test
+    void saveAll_ShouldKeepFirstSummary_WhenMonthAlreadyArchived() {
+        // Arrange
+        MonthlySummaryRepository repository = new MonthlySummaryRepository();
+        repository.saveAll(List.of(summary(1L, MONTH, 100.0)));
+
+        // Act
+        int saved = repository.saveAll(List.of(summary(1L, MONTH, 999.0), summary(1L, MONTH.minusMonths(14), 50.0)));
+
+        // Assert
+        assertEquals(1, saved);
+        assertEquals(100.0, repository.find(1L, MONTH).getExpenses(), 1e-9);
+        assertEquals(50.0, repository.find(1L, MONTH.minusMonths(14)).getExpenses(), 1e-9);
+        assertNull(repository.find(1L, MONTH.minusMonths(1)));
+        assertEquals(2, repository.findByUserId(1L, MONTH.minusYears(2), MONTH).size());
+    }
+
+    @Test
+    void forEachMonth_ShouldVisitArchivedMonthsInOrder_WhenRangeSpansYears() {
+        // Arrange
+        MonthlySummaryRepository repository = new MonthlySummaryRepository();
+        List<MonthlySummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 36; i++) {
+            summaries.add(summary(1L, MONTH.minusMonths(i), 10.0));
+        }
+        repository.saveAll(summaries);
+        List<Integer> visited = new ArrayList<>();
+        double[] expenses = new double[1];
+
+        // Act
+        repository.forEachMonth(1L, MONTH.minusMonths(23), null, (month, income, spent, count, categoryIds, categoryAmounts) -> {
+            visited.add(month);
+            expenses[0] += spent;
+        });
+
+        // Assert
+        assertEquals(24, visited.size());
+        for (int i = 1; i < visited.size(); i++) {
+            assertEquals(visited.get(i - 1) + 1, visited.get(i));
+        }
+        assertEquals(240.0, expenses[0], 1e-9);
+    }
+
+    @Test
+    void constructor_ShouldReloadSummariesAndDropTornRecord_WhenBackedByFile(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path file = directory.resolve("summaries.bin");
+        new MonthlySummaryRepository(file).saveAll(List.of(summary(1L, MONTH, 100.0), summary(2L, MONTH, 200.0)));
+        Files.write(file, new byte[]{0, 0, 0, 1}, StandardOpenOption.APPEND);
+
+        // Act
+        MonthlySummaryRepository reloaded = new MonthlySummaryRepository(file);
+        reloaded.saveAll(List.of(summary(3L, MONTH, 300.0)));
+        MonthlySummaryRepository reloadedAgain = new MonthlySummaryRepository(file);
+
+        // Assert
+        MonthlySummary first = reloadedAgain.find(1L, MONTH);
+        assertEquals(100.0, first.getExpenses(), 1e-9);
+        assertEquals(Map.of("Food", 100.0), first.getExpensesByCategory());
+        assertTrue(first.isBudgetExceeded());
+        assertEquals(3, reloadedAgain.countByMonth(MONTH));
+    }
+
+    @Test
+    void adjust_ShouldSurviveReload_WhenClosedMonthTransactionIsReversed(@TempDir Path directory) {
+        // Arrange
+        Path file = directory.resolve("summaries.bin");
+        MonthlySummaryRepository repository = new MonthlySummaryRepository(file);
+        repository.saveAll(List.of(summary(1L, MONTH, 40.0)));
+        Transaction refund = new Transaction(9L, 1L, 30.0, "Food", "", MONTH.atDay(5).atStartOfDay(), TransactionType.EXPENSE, 1);
+
+        // Act
+        boolean adjusted = repository.adjust(refund, -1);
+        boolean openMonth = repository.adjust(new Transaction(10L, 1L, 5.0, "Food", "", MONTH.plusMonths(1).atDay(1).atStartOfDay(),
+                TransactionType.EXPENSE, 1), 1);
+        MonthlySummary reloaded = new MonthlySummaryRepository(file).find(1L, MONTH);
+
+        // Assert
+        assertTrue(adjusted);
+        assertFalse(openMonth);
+        assertEquals(10.0, reloaded.getExpenses(), 1e-9);
+        assertEquals(1, reloaded.getTransactionCount());
+        assertEquals(10.0, reloaded.getExpensesByCategory().get("Food"), 1e-9);
+        assertFalse(reloaded.isBudgetExceeded());
+    }
+
+    private static MonthlySummary summary(Long userId, YearMonth month, double expenses) {
+        return new MonthlySummary(userId, month, 500.0, expenses, 2, 50.0, expenses > 50.0, Map.of("Food", expenses));
+    }
+}
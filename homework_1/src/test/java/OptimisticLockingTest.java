@@ -0,0 +1,69 @@
+import org.example.model.Budget;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repository.BudgetRepository;
+import org.example.repository.OptimisticLockException;
+import org.example.repository.TransactionRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockingTest {
+
+    @Test
+    void save_ShouldRejectStaleCopy_WhenTransactionChangedAfterRead() {
+        // Arrange
+        TransactionRepository repository = new TransactionRepository();
+        Transaction transaction = new Transaction();
+        transaction.setUserId(1L);
+        transaction.setAmount(100.0);
+        transaction.setDate(LocalDateTime.of(2024, 1, 1, 0, 0));
+        repository.save(transaction);
+        Transaction first = repository.findById(transaction.getId());
+        Transaction second = repository.findById(transaction.getId());
+
+        // Act
+        first.setAmount(150.0);
+        repository.save(first);
+        second.setAmount(200.0);
+
+        // Assert
+        assertThrows(OptimisticLockException.class, () -> repository.save(second));
+        assertEquals(150.0, repository.findById(transaction.getId()).getAmount());
+        assertEquals(2, repository.findById(transaction.getId()).getVersion());
+    }
+
+    @Test
+    void findById_ShouldReturnCopy_WhenCallerMutatesResult() {
+        // Arrange
+        UserRepository repository = new UserRepository();
+        User user = repository.save(new User(null, "Ivan", "ivan@example.com", "password", false, false));
+
+        // Act
+        repository.findById(user.getId()).setBlocked(true);
+
+        // Assert
+        assertFalse(repository.findById(user.getId()).isBlocked());
+    }
+
+    @Test
+    void save_ShouldAcceptSequentialUpdates_WhenVersionIsCurrent() {
+        // Arrange
+        BudgetRepository repository = new BudgetRepository();
+        Budget budget = repository.save(new Budget(null, 1L, 1000.0, YearMonth.of(2024, 1), null, null, null, 0, 0));
+
+        // Act
+        budget.setAmount(1200.0);
+        repository.save(budget);
+        budget.setAmount(1300.0);
+        repository.save(budget);
+
+        // Assert
+        assertEquals(1300.0, repository.findById(budget.getId()).getAmount());
+        assertEquals(3, budget.getVersion());
+    }
+}
@@ -0,0 +1,77 @@
+import org.example.service.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        passwordHasher = new PasswordHasher(1000, 1, 4, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void matches_ShouldReturnTrue_WhenPasswordIsCorrect() {
+        // Arrange
+        String hash = passwordHasher.hash("secret");
+
+        // Act
+        boolean result = passwordHasher.matches("secret", hash);
+
+        // Assert
+        assertTrue(result);
+        assertTrue(hash.startsWith("pbkdf2$" + PasswordHasher.CURRENT_VERSION + "$1000$"));
+        assertTrue(passwordHasher.getAverageHashMillis() > 0);
+    }
+
+    @Test
+    void matches_ShouldReturnFalse_WhenPasswordIsWrong() {
+        // Arrange
+        String hash = passwordHasher.hash("secret");
+
+        // Act
+        boolean result = passwordHasher.matches("other", hash);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void hash_ShouldUseRandomSalt() {
+        // Act
+        String first = passwordHasher.hash("secret");
+        String second = passwordHasher.hash("secret");
+
+        // Assert
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void needsRehash_ShouldReturnTrue_WhenHashIsWeakerThanConfigured() {
+        // Arrange
+        String weakHash = passwordHasher.hash("secret");
+        PasswordHasher strongerHasher = new PasswordHasher(2000, 1, 4, Duration.ofSeconds(5));
+
+        // Act
+        boolean weakNeedsRehash = strongerHasher.needsRehash(weakHash);
+        boolean plainNeedsRehash = strongerHasher.needsRehash("secret");
+
+        // Assert
+        assertTrue(weakNeedsRehash);
+        assertTrue(plainNeedsRehash);
+        assertFalse(passwordHasher.needsRehash(weakHash));
+        assertTrue(strongerHasher.matches("secret", weakHash));
+        strongerHasher.shutdown();
+    }
+}
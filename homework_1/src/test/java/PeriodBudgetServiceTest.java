@@ -0,0 +1,152 @@
+import org.example.model.Budget;
+import org.example.model.BudgetPeriodType;
+import org.example.model.BudgetStatus;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.BudgetRepository;
+import org.example.repository.TransactionRepository;
+import org.example.service.BudgetService;
+import org.example.service.PeriodBudgetService;
+import org.example.service.TransactionService;
+import org.example.util.DailySpendRing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeriodBudgetServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-15T08:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private BudgetService budgetService;
+    private PeriodBudgetService periodBudgetService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        transactionService = new TransactionService(transactionRepository);
+        budgetService = new BudgetService(new BudgetRepository(), transactionService);
+        periodBudgetService = new PeriodBudgetService(budgetService, transactionRepository, CLOCK);
+        transactionService.addListener(periodBudgetService);
+    }
+
+    @Test
+    void check_ShouldSumLastDays_WhenBudgetIsRolling() {
+        // Arrange
+        Budget budget = budgetService.createPeriodBudget(1L, 500.0, BudgetPeriodType.ROLLING, null, 30);
+        for (int daysAgo = 0; daysAgo < 60; daysAgo++) {
+            expense(1L, 10.0, TODAY.minusDays(daysAgo));
+        }
+
+        // Act
+        BudgetStatus status = periodBudgetService.check(budget);
+
+        // Assert
+        assertEquals(300.0, status.getSpent(), 1e-9);
+        assertEquals(TODAY.minusDays(29), status.getPeriodStart());
+        assertFalse(status.isExceeded());
+    }
+
+    @Test
+    void check_ShouldUseCurrentPeriod_WhenBudgetIsBiweekly() {
+        // Arrange
+        LocalDate start = TODAY.minusDays(20);
+        Budget budget = budgetService.createPeriodBudget(1L, 100.0, BudgetPeriodType.BIWEEKLY, start, 0);
+        expense(1L, 500.0, start.plusDays(13));
+        Transaction current = expense(1L, 80.0, start.plusDays(14));
+        expense(1L, 40.0, TODAY);
+
+        // Act
+        BudgetStatus exceeded = periodBudgetService.check(budget);
+        transactionService.updateTransaction(current.getId(), 30.0, null, null);
+        BudgetStatus withinLimit = periodBudgetService.check(budget);
+
+        // Assert
+        assertEquals(start.plusDays(14), exceeded.getPeriodStart());
+        assertEquals(start.plusDays(27), exceeded.getPeriodEnd());
+        assertEquals(120.0, exceeded.getSpent(), 1e-9);
+        assertTrue(exceeded.isExceeded());
+        assertEquals(70.0, withinLimit.getSpent(), 1e-9);
+        assertFalse(withinLimit.isExceeded());
+    }
+
+    @Test
+    void evaluate_ShouldListOnlyPeriodBudgets_WhenMonthlyBudgetAlsoSet() {
+        // Arrange
+        budgetService.createBudget(1L, 1000.0, YearMonth.from(TODAY));
+        budgetService.createPeriodBudget(1L, 100.0, BudgetPeriodType.WEEKLY, TODAY.minusDays(3), 0);
+        expense(1L, 25.0, TODAY.minusDays(1));
+
+        // Act
+        List<BudgetStatus> statuses = periodBudgetService.evaluate(1L);
+
+        // Assert
+        assertEquals(1, statuses.size());
+        assertEquals(25.0, statuses.get(0).getSpent(), 1e-9);
+        assertNull(budgetService.createPeriodBudget(1L, 100.0, BudgetPeriodType.ROLLING, null, BudgetService.MAX_WINDOW_DAYS + 1));
+    }
+
+    @Test
+    void rebuild_ShouldMatchLiveSpend_WhenServiceStartsFromSnapshot() {
+        // Arrange
+        Budget budget = budgetService.createPeriodBudget(1L, 500.0, BudgetPeriodType.ROLLING, null, 30);
+        for (int daysAgo = 0; daysAgo < 400; daysAgo += 3) {
+            expense(1L, 10.0, TODAY.minusDays(daysAgo));
+        }
+        expense(1L, 7.5, TODAY.plusDays(10));
+        expense(2L, 40.0, TODAY.minusDays(1));
+        transactionService.createTransaction(1L, 1000.0, "Salary", "", TODAY.atTime(9, 0), TransactionType.INCOME);
+        PeriodBudgetService restarted = new PeriodBudgetService(budgetService, transactionRepository, CLOCK);
+
+        // Act
+        restarted.rebuild();
+
+        // Assert
+        assertEquals(periodBudgetService.check(budget), restarted.check(budget));
+        assertEquals(100.0, restarted.getSpent(1L, TODAY.minusDays(29), TODAY), 1e-9);
+        assertEquals(7.5, restarted.getSpent(1L, TODAY.plusDays(1), TODAY.plusDays(10)), 1e-9);
+        assertEquals(40.0, restarted.getSpent(2L, TODAY.minusDays(6), TODAY), 1e-9);
+    }
+
+    @Test
+    void sum_ShouldStayExact_WhenRingWrapsAndWritesArriveBackdated() {
+        // Arrange
+        DailySpendRing ring = new DailySpendRing(30);
+        long[] daily = new long[400];
+        for (int day = 0; day < daily.length; day++) {
+            daily[day] = day % 7 + 1;
+            ring.add(day, daily[day]);
+            if (day >= 5) {
+                ring.add(day - 5, 100);
+                daily[day - 5] += 100;
+            }
+        }
+
+        // Act
+        long window = ring.sum(370, 399);
+        long gap = ring.sum(420, 430);
+
+        // Assert
+        long expected = 0;
+        for (int day = 370; day < 400; day++) {
+            expected += daily[day];
+        }
+        assertEquals(expected, window);
+        assertEquals(0, gap);
+        assertThrows(IllegalArgumentException.class, () -> ring.sum(200, 399));
+    }
+
+    private Transaction expense(Long userId, double amount, LocalDate date) {
+        return transactionService.createTransaction(userId, amount, "Food", "", date.atTime(12, 0), TransactionType.EXPENSE);
+    }
+}
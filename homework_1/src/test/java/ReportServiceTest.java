@@ -0,0 +1,120 @@
+import org.example.model.AdminReport;
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.service.ReportService;
+import org.example.service.ReportTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServiceTest {
+
+    private TransactionRepository transactionRepository;
+    private ForkJoinPool pool;
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        pool = new ForkJoinPool(4);
+        reportService = new ReportService(transactionRepository, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void buildAdminReport_ShouldAggregateAllUsers_WhenPeriodGiven() {
+        // Arrange
+        save(1L, 100.0, "Food", LocalDateTime.of(2024, 1, 10, 12, 0), TransactionType.EXPENSE);
+        save(1L, 1000.0, "Salary", LocalDateTime.of(2024, 1, 31, 23, 59, 59), TransactionType.INCOME);
+        save(2L, 300.0, "Rent", LocalDateTime.of(2024, 2, 1, 0, 0), TransactionType.EXPENSE);
+        save(2L, 50.0, "Food", LocalDateTime.of(2024, 2, 15, 8, 0), TransactionType.EXPENSE);
+        save(3L, 999.0, "Food", LocalDateTime.of(2024, 3, 1, 0, 0), TransactionType.EXPENSE);
+
+        // Act
+        AdminReport report = reportService.buildAdminReport(YearMonth.of(2024, 1), YearMonth.of(2024, 2), 1);
+
+        // Assert
+        assertEquals(150.0, report.getExpensesByCategory().get("Food"));
+        assertEquals(300.0, report.getExpensesByCategory().get("Rent"));
+        assertEquals(1000.0, report.getIncomeByMonth().get(YearMonth.of(2024, 1)));
+        assertEquals(100.0, report.getExpensesByMonth().get(YearMonth.of(2024, 1)));
+        assertEquals(350.0, report.getExpensesByMonth().get(YearMonth.of(2024, 2)));
+        assertEquals(1, report.getTopSpenders().size());
+        assertEquals(2L, report.getTopSpenders().get(0).getUserId());
+        assertEquals(350.0, report.getTopSpenders().get(0).getTotal());
+    }
+
+    @Test
+    void buildAdminReport_ShouldMatchSequentialTotals_WhenWorkIsSplit() {
+        // Arrange
+        double expected = 0;
+        for (long userId = 1; userId <= 400; userId++) {
+            for (int i = 0; i < 300; i++) {
+                double amount = userId + i;
+                save(userId, amount, "C" + (i % 7), LocalDateTime.of(2024, 1 + i % 12, 1 + i % 28, 10, 0), TransactionType.EXPENSE);
+                expected += amount;
+            }
+        }
+
+        // Act
+        AdminReport report = reportService.buildAdminReport(YearMonth.of(2024, 1), YearMonth.of(2024, 12), 3);
+
+        // Assert
+        double total = report.getExpensesByMonth().values().stream().mapToDouble(Double::doubleValue).sum();
+        assertEquals(expected, total, 1e-6);
+        assertEquals(400L, report.getTopSpenders().get(0).getUserId());
+        assertEquals(399L, report.getTopSpenders().get(1).getUserId());
+        assertEquals(398L, report.getTopSpenders().get(2).getUserId());
+    }
+
+    @Test
+    void startAdminReport_ShouldReturnNull_WhenReportCancelled() {
+        // Arrange
+        save(1L, 100.0, "Food", LocalDateTime.of(2024, 1, 10, 12, 0), TransactionType.EXPENSE);
+        ReportTask task = reportService.startAdminReport(YearMonth.of(2024, 1), YearMonth.of(2024, 1), 5);
+
+        // Act
+        task.cancel();
+
+        // Assert
+        assertTrue(task.isCancelled());
+        assertNull(task.join());
+    }
+
+    @Test
+    void startAdminReport_ShouldReportFullProgress_WhenFinished() {
+        // Arrange
+        save(1L, 100.0, "Food", LocalDateTime.of(2024, 1, 10, 12, 0), TransactionType.EXPENSE);
+        save(2L, 200.0, "Food", LocalDateTime.of(2024, 1, 11, 12, 0), TransactionType.EXPENSE);
+
+        // Act
+        ReportTask task = reportService.startAdminReport(YearMonth.of(2024, 1), YearMonth.of(2024, 1), 5);
+        task.join();
+
+        // Assert
+        assertEquals(1.0, task.getProgress());
+        assertNull(reportService.startAdminReport(YearMonth.of(2024, 2), YearMonth.of(2024, 1), 5));
+    }
+
+    private void save(Long userId, double amount, String category, LocalDateTime date, TransactionType type) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setAmount(amount);
+        transaction.setCategory(category);
+        transaction.setDescription("");
+        transaction.setDate(date);
+        transaction.setType(type);
+        transactionRepository.save(transaction);
+    }
+}
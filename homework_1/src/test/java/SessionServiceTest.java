@@ -0,0 +1,106 @@
+import org.example.service.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionServiceTest {
+
+    private MutableClock clock;
+    private SessionService sessionService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        sessionService = new SessionService(Duration.ofMinutes(30), Duration.ofHours(2), 3, clock);
+    }
+
+    @Test
+    void validate_ShouldReturnUserId_WhenSessionIsActive() {
+        // Arrange
+        String token = sessionService.createSession(1L);
+
+        // Act
+        Long userId = sessionService.validate(token);
+
+        // Assert
+        assertNotNull(token);
+        assertEquals(1L, userId);
+    }
+
+    @Test
+    void validate_ShouldReturnNull_WhenSessionIsIdle() {
+        // Arrange
+        String token = sessionService.createSession(1L);
+        clock.advance(Duration.ofMinutes(31));
+
+        // Act
+        Long userId = sessionService.validate(token);
+
+        // Assert
+        assertNull(userId);
+        assertEquals(0, sessionService.getActiveSessionCount());
+    }
+
+    @Test
+    void validate_ShouldReturnNull_WhenAbsoluteTimeoutPassed() {
+        // Arrange
+        String token = sessionService.createSession(1L);
+        for (int i = 0; i < 4; i++) {
+            clock.advance(Duration.ofMinutes(25));
+            assertEquals(1L, sessionService.validate(token));
+        }
+        clock.advance(Duration.ofMinutes(25));
+
+        // Act
+        Long userId = sessionService.validate(token);
+
+        // Assert
+        assertNull(userId);
+    }
+
+    @Test
+    void createSession_ShouldEvictExpiredSessionsLazily() {
+        // Arrange
+        sessionService.createSession(1L);
+        sessionService.createSession(2L);
+        sessionService.createSession(3L);
+        assertNull(sessionService.createSession(4L));
+        clock.advance(Duration.ofMinutes(45));
+
+        // Act
+        String token = sessionService.createSession(4L);
+
+        // Assert
+        assertNotNull(token);
+        assertEquals(1, sessionService.getActiveSessionCount());
+    }
+
+    @Test
+    void revokeAllForUser_ShouldInvalidateEverySessionOfUser() {
+        // Arrange
+        String first = sessionService.createSession(1L);
+        String second = sessionService.createSession(1L);
+        String other = sessionService.createSession(2L);
+
+        // Act
+        int revoked = sessionService.revokeAllForUser(1L);
+
+        // Assert
+        assertEquals(2, revoked);
+        assertNull(sessionService.validate(first));
+        assertNull(sessionService.validate(second));
+        assertEquals(2L, sessionService.validate(other));
+    }
+
+    @Test
+    void invalidate_ShouldReturnFalse_WhenTokenUnknown() {
+        // Act
+        boolean result = sessionService.invalidate("unknown");
+
+        // Assert
+        assertFalse(result);
+    }
+}
@@ -0,0 +1,53 @@
+import org.example.repository.TransactionColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionColumnsTest {
+
+    @Test
+    void forEach_ShouldVisitOnlyRowsInPeriodByDate_WhenRowsAddedOutOfOrder() {
+        // Arrange
+        TransactionColumns columns = new TransactionColumns();
+        for (int i = 0; i < 1000; i++) {
+            long epochSecond = (i * 7919L) % 1000 * 60;
+            columns.put(1L, i + 1, epochSecond, i, 0, (byte) 1);
+        }
+
+        // Act
+        List<Long> visited = new ArrayList<>();
+        columns.forEach(1L, 100 * 60, 199 * 60, (epochSecond, amount, categoryId, type) -> visited.add(epochSecond));
+
+        // Assert
+        assertEquals(100, visited.size());
+        for (int i = 0; i < visited.size(); i++) {
+            assertEquals((100L + i) * 60, visited.get(i));
+        }
+    }
+
+    @Test
+    void put_ShouldMoveRow_WhenDateChanged() {
+        // Arrange
+        TransactionColumns columns = new TransactionColumns();
+        columns.put(1L, 10L, 100, 50.0, 0, (byte) 1);
+        columns.put(1L, 11L, 200, 70.0, 0, (byte) 1);
+
+        // Act
+        columns.remove(1L, 10L, 100);
+        columns.put(1L, 10L, 300, 55.0, 0, (byte) 1);
+        columns.remove(1L, 11L, 999);
+        double[] total = new double[1];
+        int[] rows = new int[1];
+        columns.forEach(1L, Long.MIN_VALUE, Long.MAX_VALUE, (epochSecond, amount, categoryId, type) -> {
+            total[0] += amount;
+            rows[0]++;
+        });
+
+        // Assert
+        assertEquals(2, rows[0]);
+        assertEquals(125.0, total[0], 1e-9);
+    }
+}
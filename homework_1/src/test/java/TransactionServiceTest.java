@@ -1,7 +1,11 @@
 
+import org.example.model.MonthlySummary;
 import org.example.model.Transaction;
+import org.example.model.TransactionQuery;
 import org.example.model.TransactionType;
+import org.example.repository.MonthlySummaryRepository;
 import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionVisitor;
 import org.example.service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,11 +15,16 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class TransactionServiceTest {
@@ -174,6 +183,58 @@ class TransactionServiceTest {
         assertFalse(actualTransactions.contains(transaction3));
     }
 
+    @Test
+    void findTransactions_ShouldDelegateQueryToRepository() {
+        // Arrange
+        TransactionQuery query = TransactionQuery.builder()
+                .userId(1L)
+                .type(TransactionType.EXPENSE)
+                .minAmount(100.0)
+                .sortBy(TransactionQuery.SortField.AMOUNT)
+                .descending(true)
+                .limit(5)
+                .build();
+        Transaction transaction = new Transaction();
+        transaction.setAmount(500.0);
+
+        when(transactionRepository.query(query)).thenReturn(List.of(transaction));
+
+        // Act
+        List<Transaction> found = transactionService.findTransactions(query);
+
+        // Assert
+        assertEquals(List.of(transaction), found);
+    }
+
+    @Test
+    void searchTransactions_ShouldReturnRepositoryMatches_WhenTextProvided() {
+        // Arrange
+        Long userId = 1L;
+        LocalDateTime startDate = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2025, 3, 31, 23, 59);
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setDescription("Amazon order");
+
+        when(transactionRepository.search(userId, "amaz", startDate, endDate, TransactionType.EXPENSE)).thenReturn(List.of(transaction));
+
+        // Act
+        List<Transaction> found = transactionService.searchTransactions(userId, "amaz", startDate, endDate, TransactionType.EXPENSE);
+
+        // Assert
+        assertEquals(List.of(transaction), found);
+    }
+
+    @Test
+    void searchTransactions_ShouldReturnEmptyList_WhenTextIsBlank() {
+        // Act
+        List<Transaction> found = transactionService.searchTransactions(1L, " ", null, null, null);
+
+        // Assert
+        assertTrue(found.isEmpty());
+        Mockito.verifyNoInteractions(transactionRepository);
+    }
+
     @Test
     void updateTransaction_ShouldUpdateTransaction_WhenTransactionExists() {
         // Arrange
@@ -254,20 +315,10 @@ class TransactionServiceTest {
         Long userId = 1L;
         LocalDateTime startDate = LocalDateTime.now().minusDays(7);
         LocalDateTime endDate = LocalDateTime.now();
-        Transaction transaction1 = new Transaction();
-        transaction1.setUserId(userId);
-        transaction1.setAmount(100.0);
-        transaction1.setType(TransactionType.INCOME);
-        Transaction transaction2 = new Transaction();
-        transaction2.setUserId(userId);
-        transaction2.setAmount(200.0);
-        transaction2.setType(TransactionType.INCOME);
-        Transaction transaction3 = new Transaction();
-        transaction3.setUserId(userId);
-        transaction3.setAmount(300.0);
-        transaction3.setType(TransactionType.EXPENSE);
-
-        when(transactionRepository.findByUserId(userId)).thenReturn(List.of(transaction1, transaction2, transaction3));
+        stubRows(userId, startDate, endDate,
+                row(100.0, 0, TransactionType.INCOME),
+                row(200.0, 0, TransactionType.INCOME),
+                row(300.0, 0, TransactionType.EXPENSE));
 
         // Act
         double totalIncome = transactionService.calculateTotalIncome(userId, startDate, endDate);
@@ -282,16 +333,9 @@ class TransactionServiceTest {
         Long userId = 1L;
         LocalDateTime startDate = LocalDateTime.now().minusDays(7);
         LocalDateTime endDate = LocalDateTime.now();
-        Transaction transaction1 = new Transaction();
-        transaction1.setUserId(userId);
-        transaction1.setAmount(100.0);
-        transaction1.setType(TransactionType.EXPENSE);
-        Transaction transaction2 = new Transaction();
-        transaction2.setUserId(userId);
-        transaction2.setAmount(200.0);
-        transaction2.setType(TransactionType.EXPENSE);
-
-        when(transactionRepository.findByUserId(userId)).thenReturn(List.of(transaction1, transaction2));
+        stubRows(userId, startDate, endDate,
+                row(100.0, 0, TransactionType.EXPENSE),
+                row(200.0, 0, TransactionType.EXPENSE));
 
         // Act
         double totalExpenses = transactionService.calculateTotalExpenses(userId, startDate, endDate);
@@ -304,18 +348,9 @@ class TransactionServiceTest {
     void calculateBalance_ShouldReturnDifferenceBetweenIncomeAndExpenses_WhenTransactionsExist() {
         // Arrange
         Long userId = 1L;
-        LocalDateTime startDate = LocalDateTime.now().minusDays(7);
-        LocalDateTime endDate = LocalDateTime.now();
-        Transaction transaction1 = new Transaction();
-        transaction1.setUserId(userId);
-        transaction1.setAmount(100.0);
-        transaction1.setType(TransactionType.INCOME);
-        Transaction transaction2 = new Transaction();
-        transaction2.setUserId(userId);
-        transaction2.setAmount(200.0);
-        transaction2.setType(TransactionType.EXPENSE);
-
-        when(transactionRepository.findByUserId(userId)).thenReturn(List.of(transaction1, transaction2));
+        stubRows(userId, null, null,
+                row(100.0, 0, TransactionType.INCOME),
+                row(200.0, 0, TransactionType.EXPENSE));
 
         // Act
         double balance = transactionService.calculateBalance(userId);
@@ -325,23 +360,36 @@ class TransactionServiceTest {
     }
 
     @Test
-    void calculateExpensesByCategory_ShouldReturnMapOfCategoriesAndTotals_WhenExpenseTransactionsExist() {
+    void countTransactions_ShouldCountRowsInPeriod() {
         // Arrange
         Long userId = 1L;
         LocalDateTime startDate = LocalDateTime.now().minusDays(7);
         LocalDateTime endDate = LocalDateTime.now();
-        Transaction transaction1 = new Transaction();
-        transaction1.setUserId(userId);
-        transaction1.setAmount(100.0);
-        transaction1.setCategory("Food");
-        transaction1.setType(TransactionType.EXPENSE);
-        Transaction transaction2 = new Transaction();
-        transaction2.setUserId(userId);
-        transaction2.setAmount(200.0);
-        transaction2.setCategory("Transport");
-        transaction2.setType(TransactionType.EXPENSE);
+        stubRows(userId, startDate, endDate,
+                row(100.0, 0, TransactionType.INCOME),
+                row(200.0, 1, TransactionType.EXPENSE));
 
-        when(transactionRepository.findByUserId(userId)).thenReturn(List.of(transaction1, transaction2));
+        // Act
+        long count = transactionService.countTransactions(userId, startDate, endDate);
+
+        // Assert
+        assertEquals(2, count);
+    }
+
+    @Test
+    void calculateExpensesByCategory_ShouldReturnMapOfCategoriesAndTotals_WhenExpenseTransactionsExist() {
+        // Arrange
+        Long userId = 1L;
+        LocalDateTime startDate = LocalDateTime.now().minusDays(7);
+        LocalDateTime endDate = LocalDateTime.now();
+        stubRows(userId, startDate, endDate,
+                row(100.0, 0, TransactionType.EXPENSE),
+                row(200.0, 1, TransactionType.EXPENSE),
+                row(50.0, 0, TransactionType.EXPENSE),
+                row(999.0, 1, TransactionType.INCOME));
+        when(transactionRepository.getCategoryCount()).thenReturn(2);
+        when(transactionRepository.getCategoryName(0)).thenReturn("Food");
+        when(transactionRepository.getCategoryName(1)).thenReturn("Transport");
 
         // Act
         Map<String, Double> expensesByCategory = transactionService.calculateExpensesByCategory(userId, startDate, endDate);
@@ -349,7 +397,100 @@ class TransactionServiceTest {
         // Assert
         assertNotNull(expensesByCategory);
         assertEquals(2, expensesByCategory.size());
-        assertEquals(100.0, expensesByCategory.get("Food"), 0.001);
+        assertEquals(150.0, expensesByCategory.get("Food"), 0.001);
         assertEquals(200.0, expensesByCategory.get("Transport"), 0.001);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createTransaction_ShouldAdjustArchivedMonth_WhenDateInClosedMonth() {
+        // Arrange
+        MonthlySummaryRepository archive = new MonthlySummaryRepository();
+        archive.saveAll(List.of(new MonthlySummary(1L, YearMonth.of(2025, 1), 0, 300.0, 1, 0, false, Map.of("Food", 300.0))));
+        transactionService.setSummaryArchive(archive);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Transaction late = transactionService.createTransaction(1L, 50.0, "Taxi", "late", LocalDateTime.of(2025, 1, 31, 20, 0),
+                TransactionType.EXPENSE);
+
+        // Assert
+        assertNotNull(late);
+        MonthlySummary summary = archive.find(1L, YearMonth.of(2025, 1));
+        assertEquals(350.0, summary.getExpenses(), 0.001);
+        assertEquals(2, summary.getTransactionCount());
+        assertEquals(50.0, summary.getExpensesByCategory().get("Taxi"), 0.001);
+    }
+
+    @Test
+    void updateAndDelete_ShouldAdjustArchivedMonth_WhenTransactionInClosedMonth() {
+        // Arrange
+        MonthlySummaryRepository archive = new MonthlySummaryRepository();
+        archive.saveAll(List.of(new MonthlySummary(1L, YearMonth.of(2025, 1), 0, 300.0, 1, 0, false, Map.of("Food", 300.0))));
+        transactionService.setSummaryArchive(archive);
+        Transaction[] stored = {new Transaction(7L, 1L, 300.0, "Food", "groceries", LocalDateTime.of(2025, 1, 10, 9, 0),
+                TransactionType.EXPENSE, 1)};
+        when(transactionRepository.findById(7L)).thenAnswer(invocation -> TransactionRepository.copy(stored[0]));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> stored[0] = invocation.getArgument(0));
+
+        // Act
+        boolean updated = transactionService.updateTransaction(7L, 120.0, null, null);
+        double afterUpdate = archive.find(1L, YearMonth.of(2025, 1)).getExpenses();
+        boolean deleted = transactionService.deleteTransaction(7L);
+
+        // Assert
+        assertTrue(updated);
+        assertTrue(deleted);
+        assertEquals(120.0, afterUpdate, 0.001);
+        MonthlySummary summary = archive.find(1L, YearMonth.of(2025, 1));
+        assertEquals(0.0, summary.getExpenses(), 0.001);
+        assertEquals(0, summary.getTransactionCount());
+        verify(transactionRepository, times(1)).save(any());
+        verify(transactionRepository, times(1)).delete(7L);
+    }
+
+    @Test
+    void calculateTotals_ShouldReadClosedMonthsFromArchive_WhenArchiveAttached() {
+        // Arrange
+        Long userId = 1L;
+        MonthlySummaryRepository archive = new MonthlySummaryRepository();
+        archive.saveAll(List.of(
+                new MonthlySummary(userId, YearMonth.of(2025, 1), 1000.0, 300.0, 4, 0, false, Map.of("Food", 300.0)),
+                new MonthlySummary(userId, YearMonth.of(2025, 2), 1000.0, 500.0, 6, 0, false, Map.of("Food", 200.0, "Rent", 300.0))));
+        transactionService.setSummaryArchive(archive);
+        LocalDateTime startDate = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2025, 3, 20, 12, 0);
+        stubRows(userId, LocalDateTime.of(2025, 3, 1, 0, 0), endDate,
+                row(100.0, 0, TransactionType.EXPENSE),
+                row(400.0, 0, TransactionType.INCOME));
+        when(transactionRepository.getCategoryCount()).thenReturn(1);
+        when(transactionRepository.getCategoryName(0)).thenReturn("Food");
+
+        // Act
+        double income = transactionService.calculateTotalIncome(userId, startDate, endDate);
+        double expenses = transactionService.calculateTotalExpenses(userId, startDate, endDate);
+        long count = transactionService.countTransactions(userId, startDate, endDate);
+        Map<String, Double> byCategory = transactionService.calculateExpensesByCategory(userId, startDate, endDate);
+
+        // Assert
+        assertEquals(2400.0, income, 0.001);
+        assertEquals(900.0, expenses, 0.001);
+        assertEquals(12, count);
+        assertEquals(600.0, byCategory.get("Food"), 0.001);
+        assertEquals(300.0, byCategory.get("Rent"), 0.001);
+        verify(transactionRepository, times(4)).forEachByUser(eq(userId), any(), any(), any());
+    }
+
+    private static Object[] row(double amount, int categoryId, TransactionType type) {
+        return new Object[]{amount, categoryId, type};
+    }
+
+    private void stubRows(Long userId, LocalDateTime startDate, LocalDateTime endDate, Object[]... rows) {
+        doAnswer(invocation -> {
+            TransactionVisitor visitor = invocation.getArgument(3);
+            for (Object[] row : rows) {
+                visitor.visit(0L, (double) row[0], (int) row[1], (byte) ((TransactionType) row[2]).ordinal());
+            }
+            return null;
+        }).when(transactionRepository).forEachByUser(eq(userId), eq(startDate), eq(endDate), any());
+    }
+}
@@ -0,0 +1,124 @@
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSnapshotTest {
+
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+    }
+
+    @Test
+    void findAll_ShouldSeeStateAtOpening_WhenRowsChangedLater() {
+        // Arrange
+        Transaction updated = save(1L, 100.0);
+        Transaction deleted = save(1L, 200.0);
+        TransactionSnapshot snapshot = transactionRepository.openSnapshot();
+
+        // Act
+        updated.setAmount(150.0);
+        transactionRepository.save(updated);
+        transactionRepository.delete(deleted.getId());
+        save(2L, 300.0);
+        List<Transaction> seen = snapshot.findAll();
+        snapshot.close();
+
+        // Assert
+        assertEquals(2, seen.size());
+        assertEquals(300.0, seen.stream().mapToDouble(Transaction::getAmount).sum());
+        try (TransactionSnapshot current = transactionRepository.openSnapshot()) {
+            assertEquals(450.0, current.findAll().stream().mapToDouble(Transaction::getAmount).sum());
+        }
+    }
+
+    @Test
+    void close_ShouldReleaseOldVersions_WhenNoSnapshotNeedsThem() {
+        // Arrange
+        Transaction transaction = save(1L, 100.0);
+        Transaction deleted = save(1L, 50.0);
+        TransactionSnapshot snapshot = transactionRepository.openSnapshot();
+        for (int i = 0; i < 10; i++) {
+            transaction.setAmount(i);
+            transactionRepository.save(transaction);
+        }
+        transactionRepository.delete(deleted.getId());
+        int retainedWhileOpen = transactionRepository.getVersions().getRetainedVersions();
+
+        // Act
+        snapshot.close();
+
+        // Assert
+        assertEquals(13, retainedWhileOpen);
+        assertEquals(1, transactionRepository.getVersions().getRetainedVersions());
+        assertEquals(0, transactionRepository.getVersions().getOpenSnapshotCount());
+    }
+
+    @Test
+    void forEach_ShouldSeeConsistentRounds_WhenWriterRunsConcurrently() throws InterruptedException {
+        // Arrange
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(save(1L, 0));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int round = 1; running.get(); round++) {
+                for (Transaction row : rows) {
+                    row.setAmount(round);
+                    transactionRepository.save(row);
+                }
+            }
+        });
+        writer.start();
+
+        // Act
+        List<String> violations = new ArrayList<>();
+        for (int attempt = 0; attempt < 200; attempt++) {
+            try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+                // Писатель обновляет строки по порядку слотов, поэтому снимок видит префикс
+                // нового круга и хвост предыдущего: суммы не растут и отличаются не больше чем на 1
+                double[] previous = {Double.MAX_VALUE};
+                double[] first = {Double.NaN};
+                snapshot.forEach(0, snapshot.getSlotCount(), Long.MIN_VALUE, Long.MAX_VALUE, (userId, epochSecond, amount, categoryId, type) -> {
+                    if (Double.isNaN(first[0])) {
+                        first[0] = amount;
+                    }
+                    if (amount > previous[0] || first[0] - amount > 1) {
+                        violations.add("round " + amount + " after " + previous[0]);
+                    }
+                    previous[0] = amount;
+                });
+            }
+        }
+        running.set(false);
+        writer.join();
+
+        // Assert
+        assertTrue(violations.isEmpty(), violations.toString());
+        assertEquals(0, transactionRepository.getVersions().getOpenSnapshotCount());
+    }
+
+    private Transaction save(Long userId, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setAmount(amount);
+        transaction.setCategory("Food");
+        transaction.setDescription("");
+        transaction.setDate(LocalDateTime.of(2024, 1, 1, 12, 0));
+        transaction.setType(TransactionType.EXPENSE);
+        return transactionRepository.save(transaction);
+    }
+}
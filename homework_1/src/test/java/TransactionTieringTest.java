@@ -0,0 +1,192 @@
+import org.example.model.Transaction;
+import org.example.model.TransactionQuery;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.repository.TransactionSegmentStore;
+import org.example.repository.TransactionSnapshot;
+import org.example.util.IdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTieringTest {
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService prefetchExecutor;
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        prefetchExecutor = Executors.newSingleThreadExecutor();
+        transactionRepository = new TransactionRepository(IdGenerator.shared(), new TransactionSegmentStore(directory), 2,
+                prefetchExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    @Test
+    void findByUserId_ShouldLoadEvictedUser_WhenAccessedAgain() {
+        // Arrange
+        Transaction lunch = save(1L, 100.0, "Food", "lunch");
+        save(1L, 50.0, "Taxi", null);
+        save(2L, 200.0, "Food", "dinner");
+        save(3L, 300.0, "Rent", "march");
+
+        // Act
+        boolean residentBeforeAccess = transactionRepository.isResident(1L);
+        List<Transaction> found = transactionRepository.findByUserId(1L);
+
+        // Assert
+        assertFalse(residentBeforeAccess);
+        assertEquals(2, found.size());
+        Transaction loaded = transactionRepository.findById(lunch.getId());
+        assertEquals("lunch", loaded.getDescription());
+        assertEquals(lunch.getDate(), loaded.getDate());
+        assertEquals(lunch.getVersion(), loaded.getVersion());
+        assertTrue(transactionRepository.isResident(1L));
+        assertFalse(transactionRepository.isResident(2L));
+    }
+
+    @Test
+    void save_ShouldRewriteSegment_WhenLoadedUserChangesBeforeNextEviction() {
+        // Arrange
+        Transaction lunch = save(1L, 100.0, "Food", "lunch");
+        save(2L, 200.0, "Food", "dinner");
+        save(3L, 300.0, "Rent", "march");
+        Transaction cold = transactionRepository.findById(lunch.getId());
+        cold.setAmount(120.0);
+        transactionRepository.save(cold);
+
+        // Act
+        save(2L, 10.0, "Food", "snack");
+        save(3L, 10.0, "Food", "snack");
+        boolean evictedAgain = !transactionRepository.isResident(1L);
+        double[] total = new double[1];
+        transactionRepository.forEachByUser(1L, null, null, (epochSecond, amount, categoryId, type) -> total[0] += amount);
+
+        // Assert
+        assertTrue(evictedAgain);
+        assertEquals(120.0, total[0], 1e-9);
+    }
+
+    @Test
+    void openSnapshot_ShouldIncludeEvictedUsers_WhenScanningAllTransactions() {
+        // Arrange
+        save(1L, 100.0, "Food", "lunch");
+        save(2L, 200.0, "Food", "dinner");
+        save(3L, 300.0, "Rent", "march");
+
+        // Act
+        double[] scanned = new double[1];
+        List<Transaction> copies;
+        try (TransactionSnapshot snapshot = transactionRepository.openSnapshot()) {
+            snapshot.forEach(0, snapshot.getSlotCount(), Long.MIN_VALUE, Long.MAX_VALUE,
+                    (userId, epochSecond, amount, categoryId, type) -> scanned[0] += amount);
+            copies = snapshot.findAll();
+        }
+        List<Transaction> food = transactionRepository.query(TransactionQuery.builder().categories(Set.of("Food")).build());
+
+        // Assert
+        assertFalse(transactionRepository.isResident(1L));
+        assertEquals(600.0, scanned[0], 1e-9);
+        assertEquals(3, copies.size());
+        assertTrue(copies.stream().anyMatch(transaction -> "lunch".equals(transaction.getDescription())));
+        assertEquals(2, food.size());
+        assertFalse(transactionRepository.isResident(1L));
+        assertEquals(3, transactionRepository.findAll().size());
+    }
+
+    @Test
+    void save_ShouldDropEvictedRowsFromVersionStore_WhenUserGoesCold() {
+        // Arrange
+        save(1L, 100.0, "Food", "lunch");
+        save(1L, 50.0, "Taxi", null);
+        save(2L, 200.0, "Food", "dinner");
+
+        // Act
+        save(3L, 300.0, "Rent", "march");
+
+        // Assert
+        assertFalse(transactionRepository.isResident(1L));
+        assertEquals(2, transactionRepository.getVersions().getRetainedVersions());
+    }
+
+    @Test
+    void openSnapshot_ShouldReadPinnedSegment_WhenUserChangedAndEvictedAgain() throws IOException {
+        // Arrange
+        Transaction lunch = save(1L, 100.0, "Food", "lunch");
+        save(2L, 200.0, "Food", "dinner");
+        save(3L, 300.0, "Rent", "march");
+        TransactionSnapshot snapshot = transactionRepository.openSnapshot();
+
+        // Act
+        Transaction cold = transactionRepository.findById(lunch.getId());
+        cold.setAmount(120.0);
+        transactionRepository.save(cold);
+        save(2L, 10.0, "Food", "snack");
+        save(3L, 10.0, "Food", "snack");
+        double[] seen = new double[1];
+        snapshot.forEach(0, snapshot.getSlotCount(), Long.MIN_VALUE, Long.MAX_VALUE,
+                (userId, epochSecond, amount, categoryId, type) -> seen[0] += amount);
+        long segmentsWhileOpen = segmentsOf(1L);
+        snapshot.close();
+        transactionRepository.findByUserId(2L);
+
+        // Assert
+        assertFalse(transactionRepository.isResident(1L));
+        assertEquals(600.0, seen[0], 1e-9);
+        assertEquals(2, segmentsWhileOpen);
+        assertEquals(1, segmentsOf(1L));
+        assertEquals(640.0, transactionRepository.findAll().stream().mapToDouble(Transaction::getAmount).sum(), 1e-9);
+    }
+
+    @Test
+    void prefetch_ShouldLoadUserInBackground_WhenUserLogsIn() {
+        // Arrange
+        save(1L, 100.0, "Food", "lunch");
+        save(2L, 200.0, "Food", "dinner");
+        save(3L, 300.0, "Rent", "march");
+
+        // Act
+        transactionRepository.prefetch(1L).join();
+
+        // Assert
+        assertTrue(transactionRepository.isResident(1L));
+        assertEquals(1, transactionRepository.search(1L, "lunch", null, null, null).size());
+    }
+
+    private long segmentsOf(long userId) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(userId + "-")).count();
+        }
+    }
+
+    private Transaction save(Long userId, double amount, String category, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setAmount(amount);
+        transaction.setCategory(category);
+        transaction.setDescription(description);
+        transaction.setDate(LocalDateTime.of(2025, 3, 10, 12, 30, 15, 500));
+        transaction.setType(TransactionType.EXPENSE);
+        return transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,104 @@
+import org.example.model.Transaction;
+import org.example.model.TransactionType;
+import org.example.repository.TransactionRepository;
+import org.example.service.TransactionListener;
+import org.example.service.TransactionService;
+import org.example.service.UserCommandExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCommandExecutorTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private UserCommandExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new UserCommandExecutor(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void createTransaction_ShouldApplyUserWritesInSubmissionOrder_WhenSubmittedFromManyThreads() {
+        // Arrange
+        TransactionService transactionService = new TransactionService(new TransactionRepository());
+        transactionService.setUserExecutor(executor);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        List<Double> amounts = new CopyOnWriteArrayList<>();
+        transactionService.addListener(new TransactionListener() {
+            @Override
+            public void onCreated(Transaction transaction) {
+                threads.add(Thread.currentThread().getName());
+                if (transaction.getUserId() == 1L) {
+                    amounts.add(transaction.getAmount());
+                }
+            }
+        });
+
+        // Act
+        List<CompletableFuture<Void>> others = new ArrayList<>();
+        for (long userId = 2; userId <= 9; userId++) {
+            long id = userId;
+            others.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 50; i++) {
+                    transactionService.createTransaction(id, 10.0, "Food", "", DATE, TransactionType.EXPENSE);
+                }
+            }));
+        }
+        for (int i = 1; i <= 100; i++) {
+            transactionService.createTransaction(1L, i, "Food", "", DATE, TransactionType.EXPENSE);
+        }
+        others.forEach(CompletableFuture::join);
+
+        // Assert
+        assertEquals(100, amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            assertEquals(i + 1, amounts.get(i), 1e-9);
+        }
+        assertEquals(500, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("user-shard-")));
+    }
+
+    @Test
+    void call_ShouldRunNestedCommandInline_WhenCalledFromShardThread() {
+        // Arrange
+        long otherShardUser = 2L;
+
+        // Act
+        String[] names = executor.call(1L, () -> {
+            String outer = Thread.currentThread().getName();
+            String inner = executor.call(otherShardUser, () -> Thread.currentThread().getName());
+            return new String[]{outer, inner};
+        });
+
+        // Assert
+        assertNotEquals(executor.shardOf(1L), executor.shardOf(otherShardUser));
+        assertEquals("user-shard-" + executor.shardOf(1L), names[0]);
+        assertEquals(names[0], names[1]);
+    }
+
+    @Test
+    void call_ShouldRethrowCommandException_WhenCommandFails() {
+        // Assert
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> executor.call(1L, () -> {
+                    throw new IllegalArgumentException("bad");
+                }));
+        assertEquals("bad", thrown.getMessage());
+        assertEquals(Integer.valueOf(1), executor.call(1L, () -> 1));
+    }
+}
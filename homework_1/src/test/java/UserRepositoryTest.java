@@ -0,0 +1,69 @@
+import org.example.model.User;
+import org.example.model.UserFilter;
+import org.example.model.UserPage;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRepositoryTest {
+
+    @Test
+    void findPage_ShouldPageBlockedUsersByEmail_WhenFollowingCursor() {
+        // Arrange
+        UserRepository repository = new UserRepository();
+        for (String email : List.of("e@mail.ru", "a@mail.ru", "d@mail.ru", "c@mail.ru", "b@mail.ru")) {
+            repository.save(new User(null, "User", email, "hash", false, !email.startsWith("d")));
+        }
+        User unblocked = repository.findByMail("c@mail.ru");
+        unblocked.setBlocked(false);
+        repository.save(unblocked);
+        UserFilter blocked = new UserFilter(true, null, null, null);
+
+        // Act
+        UserPage first = repository.findPage(blocked, null, 2);
+        UserPage second = repository.findPage(blocked, first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("a@mail.ru", "b@mail.ru"), emails(first));
+        assertEquals("b@mail.ru", first.getNextCursor());
+        assertEquals(List.of("e@mail.ru"), emails(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void findPage_ShouldPageAdminsAndNamePrefixByEmail_WhenFollowingCursor() {
+        // Arrange
+        UserRepository repository = new UserRepository();
+        repository.save(new User(null, "Anna", "d@mail.ru", "hash", true, false));
+        repository.save(new User(null, "Boris", "a@mail.ru", "hash", true, false));
+        repository.save(new User(null, "anton", "c@mail.ru", "hash", false, false));
+        repository.save(new User(null, "Andrey", "b@mail.ru", "hash", true, false));
+        User renamed = repository.save(new User(null, "Alla", "e@mail.ru", "hash", false, false));
+        renamed.setName("Vera");
+        repository.save(renamed);
+        UserFilter admins = new UserFilter(null, true, null, null);
+        UserFilter named = new UserFilter(null, null, "AN", null);
+
+        // Act
+        UserPage firstAdmins = repository.findPage(admins, null, 2);
+        UserPage secondAdmins = repository.findPage(admins, firstAdmins.getNextCursor(), 2);
+        UserPage firstNamed = repository.findPage(named, null, 2);
+        UserPage secondNamed = repository.findPage(named, firstNamed.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("a@mail.ru", "b@mail.ru"), emails(firstAdmins));
+        assertEquals(List.of("d@mail.ru"), emails(secondAdmins));
+        assertNull(secondAdmins.getNextCursor());
+        assertEquals(List.of("b@mail.ru", "c@mail.ru"), emails(firstNamed));
+        assertEquals(List.of("d@mail.ru"), emails(secondNamed));
+        assertNull(secondNamed.getNextCursor());
+    }
+
+    private static List<String> emails(UserPage page) {
+        return page.getUsers().stream().map(User::getEmail).collect(Collectors.toList());
+    }
+}
@@ -1,6 +1,10 @@
 
 import org.example.model.User;
+import org.example.repository.OptimisticLockException;
 import org.example.repository.UserRepository;
+import org.example.service.LoginRateLimiter;
+import org.example.service.PasswordHasher;
+import org.example.service.SessionService;
 import org.example.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,7 +12,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +28,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(1000, 1, 16, Duration.ofSeconds(5));
+
+    @Spy
+    private LoginRateLimiter loginRateLimiter = new LoginRateLimiter(3, 0.01, 64, Clock.systemUTC());
+
+    @Mock
+    private SessionService sessionService;
+
     @InjectMocks
     private UserService userService;
 
@@ -93,6 +109,62 @@ class UserServiceTest {
         assertEquals(expectedUser, actualUser);
     }
 
+    @Test
+    void loginUser_ShouldRehashPlainPassword_WhenLoginSucceeds() {
+        // Arrange
+        String email = "test@example.com";
+        String password = "password";
+        User existingUser = new User();
+        existingUser.setEmail(email);
+        existingUser.setPassword(password);
+
+        when(userRepository.findByMail(email)).thenReturn(existingUser);
+
+        // Act
+        User actualUser = userService.loginUser(email, password);
+
+        // Assert
+        assertNotNull(actualUser);
+        assertNotEquals(password, existingUser.getPassword());
+        assertTrue(passwordHasher.matches(password, existingUser.getPassword()));
+        Mockito.verify(userRepository, Mockito.times(1)).save(existingUser);
+    }
+
+    @Test
+    void loginUser_ShouldReturnNull_WhenPasswordDoesNotMatch() {
+        // Arrange
+        String email = "test@example.com";
+        User existingUser = new User();
+        existingUser.setEmail(email);
+        existingUser.setPassword(passwordHasher.hash("password"));
+
+        when(userRepository.findByMail(email)).thenReturn(existingUser);
+
+        // Act
+        User actualUser = userService.loginUser(email, "wrong");
+
+        // Assert
+        assertNull(actualUser);
+    }
+
+    @Test
+    void loginUser_ShouldRejectBeforeLookup_WhenAttemptLimitExceeded() {
+        // Arrange
+        String email = "victim@example.com";
+        when(userRepository.findByMail(email)).thenReturn(null);
+        for (int i = 0; i < 3; i++) {
+            userService.loginUser(email, "guess" + i, "attacker");
+        }
+
+        // Act
+        User actualUser = userService.loginUser(" Victim@Example.com", "guess", "other-client");
+
+        // Assert
+        assertNull(actualUser);
+        Mockito.verify(userRepository, Mockito.times(3)).findByMail(email);
+        Mockito.verify(userRepository, Mockito.never()).findByMail(" Victim@Example.com");
+    }
+
     @Test
     void loginUser_ShouldReturnNull_WhenInvalidCredentialsProvided() {
         // Arrange
@@ -106,6 +178,20 @@ class UserServiceTest {
 
         // Assert
         assertNull(actualUser);
+        Mockito.verify(passwordHasher).matchDummy(password);
+    }
+
+    @Test
+    void createFirstAdminIfNotExists_ShouldNotSaveAdmin_WhenHashingIsRejected() {
+        // Arrange
+        when(userRepository.findByMail("admin@example.com")).thenReturn(null);
+        doReturn(null).when(passwordHasher).hash("secret");
+
+        // Act
+        userService.createFirstAdminIfNotExists("admin@example.com", "secret");
+
+        // Assert
+        Mockito.verify(userRepository, Mockito.never()).save(any(User.class));
     }
 
     @Test
@@ -162,10 +248,32 @@ class UserServiceTest {
         assertTrue(result);
         assertEquals(newName, existingUser.getName());
         assertEquals(newEmail, existingUser.getEmail());
-        assertEquals(newPassword, existingUser.getPassword());
+        assertTrue(passwordHasher.matches(newPassword, existingUser.getPassword()));
         Mockito.verify(userRepository, Mockito.times(1)).save(existingUser);
     }
 
+    @Test
+    void updateUser_ShouldHashPasswordOnce_WhenSaveIsRetried() {
+        // Arrange
+        Long userId = 1L;
+        User existingUser = new User();
+        existingUser.setId(userId);
+        existingUser.setPassword("oldpassword");
+
+        when(userRepository.findById(userId)).thenReturn(existingUser);
+        when(userRepository.save(existingUser))
+                .thenThrow(new OptimisticLockException("User", userId, 0, 1))
+                .thenReturn(existingUser);
+
+        // Act
+        boolean result = userService.updateUser(userId, null, null, "newpassword");
+
+        // Assert
+        assertTrue(result);
+        Mockito.verify(passwordHasher, Mockito.times(1)).hash("newpassword");
+        Mockito.verify(userRepository, Mockito.times(2)).save(existingUser);
+    }
+
     @Test
     void updateUser_ShouldNotUpdateUser_WhenEmailAlreadyExists() {
         // Arrange
@@ -204,6 +312,7 @@ class UserServiceTest {
         // Assert
         assertTrue(result);
         Mockito.verify(userRepository, Mockito.times(1)).delete(userId);
+        Mockito.verify(sessionService).revokeAllForUser(userId);
     }
 
     @Test
@@ -218,6 +327,7 @@ class UserServiceTest {
 
         // Assert
         assertFalse(result);
+        Mockito.verify(sessionService, Mockito.never()).revokeAllForUser(userId);
     }
 
     @Test
@@ -270,6 +380,7 @@ class UserServiceTest {
         assertTrue(result);
         assertTrue(existingUser.isBlocked());
         Mockito.verify(userRepository, Mockito.times(1)).save(existingUser);
+        Mockito.verify(sessionService).revokeAllForUser(userId);
     }
 
     @Test